@@ -0,0 +1,81 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Gives benchmarks the sounds from the Test Audio folder, which are packed into the benchmark jar so
+ * the results don't depend on where it is run
+ */
+final class BenchmarkAudio {
+
+	private BenchmarkAudio(){
+	}
+
+	/**
+	 * Returns a temporary copy of the test sound in the specified format. There is no WAVE test sound, that
+	 * one is written from the AIFF sound.
+	 * @param format The file extension, like aiff, wav, flac, ogg or mp3
+	 */
+	static File get( String format ) throws IOException, UnsupportedAudioFileException {
+		File file = File.createTempFile( "jsoundsystem-benchmark", "." + format );
+		file.deleteOnExit();
+
+		if( format.equals( "wav" ) ) {
+			AudioInputStream audioStream = AudioSystem.getAudioInputStream( get( "aiff" ) );
+			try {
+				AudioSystem.write( audioStream, AudioFileFormat.Type.WAVE, file );
+			}
+			finally {
+				audioStream.close();
+			}
+			return file;
+		}
+
+		InputStream in = BenchmarkAudio.class.getResourceAsStream( "/audio/testSound." + format );
+		if( in == null ) throw new IOException( "There is no test sound for " + format );
+		try {
+			Files.copy( in, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+		}
+		finally {
+			in.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,92 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of clone(), the usual way to play the same sound several times at once. Each clone is disposed
+ * of right away so the sounds don't pile up, that is included in the time.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CloneBenchmark {
+
+	@Param({ "THREADED", "MIXER" })
+	public JSoundSystem.PlaybackMode mode;
+
+	private JSound sound;
+	private JSound sound3D;
+
+	@Setup
+	public void setUp() throws Exception {
+		JSoundSystem.setOutputBackend( new DiscardBackend() );
+		JSoundSystem.setPlaybackMode( mode );
+
+		sound = JSoundSystem.createSound( BenchmarkAudio.get( "aiff" ) );
+		sound3D = JSoundSystem.create3DSound( BenchmarkAudio.get( "aiff" ) );
+	}
+
+	@TearDown
+	public void tearDown() {
+		sound.dispose();
+		sound3D.dispose();
+	}
+
+	@Benchmark
+	public JSound cloneSound() {
+		JSound copy = sound.clone();
+		copy.dispose();
+		return copy;
+	}
+
+	@Benchmark
+	public JSound clone3DSound() {
+		JSound copy = sound3D.clone();
+		copy.dispose();
+		return copy;
+	}
+}
@@ -0,0 +1,93 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.FloatControl;
+
+import net.jsoundsystem.output.AudioOutput;
+import net.jsoundsystem.output.OutputBackend;
+
+/**
+ * A headless sink for benchmarks. Unlike NullBackend it doesn't play at normal speed and unlike MemoryBackend
+ * it doesn't keep anything, so benchmarks measure the sound system and not the output.
+ */
+final class DiscardBackend implements OutputBackend {
+
+	public AudioOutput openOutput( AudioFormat format ) {
+		return new DiscardOutput( format );
+	}
+
+	public boolean isRealtime() {
+		return false;
+	}
+
+	private static final class DiscardOutput implements AudioOutput {
+		private final AudioFormat format;
+
+		//Written data is added up so the JIT can't remove the writes
+		long checksum;
+
+		DiscardOutput( AudioFormat format ){
+			this.format = format;
+		}
+
+		public void start() {
+		}
+
+		public void stop() {
+		}
+
+		public int write( byte[] data, int offset, int length ) {
+			if( length > 0 ) checksum += data[offset] + data[offset + length - 1];
+			return length;
+		}
+
+		public int available() {
+			return Integer.MAX_VALUE;
+		}
+
+		public void drain() {
+		}
+
+		public void flush() {
+		}
+
+		public void close() {
+		}
+
+		public AudioFormat getFormat() {
+			return format;
+		}
+
+		public FloatControl getControl( FloatControl.Type type ) {
+			return null;
+		}
+	}
+}
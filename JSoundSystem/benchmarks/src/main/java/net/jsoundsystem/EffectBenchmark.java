@@ -0,0 +1,89 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.jsoundsystem.effects.BiquadFilter;
+import net.jsoundsystem.effects.Compressor;
+import net.jsoundsystem.effects.SoundEffect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of running one block of one voice through an effect. Multiply by the number of voices and
+ * the blocks per second (about 43 at 44100 Hz) to see how much of a core an effect chain takes.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EffectBenchmark {
+
+	//Same block size as AudioThread and the SoftwareMixer
+	private static final int BLOCK_FRAMES = 1024;
+
+	@Param({ "lowpass", "peaking", "compressor" })
+	public String effect;
+
+	private SoundEffect processor;
+	private final float[] block = new float[BLOCK_FRAMES * 2];
+	private final float[] buffer = new float[BLOCK_FRAMES * 2];
+
+	@Setup
+	public void setUp() {
+		if( effect.equals( "lowpass" ) ) processor = new BiquadFilter( BiquadFilter.Type.LOW_PASS, 1000 );
+		else if( effect.equals( "peaking" ) ) processor = new BiquadFilter( BiquadFilter.Type.PEAKING, 1000, 1, 6 );
+		else processor = new Compressor( -20, 4 );
+
+		//Noise, so the compressor has something to do
+		Random random = new Random( 1 );
+		for( int i = 0; i < block.length; i++ ) block[i] = random.nextFloat() - 0.5f;
+	}
+
+	@Benchmark
+	public float[] block() {
+		System.arraycopy( block, 0, buffer, 0, buffer.length );
+		processor.process( buffer, BLOCK_FRAMES, 44100 );
+		return buffer;
+	}
+}
@@ -0,0 +1,102 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The plain Java mix kernels against the Vector API kernels for the three steps every block goes through:
+ * decoding 16 bit PCM, adding it to the mix with a gain ramp and converting the mix back to 16 bit PCM.
+ * The vector kernels need Java 16 or newer and a library jar built with it, otherwise the vector runs fail.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" } )
+public class MixKernelsBenchmark {
+
+	@Param({ "scalar", "vector" })
+	public String kernels;
+
+	//Block sizes of a low latency output, the SoftwareMixer and AudioThread, and a large output buffer
+	@Param({ "256", "1024", "4096" })
+	public int frames;
+
+	private MixKernels mixKernels;
+	private byte[] pcm;
+	private float[] samples;
+	private float[] mix;
+
+	@Setup
+	public void setUp() {
+		mixKernels = kernels.equals( "scalar" ) ? new MixKernels() : MixKernels.get();
+		if( !mixKernels.getName().startsWith( kernels ) ) throw new IllegalStateException( "The " + kernels + " kernels are not available" );
+
+		//Noise that sometimes goes beyond full scale, so encoding has to clip
+		Random random = new Random( 1 );
+		pcm = new byte[frames * 4];
+		random.nextBytes( pcm );
+		samples = new float[frames * 2];
+		for( int i = 0; i < samples.length; i++ ) samples[i] = (random.nextFloat() - 0.5f) * 2.2f;
+		mix = new float[frames * 2];
+	}
+
+	@Benchmark
+	public float[] decode() {
+		mixKernels.decodePcm16( pcm, 0, frames, 4, 2, false, mix, 0 );
+		return mix;
+	}
+
+	@Benchmark
+	public float[] mixRamp() {
+		mixKernels.mixRamp( samples, 0, mix, 0, frames, 0.5f, 0.1f / frames, 0.8f, -0.1f / frames );
+		return mix;
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		mixKernels.encodePcm16( samples, frames * 2, pcm );
+		return pcm;
+	}
+}
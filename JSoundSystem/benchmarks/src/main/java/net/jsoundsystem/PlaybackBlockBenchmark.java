@@ -0,0 +1,135 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+
+import net.jsoundsystem.output.AudioOutput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of one block of the playback loop in AudioThread.playSound(): applying volume and panning,
+ * resampling and mixing the block, converting it to 16 bit PCM and writing it to the output. The output
+ * is a DiscardBackend, so this measures the work per block and not the speed of a sound device.
+ * <p>
+ * The block is measured in two forks, one with the plain Java mix kernels and one with the Vector API kernels.
+ * The vector fork needs Java 16 or newer and a library jar built with it, otherwise it fails.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class PlaybackBlockBenchmark {
+
+	//Same block size as AudioThread
+	private static final int BLOCK_FRAMES = 1024;
+
+	//1.0 is a plain copy, anything else needs interpolation
+	@Param({ "1.0", "1.5" })
+	public double speed;
+
+	private VoiceDsp dsp;
+	private AudioOutput output;
+	private final float[] mixBuffer = new float[BLOCK_FRAMES * 2];
+	private final byte[] audioBytes = new byte[BLOCK_FRAMES * 4];
+	private float panning;
+
+	@Setup
+	public void setUp() throws Exception {
+		SampleData samples = JSoundSystem.decodeSamples( BenchmarkAudio.get( "aiff" ), null );
+		final SampleInputStream stream = new SampleInputStream( samples.data );
+		stream.mark( stream.available() );
+
+		//Loops the sound forever, like a looping JSound
+		dsp = new VoiceDsp( new VoiceDsp.Source() {
+			public int readSamples( byte[] buffer, int offset, int length ) {
+				int len = stream.read( buffer, offset, length );
+				if( len != -1 ) return len;
+
+				stream.reset();
+				return stream.read( buffer, offset, length );
+			}
+		}, samples.format, BLOCK_FRAMES );
+
+		AudioFormat format = samples.format;
+		output = new DiscardBackend().openOutput( new AudioFormat( format.getSampleRate(), 16, 2, true, false ) );
+		output.start();
+	}
+
+	/**
+	 * Fails the vector fork when the vector kernels could not be loaded, instead of measuring plain Java twice
+	 */
+	@State( Scope.Benchmark )
+	public static class VectorKernels {
+
+		@Setup
+		public void check() {
+			if( !JSoundSystem.isVectorMixing() ) throw new IllegalStateException( "The vector mix kernels are not available" );
+		}
+	}
+
+	@Benchmark
+	@Fork( value = 1, jvmArgsAppend = "-Djsoundsystem.mixKernels=scalar" )
+	public int blockScalar() throws Exception {
+		return block();
+	}
+
+	@Benchmark
+	@Fork( value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" } )
+	public int blockVector( VectorKernels kernels ) throws Exception {
+		return block();
+	}
+
+	private int block() throws Exception {
+
+		//Moving the panning makes every block ramp its gain, like a sound that is being moved around
+		panning = panning > 0.9f ? -1 : panning + 0.01f;
+		dsp.setGain( 0.8f, panning );
+
+		Arrays.fill( mixBuffer, 0 );
+		int frames = dsp.mix( mixBuffer, BLOCK_FRAMES, speed );
+		VoiceDsp.toPcm16( mixBuffer, frames * 2, audioBytes );
+		return output.write( audioBytes, 0, frames * 4 );
+	}
+}
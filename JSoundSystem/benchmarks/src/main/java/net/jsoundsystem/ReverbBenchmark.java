@@ -0,0 +1,93 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.jsoundsystem.effects.ConvolutionReverb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of one block of a convolution reverb with a 3 second stereo impulse response, for several partition
+ * sizes. A block of 1024 frames lasts 23 ms at 44100 Hz, so the score divided by 23220 is the share of one
+ * core the reverb needs. Larger partitions are cheaper but add latency.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ReverbBenchmark {
+
+	//Same block size as the SoftwareMixer
+	private static final int BLOCK_FRAMES = 1024;
+
+	@Param({ "256", "512", "1024", "4096" })
+	public int partitionSize;
+
+	private ConvolutionReverb reverb;
+	private final float[] block = new float[BLOCK_FRAMES * 2];
+	private final float[] buffer = new float[BLOCK_FRAMES * 2];
+
+	@Setup
+	public void setUp() {
+
+		//Decaying noise sounds like a real room
+		Random random = new Random( 1 );
+		float[][] impulse = new float[2][3 * 44100];
+		for( float[] channel : impulse ) {
+			for( int i = 0; i < channel.length; i++ ) {
+				channel[i] = (float) (random.nextGaussian() * Math.exp( -4.0 * i / channel.length ));
+			}
+		}
+		reverb = new ConvolutionReverb( impulse, 44100, 44100, partitionSize );
+
+		for( int i = 0; i < block.length; i++ ) block[i] = random.nextFloat() - 0.5f;
+	}
+
+	@Benchmark
+	public float[] block() {
+		System.arraycopy( block, 0, buffer, 0, buffer.length );
+		reverb.process( buffer, BLOCK_FRAMES, 44100 );
+		return buffer;
+	}
+}
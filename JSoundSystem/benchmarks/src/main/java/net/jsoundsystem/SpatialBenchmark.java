@@ -0,0 +1,98 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.jsoundsystem.utils.Vector3f;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of 3D sound: the spatial pass that computes volume and panning of every 3D sound from its
+ * position relative to the listener, and what each playing 3D sound does every block to pick up its result.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SpatialBenchmark {
+
+	@Param({ "16", "256", "4096" })
+	public int sounds;
+
+	private Spatializer spatializer;
+	private Vector3f listener;
+	private int slot;
+
+	@Setup
+	public void setUp() {
+		listener = new Vector3f( 400, 300, 0 );
+		JSoundSystem.setListenerPosition( listener );
+		JSoundSystem.setMaxDistance( 800 );
+
+		Random random = new Random( 42 );
+		spatializer = new Spatializer();
+		for( int i = 0; i < sounds; i++ ) {
+			slot = spatializer.allocate();
+			spatializer.setPosition( slot, random.nextFloat() * 1600, random.nextFloat() * 1200, random.nextFloat() * 100 );
+		}
+	}
+
+	/**
+	 * One spatial pass over all 3D sounds, done at most once per block by whichever sound needs it first
+	 */
+	@Benchmark
+	public void pass() {
+		listener.x = listener.x > 800 ? 0 : listener.x + 1;
+		spatializer.update();
+	}
+
+	/**
+	 * What AudioThread.update3DSound() does every block, usually finding the pass already done
+	 */
+	@Benchmark
+	public float voiceUpdate() {
+		spatializer.updateIfDue();
+		return spatializer.getVolume( slot ) + spatializer.getPanning( slot );
+	}
+}
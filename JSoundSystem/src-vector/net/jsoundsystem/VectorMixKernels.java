@@ -0,0 +1,150 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * MixKernels written against the Java Vector API, so the JIT compiles them to SIMD instructions. Needs
+ * Java 16 or newer and the jdk.incubator.vector module, which is why this lives in its own source folder.
+ * MixKernels loads this class when it is available and falls back to plain Java otherwise.
+ * <p>
+ * Only the format that getAudioInputStream produces, 16 bit little endian stereo, is decoded with SIMD.
+ * Anything else is decoded by the plain Java version.
+ */
+final class VectorMixKernels extends MixKernels {
+
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	//Shorts in registers of half the size, so they have as many lanes as FLOATS. Conversions that keep the
+	//number of lanes are compiled to SIMD instructions on every JDK, others fall back to slow Java code on JDK 17.
+	private static final VectorShape HALF = VectorShape.forBitSize( FLOATS.vectorBitSize() / 2 );
+	private static final VectorSpecies<Short> SHORTS = VectorSpecies.of( short.class, HALF );
+	private static final VectorSpecies<Byte> BYTES = VectorSpecies.of( byte.class, HALF );
+
+	//The frame number of each lane plus one, counting left and right as the same frame
+	private final FloatVector rampIndex;
+
+	//Selects the lanes that hold right samples
+	private final VectorMask<Float> rightLanes;
+
+	public VectorMixKernels() {
+		float[] index = new float[FLOATS.length()];
+		boolean[] right = new boolean[FLOATS.length()];
+		for( int i = 0; i < index.length; i++ ) {
+			index[i] = i / 2 + 1;
+			right[i] = i % 2 == 1;
+		}
+		rampIndex = FloatVector.fromArray( FLOATS, index, 0 );
+		rightLanes = VectorMask.fromArray( FLOATS, right, 0 );
+	}
+
+	boolean isSupported() {
+		return FLOATS.length() >= 4;
+	}
+
+	String getName() {
+		return "vector " + FLOATS.vectorBitSize() + " bit";
+	}
+
+	void decodePcm16( byte[] input, int inputOffset, int frames, int frameSize, int channels, boolean bigEndian, float[] output, int outputFrame ) {
+		if( bigEndian || channels != 2 || frameSize != 4 ) {
+			super.decodePcm16( input, inputOffset, frames, frameSize, channels, bigEndian, output, outputFrame );
+			return;
+		}
+
+		int samples = frames * 2;
+		int out = outputFrame * 2;
+		int step = FLOATS.length();
+		int i = 0;
+
+		for( ; i <= samples - step; i += step ) {
+
+			//Reinterpreting bytes as shorts always uses little endian order
+			ShortVector pcm = ByteVector.fromArray( BYTES, input, inputOffset + i * 2 ).reinterpretAsShorts();
+			FloatVector decoded = (FloatVector) pcm.convertShape( VectorOperators.S2F, FLOATS, 0 );
+			decoded.mul( 1 / 32768.0f ).intoArray( output, out + i );
+		}
+
+		//Frames that don't fill a whole vector
+		int done = i / 2;
+		super.decodePcm16( input, inputOffset + done * frameSize, frames - done, frameSize, channels, bigEndian, output, outputFrame + done );
+	}
+
+	void mixRamp( float[] source, int sourceFrame, float[] mix, int mixFrame, int frames,
+			float leftStart, float leftStep, float rightStart, float rightStep ) {
+		int in = sourceFrame * 2;
+		int out = mixFrame * 2;
+		int samples = frames * 2;
+		int lanes = FLOATS.length();
+
+		//Left and right gains interleaved the same way as the samples
+		FloatVector start = FloatVector.broadcast( FLOATS, leftStart ).blend( rightStart, rightLanes );
+		FloatVector step = FloatVector.broadcast( FLOATS, leftStep ).blend( rightStep, rightLanes );
+
+		int i = 0;
+		for( ; i <= samples - lanes; i += lanes ) {
+
+			//The gain of frame n is start + step * (n + 1)
+			FloatVector gain = step.fma( rampIndex.add( i / 2 ), start );
+			FloatVector sum = FloatVector.fromArray( FLOATS, mix, out + i );
+			FloatVector.fromArray( FLOATS, source, in + i ).fma( gain, sum ).intoArray( mix, out + i );
+		}
+
+		//Frames that don't fill a whole vector
+		int done = i / 2;
+		super.mixRamp( source, sourceFrame + done, mix, mixFrame + done, frames - done,
+				leftStart + leftStep * done, leftStep, rightStart + rightStep * done, rightStep );
+	}
+
+	void encodePcm16( float[] input, int samples, byte[] output ) {
+		int step = FLOATS.length();
+		int i = 0;
+
+		for( ; i <= samples - step; i += step ) {
+			FloatVector clipped = FloatVector.fromArray( FLOATS, input, i ).max( -1.0f ).min( 1.0f ).mul( 32767.0f );
+			ShortVector pcm = (ShortVector) clipped.convertShape( VectorOperators.F2S, SHORTS, 0 );
+			pcm.reinterpretAsBytes().intoArray( output, i * 2 );
+		}
+
+		//Samples that don't fill a whole vector
+		for( ; i < samples; i++ ) {
+			float sample = Math.max( -1.0f, Math.min( input[i], 1.0f ) );
+			int value = (int)(sample * 32767.0f);
+			output[i*2] = (byte) value;
+			output[i*2+1] = (byte)(value >> 8);
+		}
+	}
+}
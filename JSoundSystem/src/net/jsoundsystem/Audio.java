@@ -36,12 +36,12 @@ import javax.sound.sampled.AudioFormat;
  */
 abstract class Audio {
 	/**
-	 * This points to the actual audio where it is played in a different thread
+	 * This points to the actual audio where it is played, either in a different thread or by the software mixer
 	 */
-	protected final AudioThread soundThread;
+	protected final Voice voice;
 	
-	protected Audio( AudioThread thread ){
-		soundThread = thread;
+	protected Audio( Voice voice ){
+		this.voice = voice;
 	}
 		
 	/**
@@ -51,17 +51,15 @@ abstract class Audio {
 	 */
 	public void play() {
 
-		//No free channels to start a new sound
-		if( !JSoundSystem.hasFreeChannels() && !soundThread.isPaused() ) return;
-
-		soundThread.play();
+		//The voice reserves a channel itself, so this does nothing if there are no free channels
+		voice.play();
 	}
 	
 	/**
 	 * Stops playing a sound and resets its position
 	 */
 	public void stop(){
-		soundThread.stopPlaying();
+		voice.stopPlaying();
 	}
 	
 	/**
@@ -69,7 +67,7 @@ abstract class Audio {
 	 * play() is called again.
 	 */
 	public void pause(){
-		soundThread.pause();
+		voice.pause();
 	}
 	
 	/**
@@ -78,18 +76,18 @@ abstract class Audio {
 	 * @param looping
 	 */
 	public void setLoop( boolean looping ){
-		soundThread.setLooped( looping );
+		voice.setLooped( looping );
 	}
 	
 	/**
 	 * Returns True if this sound is currently playing
 	 */
 	public boolean isPlaying(){
-		return soundThread.isPlaying();
+		return voice.isPlaying();
 	}
 	
 	public String toString(){
-		return soundThread.getName();
+		return voice.getName();
 	}
 	
 	/**
@@ -98,7 +96,7 @@ abstract class Audio {
 	 * @param volume A number between 0.00f and 5.00f where 1.00f is default 
 	 */
 	public void setVolume( float volume ){
-		soundThread.setVolume( volume );
+		voice.setVolume( volume );
 	}
 	
 	/**
@@ -107,7 +105,7 @@ abstract class Audio {
 	 * 1.00f means 100% speed (default)
 	 */
 	public void setSpeed( float speed ){
-		soundThread.setSpeed( speed );
+		voice.setSpeed( speed );
 	}
 	
 	/**
@@ -115,15 +113,88 @@ abstract class Audio {
 	 * @param panning A number between -1.00f (left) and 1.00f (right). 0.00f is the default (center)
 	 */
 	public void setPanning( float panning ) {
-		soundThread.setPanning( panning );
+		voice.setPanning( panning );
 	}
 	
+	/**
+	 * Sets how important this sound is. When all channels are in use, playing a sound can stop a sound with
+	 * a lower priority to take its channel. The new priority is used the next time the sound is played.
+	 * @param priority Any number where higher means more important. 0 is the default.
+	 * @see JSoundSystem#setVoiceStealing(boolean)
+	 */
+	public void setPriority( int priority ){
+		voice.setPriority( priority );
+	}
+
+	/**
+	 * Returns how important this sound is, 0 by default
+	 */
+	public int getPriority(){
+		return voice.getPriority();
+	}
+
+	/**
+	 * Moves this sound to a bus, so that it is changed together with the other sounds on that bus.
+	 * Sounds play on the master bus by default.
+	 * @param bus The bus to play on
+	 * @throws IllegalArgumentException if bus is null
+	 * @see JSoundSystem#createBus(String)
+	 */
+	public void setBus( SoundBus bus ){
+		if( bus == null ) throw new IllegalArgumentException("Bus cannot be null.");
+		voice.setBus( bus );
+	}
+
+	/**
+	 * Returns the bus this sound plays on
+	 */
+	public SoundBus getBus(){
+		return voice.getBus();
+	}
+
+	/**
+	 * Sends a copy of this sound to a second bus, usually a bus with a reverb that many sounds share. The sound
+	 * still plays on its own bus as well. The copy is taken after the volume, panning and effects of this sound.
+	 * Sends only work in PlaybackMode.MIXER.
+	 * @param bus The bus to send to, or null to stop sending
+	 * @param level How loud the copy is, 1.00f is as loud as the sound itself
+	 * @see JSoundSystem#createReverb(java.io.File, int)
+	 */
+	public void setSend( SoundBus bus, float level ){
+		voice.setSend( bus, level );
+	}
+
+	/**
+	 * Returns the bus a copy of this sound is sent to, or null if it isn't sent anywhere
+	 */
+	public SoundBus getSendBus(){
+		return voice.getSendBus();
+	}
+
+	/**
+	 * Returns how loud the copy sent to the send bus is, 0.00f if the sound isn't sent anywhere
+	 */
+	public float getSendLevel(){
+		return voice.getSendLevel();
+	}
+
+	/**
+	 * Returns the effects of this sound, like filters or a compressor. They process the sound after its volume,
+	 * panning and speed are applied and before it is mixed into its bus. Clones and instances of this sound
+	 * start without effects, since an effect can only be used by one sound.
+	 * @see net.jsoundsystem.effects.BiquadFilter
+	 * @see net.jsoundsystem.effects.Compressor
+	 */
+	public EffectChain getEffects(){
+		return voice.getEffects();
+	}
+
 	/**
 	 * Disposes of this sound and frees all resources is uses. The audio object cannot be used anymore 
 	 * after this is done.
 	 */
 	public void dispose(){
-		soundThread.dispose();
+		voice.dispose();
 	}
 	
 	/**
@@ -131,6 +202,6 @@ abstract class Audio {
 	 * @return And AudioFormat object containing various information about this sound
 	 */
 	public AudioFormat getSoundFormat(){
-		return soundThread.getAudioFormat();
+		return voice.getAudioFormat();
 	}
 }
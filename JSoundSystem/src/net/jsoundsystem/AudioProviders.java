@@ -0,0 +1,279 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import javax.sound.sampled.spi.AudioFileReader;
+import javax.sound.sampled.spi.FormatConversionProvider;
+
+/**
+ * Opens and converts sound files like AudioSystem does, but remembers which provider handled them. AudioSystem
+ * asks every installed file reader in turn until one accepts the file, which means the file is opened and parsed
+ * by each of them. Here the reader that worked is remembered for the file extension and for the first bytes of
+ * the file, so the next file of the same type goes straight to the right reader. Format converters are remembered
+ * the same way, and the format of each file is kept so soundIsSupported() doesn't open it again.
+ * <p>
+ * Providers are tried in the same order AudioSystem uses, so the same provider is chosen for every file.
+ */
+final class AudioProviders {
+
+	//How many file formats are remembered
+	private static final int MAX_FILE_FORMATS = 256;
+
+	//How many bytes of a file identify its type
+	private static final int MAGIC_LENGTH = 12;
+
+	private final List<AudioFileReader> readers;
+	private final List<FormatConversionProvider> converters;
+
+	//Readers by file extension and by the first bytes of a file, converters by source and target format
+	private final Map<String, AudioFileReader> readerCache = new ConcurrentHashMap<String, AudioFileReader>();
+	private final Map<String, FormatConversionProvider> converterCache = new ConcurrentHashMap<String, FormatConversionProvider>();
+
+	//Sorted from least recently used to most recently used
+	private final LinkedHashMap<String, AudioFileFormat> fileFormats = new LinkedHashMap<String, AudioFileFormat>( 16, 0.75f, true );
+
+	/**
+	 * Does something with a file or stream using a reader
+	 */
+	private interface ReaderCall<T> {
+		T call( AudioFileReader reader ) throws UnsupportedAudioFileException, IOException;
+	}
+
+	AudioProviders() {
+		readers = loadProviders( AudioFileReader.class );
+		converters = loadProviders( FormatConversionProvider.class );
+	}
+
+	/**
+	 * Finds all installed providers of a type, in the order AudioSystem asks them
+	 */
+	private static <T> List<T> loadProviders( Class<T> type ) {
+		List<T> providers = new ArrayList<T>();
+		Iterator<T> iterator = ServiceLoader.load( type ).iterator();
+
+		while( true ) {
+			try {
+				if( !iterator.hasNext() ) break;
+
+				//AudioSystem asks the providers that were found last first
+				providers.add( 0, iterator.next() );
+			} catch( Throwable e ) {
+				//A broken provider, for example one that misses a library, is skipped just like AudioSystem does
+			}
+		}
+
+		return providers;
+	}
+
+	/**
+	 * Opens a sound file, works like AudioSystem.getAudioInputStream( File file )
+	 */
+	AudioInputStream open( final File file ) throws UnsupportedAudioFileException, IOException {
+		return read( getExtensionKey( file.getName() ), file, null, new ReaderCall<AudioInputStream>() {
+			public AudioInputStream call( AudioFileReader reader ) throws UnsupportedAudioFileException, IOException {
+				return reader.getAudioInputStream( file );
+			}
+		} );
+	}
+
+	/**
+	 * Opens a sound file that is already in memory, works like AudioSystem.getAudioInputStream( InputStream stream )
+	 * @param stream The contents of the file, must support mark and reset
+	 * @param name The name of the file, used to find the reader for its extension
+	 */
+	AudioInputStream open( final InputStream stream, String name ) throws UnsupportedAudioFileException, IOException {
+		return read( getExtensionKey( name ), null, stream, new ReaderCall<AudioInputStream>() {
+			public AudioInputStream call( AudioFileReader reader ) throws UnsupportedAudioFileException, IOException {
+				return reader.getAudioInputStream( stream );
+			}
+		} );
+	}
+
+	/**
+	 * Returns the format of a sound file, works like AudioSystem.getAudioFileFormat( File file ). The format is
+	 * remembered until the file changes.
+	 */
+	AudioFileFormat getFileFormat( final File file ) throws UnsupportedAudioFileException, IOException {
+		String key = file.getCanonicalPath() + "@" + file.lastModified();
+
+		synchronized( fileFormats ) {
+			AudioFileFormat format = fileFormats.get( key );
+			if( format != null ) return format;
+		}
+
+		AudioFileFormat format = read( getExtensionKey( file.getName() ), file, null, new ReaderCall<AudioFileFormat>() {
+			public AudioFileFormat call( AudioFileReader reader ) throws UnsupportedAudioFileException, IOException {
+				return reader.getAudioFileFormat( file );
+			}
+		} );
+
+		synchronized( fileFormats ) {
+			fileFormats.put( key, format );
+
+			Iterator<String> iterator = fileFormats.keySet().iterator();
+			while( fileFormats.size() > MAX_FILE_FORMATS ) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+
+		return format;
+	}
+
+	/**
+	 * Converts a stream into another format, works like AudioSystem.getAudioInputStream( AudioFormat, AudioInputStream )
+	 * @throws IllegalArgumentException if no converter supports the conversion
+	 */
+	AudioInputStream convert( AudioFormat targetFormat, AudioInputStream stream ) {
+		AudioFormat sourceFormat = stream.getFormat();
+		if( sourceFormat.matches( targetFormat ) ) return stream;
+
+		String key = sourceFormat + " > " + targetFormat;
+		FormatConversionProvider converter = converterCache.get( key );
+
+		if( converter == null ) {
+			for( FormatConversionProvider candidate : converters ) {
+				if( candidate.isConversionSupported( targetFormat, sourceFormat ) ) {
+					converter = candidate;
+					break;
+				}
+			}
+			if( converter == null ) throw new IllegalArgumentException( "Unsupported conversion: " + targetFormat + " from " + sourceFormat );
+			converterCache.put( key, converter );
+		}
+
+		return converter.getAudioInputStream( targetFormat, stream );
+	}
+
+	/**
+	 * Tries the reader remembered for the extension of the file, then the reader remembered for its first bytes
+	 * and finally every reader until one accepts the file
+	 * @param file The file the readers read from, or null if they read from stream
+	 * @param stream The stream the readers read from, it is reset after each reader that didn't accept it
+	 */
+	private <T> T read( String extension, File file, InputStream stream, ReaderCall<T> call ) throws UnsupportedAudioFileException, IOException {
+		AudioFileReader known = extension != null ? readerCache.get( extension ) : null;
+
+		if( known != null ) {
+			try {
+				return call.call( known );
+			} catch( UnsupportedAudioFileException e ) {
+				//The extension is lying, look at what's inside
+				if( stream != null ) stream.reset();
+			}
+		}
+
+		String magic = stream != null ? getMagicKey( stream ) : getMagicKey( file );
+		AudioFileReader byContent = readerCache.get( magic );
+		if( byContent != null && byContent != known ) {
+			try {
+				T result = call.call( byContent );
+				if( extension != null ) readerCache.put( extension, byContent );
+				return result;
+			} catch( UnsupportedAudioFileException e ) {
+				//Not the same type after all, ask everyone
+				if( stream != null ) stream.reset();
+			}
+		}
+
+		for( AudioFileReader reader : readers ) {
+			try {
+				T result = call.call( reader );
+				if( extension != null ) readerCache.put( extension, reader );
+				readerCache.put( magic, reader );
+				return result;
+			} catch( UnsupportedAudioFileException e ) {
+				//Try the next one
+				if( stream != null ) stream.reset();
+			}
+		}
+
+		throw new UnsupportedAudioFileException( "File of unsupported format" );
+	}
+
+	private static String getExtensionKey( String name ) {
+		int dot = name.lastIndexOf( '.' );
+		if( dot < 0 ) return null;
+		return name.substring( dot ).toLowerCase();
+	}
+
+	/**
+	 * Returns the type of a file as told by its first bytes. Container formats like WAVE and AIFF have the size
+	 * of the file in between, so for those the form type that follows it is used as well.
+	 */
+	private static String getMagicKey( File file ) throws IOException {
+		FileInputStream in = new FileInputStream( file );
+		try {
+			return getMagicKey( in );
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the type of a stream as told by its first bytes, the stream is reset to where it was
+	 */
+	private static String getMagicKey( InputStream in ) throws IOException {
+		byte[] magic = new byte[MAGIC_LENGTH];
+		int length = 0;
+
+		if( in.markSupported() ) in.mark( MAGIC_LENGTH );
+		while( length < magic.length ) {
+			int len = in.read( magic, length, magic.length - length );
+			if( len == -1 ) break;
+			length += len;
+		}
+		if( in.markSupported() ) in.reset();
+
+		StringBuilder key = new StringBuilder( "magic:" );
+		for( int i = 0; i < Math.min( length, 4 ); i++ ) key.append( String.format( "%02x", magic[i] ) );
+
+		String chunk = new String( magic, 0, Math.min( length, 4 ), "ISO-8859-1" );
+		if( length == MAGIC_LENGTH && (chunk.equals( "RIFF" ) || chunk.equals( "FORM" )) ) {
+			key.append( ':' ).append( new String( magic, 8, 4, "ISO-8859-1" ) );
+		}
+		return key.toString();
+	}
+}
@@ -28,48 +28,94 @@ THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package net.jsoundsystem;
 
-import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.FloatControl;
-import javax.sound.sampled.Line;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
-import net.jsoundsystem.utils.Vector3f;
+import net.jsoundsystem.output.AudioOutput;
 
 
-class AudioThread extends Thread {
+/**
+ * A voice that plays on its own audio line. While the sound is playing it runs as a task on the voice
+ * executor, a sound that is paused or stopped does not hold on to any thread.
+ * @see JSoundSystem#setVoiceExecutor(java.util.concurrent.Executor)
+ */
+class AudioThread implements Voice, Runnable, VoiceDsp.Source {
 
-	//Effect mixer modifiers. They are used in a bitmap so each much be a power of two
-	private static final int MIX_VOLUME 	=  	1 << 0;
-	private static final int MIX_PANNING 	= 	1 << 1;
-	private static final int MIX_SPEED 		=   1 << 2;
+	//Play 1024 frames at a time
+	private static final int BLOCK_FRAMES = 1024;
+
+	//Longest time in milliseconds to wait for room in the output buffer before checking if we are paused or stopped
+	private static final int MAX_WRITE_WAIT = 20;
+
+	//How many control changes can be waiting for the next block
+	private static final int CONTROL_QUEUE_SIZE = 64;
 
 	//Thread sound effects
-	private boolean looping, paused, stopped;
-	private boolean killThread;
+	private volatile boolean looping, paused, stopped;
+	private volatile boolean killThread;
+	private volatile boolean stolen;
+	private volatile boolean restart;
+	private volatile int priority;
+	private volatile SoundBus bus = JSoundSystem.getMasterBus();
+	private final EffectChain effects = new EffectChain();
+	private volatile SoundBus sendBus;
+	private volatile float sendLevel;
 	
-	private float volume;
-	private float panning;
-	private float speed;
+	//Latest values set by the caller
+	private volatile float volume;
+	private volatile float panning;
+	private volatile float speed;
+
+	//Control changes from the caller, applied by the playing task once per block
+	private final ControlQueue controls = new ControlQueue( CONTROL_QUEUE_SIZE );
+	private float mixVolume, mixPanning, mixSpeed;
+	private volatile float playedVolume = 1.00f;
+	private boolean mixLooping;
 	
 	//3D sound simulation
 	private boolean simulate3DEffect;
-	private Vector3f source;
+	private int spatialSlot;
 	private float lastVolume;
 
+	//Virtual voices are out of range and hold no channel, they only remember where and when they left
+	private volatile boolean virtual;
+	private boolean leavingRange;
+	private long virtualFrame, virtualSince;
+	private long seekFrame;
+
+	//Where a streamed sound loops, in frames
+	private volatile long loopStart, loopEnd = -1;
+
 	//Playback data
+	private final String name;
 	private AudioFormat soundFormat;
-	private byte[] soundData;
-	private File filePath;
-	private SourceDataLine audioChannel;
+	private AudioFormat outputFormat;
+	private SampleData soundData;
+	private boolean released;
+	private final SoundSource source;
+	private volatile AudioOutput audioChannel;
+
+	//Playback position, kept while the sound is paused
+	private volatile boolean running;
+	private volatile InputStream stream;
+
+	//The paused bus that will start our task again when it is resumed. Guarded by our lock.
+	private SoundBus heldBus;
+	private final AtomicLong underruns = new AtomicLong();
+	private int pendingLength;
+	private boolean lastBlock;
+
+	//Software signal path, allocated the first time the sound is played
+	private VoiceDsp dsp;
+	private float[] mixBuffer;
+	private byte[] audioBytes;
 
 	
 	/**
@@ -77,261 +123,658 @@ class AudioThread extends Thread {
 	 * @throws IOException 
 	 * @throws UnsupportedAudioFileException 
 	 */
-	AudioThread( File path, byte[] data, AudioFormat format ) throws UnsupportedAudioFileException, IOException {
-		super( path.getName() );
-		filePath = path;
-		setPriority( Thread.MIN_PRIORITY );		//Sounds have low priority
-		setDaemon(true);						//And run independently
+	AudioThread( SoundSource source, SampleData data, AudioFormat format ) throws UnsupportedAudioFileException, IOException {
+		name = source.getName();
+		this.source = source;
 		
 		//Set default values
 		volume = 1.00f;
 		speed = 1.00f;
 		panning = 0.00f;
+		stopped = true;
 		
-		//Get the audio format for this sound
+		//Get the audio format for this sound, it is always played as 16 bit stereo at its own sample rate
 		soundFormat = format;
 		soundData = data;
+		outputFormat = new AudioFormat( format.getSampleRate(), 16, 2, true, false );
 	}
 	
 	public void enableSpatializedSound(){
-		source = new Vector3f();
+		spatialSlot = JSoundSystem.getSpatializer().allocate();
 		simulate3DEffect = true;
 	}
 
-	protected void setLooped( boolean looping ){
+	public void setLooped( boolean looping ){
 		this.looping = looping;
+		controls.offer( ControlQueue.LOOP, looping ? 1 : 0 );
+	}
+
+	public void setLoopPoints( long startFrame, long endFrame ){
+		loopStart = startFrame;
+		loopEnd = endFrame;
 	}
 
-	protected void setPanning( float panning ){
+	public void takeSettings( Voice parent ){
+		AudioThread original = (AudioThread) parent;
+		setVolume( original.volume );
+		setPanning( original.panning );
+		setSpeed( original.speed );
+		setLooped( original.looping );
+		priority = original.priority;
+		bus = original.bus;
+		setSend( original.sendBus, original.sendLevel );
+		if( simulate3DEffect && original.simulate3DEffect ) {
+			JSoundSystem.getSpatializer().copyPosition( original.spatialSlot, spatialSlot );
+		}
+	}
+
+	public void setPanning( float panning ){
 		this.panning = panning;
-		mixSoundEffects( audioChannel, MIX_PANNING );
+		controls.offer( ControlQueue.PANNING, panning );
 	}
 
-	protected void setVolume( float volume ){
+	public void setVolume( float volume ){
 		this.volume = volume;
-		mixSoundEffects( audioChannel, MIX_VOLUME );
+		controls.offer( ControlQueue.VOLUME, volume );
 	}
 
-	protected void setSpeed( float speed ){
+	public void setSpeed( float speed ){
 		this.speed = speed;
-		mixSoundEffects( audioChannel, MIX_SPEED );
+		controls.offer( ControlQueue.SPEED, speed );
+	}
+
+	public String getName(){
+		return name;
+	}
+
+	public void setBus( SoundBus bus ){
+		this.bus = bus;
+
+		//A sound held by its old bus continues on the new one
+		synchronized( this ) {
+			if( heldBus == null || heldBus == bus ) return;
+			heldBus.unhold( this );
+		}
+		resumeFromBus();
+	}
+
+	public SoundBus getBus(){
+		return bus;
+	}
+
+	//Only the software mixer can send to a bus, we just remember it for clones
+	public void setSend( SoundBus bus, float level ){
+		sendLevel = bus == null ? 0 : Math.max( 0, level );
+		sendBus = bus;
+	}
+
+	public SoundBus getSendBus(){
+		return sendBus;
+	}
+
+	public float getSendLevel(){
+		return sendLevel;
+	}
+
+	public EffectChain getEffects(){
+		return effects;
+	}
+
+	public float getVolume(){
+		return volume;
+	}
+
+	public float getPlayedVolume(){
+		return playedVolume;
+	}
+
+	public void setPriority( int priority ){
+		this.priority = priority;
+	}
+
+	public int getPriority(){
+		return priority;
 	}
 
 	/**
-	 * Internal run function inherited from the Thread class. This is where the actual sound playing
+	 * Fades out and stops because our channel was given to another sound. A paused sound has no task that
+	 * notices this, so its line is given back from the executor. We cannot take our own lock here because
+	 * the sound that steals our channel might be holding its lock.
+	 */
+	public void steal(){
+		stolen = true;
+		if( running ) return;
+
+		JSoundSystem.getVoiceExecutor().execute( new Runnable() {
+			public void run() {
+				synchronized( AudioThread.this ) {
+					if( !running ) releaseStolenChannel();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the sound and gives back its line if its channel was stolen
+	 */
+	private void releaseStolenChannel() {
+		if( !stolen ) return;
+		stolen = false;
+		paused = false;
+		stopped = true;
+		releaseChannel();
+	}
+
+	/**
+	 * Internal run function executed by the voice executor. This is where the actual sound playing
 	 * happens. This function should not be run directly, but rather activated by the play() function.
+	 * It returns as soon as the sound is paused, stopped or finished.
 	 */
 	public void run() {
 
 		try {
+			while( true ) {
+				playSound();
 
-			//Keep data ready until we are disposed of
-			while( !killThread ){
-				
-				//Open and reserve a sound channel
-				DataLine.Info info = new DataLine.Info(SourceDataLine.class, soundFormat);
-				audioChannel = (SourceDataLine) AudioSystem.getLine(info);
-				audioChannel.open( soundFormat );
-				JSoundSystem.channelsPlaying++;
-				
-				//Ready the sound stream
-				InputStream stream = null;
-				
-				//It's a sound loaded into memory
-				if( soundData != null ) {
-					stream = new ByteArrayInputStream(soundData);
-					
-					//Use mark if supported
-					if( stream.markSupported() ) stream.mark( stream.available() );
-				}
+				synchronized( this ) {
 
-				//This might be do once or in infinity, depending on the loop variable
-				do{
-					//Reset sound and reopen a sound stream if needed
-					if( stream != null && stream.markSupported() ) stream.reset();
-					else {
-						//Need to reopen the sound to reset it
-						if( stream != null) stream.close();
-						stream = JSoundSystem.getAudioInputStream(filePath);
-						if( stream.markSupported() ) stream.mark( stream.available() );
-					}
+					//play() was called again or our bus was resumed while we were finishing up
+					if( !paused && !stopped && !killThread && !virtual && heldBus == null ) continue;
 
-					//begin playing
-					audioChannel.start();
-
-					//Apply various sound effects
-					mixSoundEffects( audioChannel, MIX_PANNING | MIX_VOLUME | MIX_SPEED );
-
-					//This actually plays the sound
-					int len = 0;					
-					int bytesPerFrame = soundFormat.getFrameSize();
-
-					// some audio formats may have unspecified frame size
-					// in that case we may read any amount of bytes
-					if (bytesPerFrame == AudioSystem.NOT_SPECIFIED) bytesPerFrame = 1;
-
-					// Set an arbitrary buffer size of 1024 frames.
-					int numBytes = 1024 * bytesPerFrame; 
-					byte[] audioBytes = new byte[numBytes];
-					
-					//Keep playing as long as there is data left and sound has not been stopped
-					while ( !stopped && (len = stream.read(audioBytes) ) != -1 ) {
-						
-						//Pause until we are told to continue
-						if( paused ) sleepThread();
-						
-						//Update 3D sound effects
-						if( simulate3DEffect ) update3DSound();
-
-						audioChannel.write(audioBytes, 0, len);					
-					}
+					releaseStolenChannel();
 
-					//Finish the rest of the data
-					if( !stopped ) audioChannel.drain();
-
-					//Release resources
-					audioChannel.stop();
-					stream.close();
+					running = false;
+					if( !virtual ) return;
 				}
-				while( looping && !stopped );
-
-				audioChannel.close();
-				audioChannel = null;
-				JSoundSystem.channelsPlaying--;
 
-				//Pause until further notice
-				sleepThread();
-			} 
+				registerVirtual();
+				return;
+			}
 		} catch(LineUnavailableException e){
-			System.err.println("Could not play sound ("+ getName() +"): Audio Drivers doesnt support more than " + JSoundSystem.channelsPlaying + "sound channels.");
+			JSoundSystem.getMetricsCollector().playbackFailed();
+			System.err.println("Could not play sound ("+ getName() +"): Audio Drivers doesnt support more than " + JSoundSystem.getSoundsPlaying() + "sound channels.");
 		} catch (Exception e)  {
+			JSoundSystem.getMetricsCollector().playbackFailed();
 			System.err.println("Error playing sound ("+ getName() +"): " + e);
 			e.printStackTrace();
 		}
-		
-		//This thread should be killed now
+
+		//Something went wrong, give everything back
+		synchronized( this ) {
+			stopped = true;
+			releaseChannel();
+			running = false;
+		}
 	}
 
-	private void sleepThread(){
-		if( killThread ) return;
-		paused = true;
+	/**
+	 * Plays the sound until it is paused, stopped or finished. A paused sound keeps its channel and position,
+	 * a stopped or finished sound gives back its channel.
+	 */
+	private void playSound() throws Exception {
 
-		//This causes the thread to sleep until a notify() is called
-		synchronized (this) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		//We might have been paused or stopped while waiting for the executor, a stopped sound gives back
+		//the channel that play() reserved
+		if( paused || stopped ) {
+			synchronized( this ) {
+				if( stopped ) releaseChannel();
+			}
+			return;
+		}
+
+		//Open a sound channel, play() already reserved it for us
+		if( audioChannel == null ) audioChannel = JSoundSystem.getOutputPool().acquire( outputFormat );
+
+		//Buffers are kept for the lifetime of the voice
+		if( dsp == null ) {
+			dsp = new VoiceDsp( this, soundFormat, BLOCK_FRAMES );
+			mixBuffer = new float[BLOCK_FRAMES * 2];
+			audioBytes = new byte[BLOCK_FRAMES * 4];
+		}
+
+		//begin playing, anything still queued is older than the latest values
+		audioChannel.start();
+		drainControls();
+		reloadControls();
+
+		//Keep playing as long as there is data left and sound has not been stopped
+		while( !paused && !stopped ) {
+
+			//Stopped and played again before we noticed, start over from the beginning
+			if( restart ) {
+				synchronized( this ) {
+					resetStream();
+				}
+				audioChannel.flush();
+			}
+
+			//Mix the next block
+			if( pendingLength == 0 ) {
+
+				//Finish the rest of the data
+				if( lastBlock ) {
+					audioChannel.drain();
+					stopped = true;
+					break;
+				}
+
+				//Our bus is paused, hold the sound where it is and give back the thread but not the channel.
+				//The bus starts our task again when it is resumed.
+				SoundBus currentBus = bus;
+				if( currentBus.isCombinedPaused() && !stolen ) {
+					boolean held;
+					synchronized( this ) {
+						held = currentBus.hold( this );
+						if( held ) heldBus = currentBus;
+					}
+					if( held ) break;
+				}
+
+				//Apply all control changes made since the last block at once
+				drainControls();
+
+				//Update 3D sound effects, sounds that are out of range become virtual
+				if( simulate3DEffect ) {
+					update3DSound();
+					if( canBecomeVirtual() ) {
+						leavingRange = true;
+						break;
+					}
+				}
+				playedVolume = mixVolume * currentBus.getCombinedGain();
+				dsp.setGain( playedVolume, mixPanning );
+				JSoundSystem.updateChannel( this );
+
+				//Our channel was given to a more important sound, fade out and stop
+				if( stolen ) {
+					dsp.fadeOut();
+					lastBlock = true;
+				}
+
+				Arrays.fill( mixBuffer, 0 );
+				int frames = dsp.mix( mixBuffer, BLOCK_FRAMES, mixSpeed );
+				effects.process( mixBuffer, frames, outputFormat.getSampleRate() );
+
+				//This was the end of the sound
+				if( frames < BLOCK_FRAMES ) lastBlock = true;
+
+				VoiceDsp.toPcm16( mixBuffer, frames * 2, audioBytes );
+				pendingLength = frames * 4;
+				if( pendingLength == 0 ) continue;
+			}
+
+			//Wait for room instead of blocking in write(), so that a paused sound gives back its thread
+			int available = audioChannel.available();
+			if( available < pendingLength ) {
+				Thread.sleep( getWriteWait( pendingLength - available ) );
+				continue;
+			}
+
+			audioChannel.write( audioBytes, 0, pendingLength );
+			pendingLength = 0;
+		}
+
+		//Stopped sounds give back their channel, unless play() was called again in the meantime
+		synchronized( this ) {
+			if( stopped ) releaseChannel();
+			else if( paused || heldBus != null ) audioChannel.stop();
+			else if( leavingRange ) {
+				virtualFrame = getCursor();
+				virtualSince = System.nanoTime();
+				virtual = true;
+				releaseChannel();
 			}
+			leavingRange = false;
 		}
 	}
 
-	private void resumeThread(){
-		//No need to wake up if we are not sleeping
-		if( !paused || killThread ) return;
+	/**
+	 * Returns true if we are out of range and can continue as a virtual voice
+	 */
+	private boolean canBecomeVirtual() {
+		return lastVolume == 0 && soundData != null && !stolen && !lastBlock && JSoundSystem.isVoiceVirtualization();
+	}
 
-		synchronized (this) {
-			this.notifyAll();	//Wake up!
-			paused = false;
+	/**
+	 * Returns true if we can start playing as a virtual voice because we are out of range
+	 */
+	private boolean canStartVirtual() {
+		return simulate3DEffect && soundData != null && JSoundSystem.isVoiceVirtualization()
+				&& !JSoundSystem.getSpatializer().isInRange( spatialSlot );
+	}
 
-			if( audioChannel != null ) audioChannel.start();
+	/**
+	 * Lets the virtualizer bring us back once we are in range again
+	 */
+	private void registerVirtual() {
+		float[] position = JSoundSystem.getSpatializer().getPosition( spatialSlot );
+		JSoundSystem.getVirtualizer().add( this, position[0], position[1], position[2] );
+	}
+
+	/**
+	 * Returns the frame that will be played next
+	 */
+	private long getCursor() {
+		if( !(stream instanceof SampleInputStream) ) return seekFrame;
+		int position = ((SampleInputStream) stream).position() - dsp.getBufferedBytes();
+		return Math.max( 0, position / soundFormat.getFrameSize() );
+	}
+
+	/**
+	 * Works out where we would be playing by now. Must be called while holding our lock.
+	 * @return The current frame or -1 if the sound has ended
+	 */
+	private long getVirtualCursor() {
+		long totalFrames = soundData.data.limit() / soundFormat.getFrameSize();
+		return VoiceVirtualizer.advance( virtualFrame, virtualSince, speed, soundFormat, totalFrames, looping );
+	}
+
+	/**
+	 * Stops being virtual without playing, a paused sound continues where it would have been by now.
+	 * Must be called while holding our lock.
+	 */
+	private void leaveVirtual() {
+		if( !virtual ) return;
+		virtual = false;
+		JSoundSystem.getVirtualizer().remove( this );
+
+		long frame = getVirtualCursor();
+		if( frame >= 0 ) seekFrame = frame;
+		else {
+			stopped = true;
+			seekFrame = 0;
 		}
 	}
 
 	/**
-	 * Begins playing the sound or resumes if it was paused
+	 * Called by our bus when it is resumed after it held us, plays on unless the sound was paused or
+	 * stopped in the meantime
 	 */
-	protected void play(){
-		if( killThread ) return;
-		stopped = false;
+	void resumeFromBus() {
+		synchronized( this ) {
+			heldBus = null;
 
-		//Begin playing for the first time
-		if( !this.isAlive() ){
-			start();
-			return;
+			//The task has not finished yet and simply keeps playing
+			if( running || paused || stopped || killThread || virtual ) return;
+			running = true;
 		}
 
-		//Already playing, try to unpause
-		resumeThread();		
+		startTask();
 	}
 
-	protected void pause() {
-		paused = true;
-		if( audioChannel != null ) audioChannel.stop();
+	public boolean resumeFromVirtual() {
+		synchronized( this ) {
+			if( !virtual ) return true;
+
+			//Paused, stopped or finished while we were virtual
+			if( paused || stopped || killThread || getVirtualCursor() < 0 ) {
+				leaveVirtual();
+				return true;
+			}
+
+			if( !JSoundSystem.reserveChannel( this ) ) return false;
+			seekFrame = getVirtualCursor();
+			virtual = false;
+			running = true;
+		}
+
+		startTask();
+		return true;
 	}
 
-	protected void dispose(){
-		stopped = true;
-		killThread = true;
+	/**
+	 * Takes all control changes from the queue. Must only be called by the playing task.
+	 */
+	private void drainControls() {
+		boolean overflowed = controls.checkOverflow();
+
+		for( int command; (command = controls.poll()) != ControlQueue.NONE; ) {
+			switch( command ) {
+				case ControlQueue.VOLUME:	mixVolume = controls.value(); break;
+				case ControlQueue.PANNING:	mixPanning = controls.value(); break;
+				case ControlQueue.SPEED:	mixSpeed = controls.value(); break;
+				case ControlQueue.LOOP:		mixLooping = controls.value() != 0; break;
+			}
+		}
+
+		//Some changes were dropped, so take the latest values instead
+		if( overflowed ) reloadControls();
 	}
-	
+
 	/**
-	 * JJ> This updates sound mixer effects like volume and sound balance to an active audio channel
-	 * @param line Which audio line to update
-	 * @param effects A bitmask with the effects to update
+	 * Takes the latest control values set by the caller
 	 */
-	private void mixSoundEffects( Line line, int effects ) {
-		
-		//No need to mix something that isn't playing
-		if( audioChannel == null ) return;
-					
-		//Adjust sound speed
-		if( (effects & MIX_SPEED) != 0 && line.isControlSupported(FloatControl.Type.SAMPLE_RATE) ) {
-			FloatControl gainControl = (FloatControl)line.getControl(FloatControl.Type.SAMPLE_RATE);
-			float sampleRate = soundFormat.getFrameRate() * speed;
-			sampleRate = Math.max(gainControl.getMinimum(), Math.min(sampleRate, gainControl.getMaximum()));
-			gainControl.setValue(sampleRate);
+	private void reloadControls() {
+		mixVolume = volume;
+		mixPanning = panning;
+		mixSpeed = speed;
+		mixLooping = looping;
+	}
+
+	/**
+	 * Returns how many milliseconds it takes until the output has consumed the specified number of bytes
+	 */
+	private long getWriteWait( int bytes ) {
+		float bytesPerMillisecond = outputFormat.getFrameRate() * outputFormat.getFrameSize() / 1000.0f;
+		if( bytesPerMillisecond <= 0 ) return 1;
+		return Math.max( 1, Math.min( (long)Math.ceil( bytes / bytesPerMillisecond ), MAX_WRITE_WAIT ) );
+	}
+
+	/**
+	 * Reads raw data from the sound stream for the DSP, looping the sound if needed
+	 */
+	public int readSamples( byte[] buffer, int offset, int length ) throws Exception {
+		if( stream == null ) openStream();
+
+		//Continue where a virtual or paused sound would have been
+		if( seekFrame > 0 ) {
+			stream.skip( seekFrame * soundFormat.getFrameSize() );
+			seekFrame = 0;
 		}
-		
-		//Adjust sound balance
-		if( (effects & MIX_PANNING) != 0 && line.isControlSupported(FloatControl.Type.PAN) ) {
-			FloatControl gainControl = (FloatControl)line.getControl(FloatControl.Type.PAN);
-			panning = Math.max(gainControl.getMinimum(), Math.min(panning, gainControl.getMaximum()));
-			gainControl.setValue(panning);
+
+		//Streamed sounds loop in their decoder, so the loop has no gap
+		if( stream instanceof StreamBuffer ) ((StreamBuffer) stream).setLoop( mixLooping && !stolen, loopStart, loopEnd );
+
+		int len = stream.read( buffer, offset, length );
+		if( len == -1 && mixLooping && !stolen ) {
+
+			//Start over from the beginning
+			rewindStream();
+			if( stream == null ) openStream();
+			len = stream.read( buffer, offset, length );
 		}
 
-		//Set sound volume
-		if( (effects & MIX_VOLUME) != 0 && line.isControlSupported(FloatControl.Type.MASTER_GAIN) ) {
-			FloatControl gainControl = (FloatControl)line.getControl(FloatControl.Type.MASTER_GAIN);	
-			float gain = (float)(Math.log(volume)/Math.log(10.0f)*20.0f);
-			gain = Math.max(gainControl.getMinimum(), Math.min(gain, gainControl.getMaximum()));
-			gainControl.setValue(gain);	
+		//Looping was switched on after the decoder had finished, start decoding the loop again right away
+		else if( mixLooping && stream instanceof StreamBuffer ) ((StreamBuffer) stream).prepareRestart();
+
+		return len;
+	}
+
+	private void openStream() throws Exception {
+
+		//It's a sound loaded into memory
+		if( soundData != null ) {
+			stream = new SampleInputStream(soundData.data);
+			stream.mark( stream.available() );
 		}
+
+		//Streamed sounds are decoded ahead by a decoder thread
+		else stream = new StreamBuffer( source, soundFormat, JSoundSystem.getStreamBufferTime(), underruns,
+				!JSoundSystem.getOutputBackend().isRealtime() );
 	}
 
-	protected boolean isPlaying() {
+	/**
+	 * Resets the sound to the beginning, memory sounds are simply reset while streamed sounds continue
+	 * with a buffer that decodes from the loop start
+	 */
+	private void rewindStream() throws Exception {
+		if( soundData != null ) stream.reset();
+		else stream = ((StreamBuffer) stream).restart();
+	}
+
+	/**
+	 * Closes the sound stream and gives back the sound channel. Must only be called while
+	 * no task is playing this sound.
+	 */
+	private void releaseChannel() {
+		resetStream();
+
+		if( heldBus != null ) {
+			heldBus.unhold( this );
+			heldBus = null;
+		}
+
+		if( audioChannel != null ) {
+			JSoundSystem.getOutputPool().release( audioChannel );
+			audioChannel = null;
+		}
+
+		JSoundSystem.freeChannel( this );
+	}
+
+	/**
+	 * Closes the sound stream so that the sound plays from the beginning next time
+	 */
+	private void resetStream() {
+		if( stream != null ) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			stream = null;
+		}
+		pendingLength = 0;
+		lastBlock = false;
+		seekFrame = 0;
+		restart = false;
+		if( dsp != null ) dsp.reset();
+		effects.reset();
+	}
+
+	/**
+	 * Begins playing the sound or resumes if it was paused
+	 */
+	public boolean play(){
+		boolean startVirtual = false;
+
+		synchronized( this ) {
+			if( killThread ) return false;
+
+			//Still playing, just out of range
+			if( virtual ) return true;
+
+			//Sounds out of range start as virtual voices without taking a channel
+			if( !running && canStartVirtual() ) {
+				virtualFrame = getCursor();
+				virtualSince = System.nanoTime();
+				releaseChannel();
+				startVirtual = true;
+				virtual = true;
+			}
+
+			//No free channels to start a new sound
+			else if( !JSoundSystem.reserveChannel( this ) ) return false;
+
+			//Stopped, but the playing task has not finished yet
+			if( running && stopped ) restart = true;
+
+			stolen = false;
+			stopped = false;
+			paused = false;
+
+			//Already playing
+			if( running ) return true;
+			if( !startVirtual ) running = true;
+
+			//Our task checks again if the bus is still paused
+			if( heldBus != null ) {
+				heldBus.unhold( this );
+				heldBus = null;
+			}
+		}
+
+		if( startVirtual ) registerVirtual();
+		else startTask();
+		return true;
+	}
+
+	/**
+	 * Hands the sound to the voice executor, running must already be set
+	 */
+	private void startTask() {
+		try {
+			JSoundSystem.getVoiceExecutor().execute( this );
+		} catch( RuntimeException e ) {
+			synchronized( this ) {
+				stopped = true;
+				running = false;
+				releaseChannel();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Pauses the sound. The playing task stops the line at the end of the current block.
+	 */
+	public void pause() {
+		paused = true;
+
+		//A virtual sound remembers where it would have been by now
+		if( virtual ) {
+			synchronized( this ) {
+				leaveVirtual();
+			}
+		}
+	}
+
+	public void dispose(){
+		stopPlaying();
+		killThread = true;
+
+		//Give the sound data and 3D slot back
+		synchronized( this ) {
+			if( released ) return;
+			released = true;
+		}
+		if( simulate3DEffect ) JSoundSystem.getSpatializer().free( spatialSlot );
+		if( soundData != null ) JSoundSystem.getSampleCache().release( soundData );
+	}
+	
+	public boolean isPlaying() {
 		return !paused && !stopped;
 	}
 
-	protected void stopPlaying(){
-		resumeThread();
-		stopped = true;
-		
-		if( audioChannel != null ){
-			audioChannel.stop();
-			audioChannel.flush();
+	public void stopPlaying(){
+		synchronized( this ) {
+			stopped = true;
+			leaveVirtual();
+
+			//Nobody is playing, so we have to give back the channel of a paused sound ourselves,
+			//otherwise the playing task gives it back at the end of the current block
+			if( !running ) releaseChannel();
 		}
 	}
 
+	/**
+	 * Takes the volume and panning computed for our position by the last spatial pass
+	 */
 	private void update3DSound() {
-		Vector3f listenerPosition = JSoundSystem.getListenerPosition();
-		float distance = listenerPosition.getDistance(source);
-		
-        //Calculate how loud the sound is
-		float newVolume = (JSoundSystem.maxDistance - distance) / JSoundSystem.maxDistance;
-	    if (newVolume <= 0) newVolume = 0;
-
-        //Calculate if the sound is left or right oriented
-        float newPanning = (2.00f/JSoundSystem.maxDistance) * -(listenerPosition.x - source.x);
-        
-        //Now actually update the effects
-        setVolume( (newVolume + lastVolume) / 2);
-        setPanning( newPanning );
-        lastVolume = newVolume;
+		Spatializer spatializer = JSoundSystem.getSpatializer();
+		spatializer.updateIfDue();
+		float newVolume = spatializer.getVolume( spatialSlot );
+
+		//Now actually update the effects
+		mixVolume = (newVolume + lastVolume) / 2;
+		mixPanning = spatializer.getPanning( spatialSlot );
+		lastVolume = newVolume;
 	}
 	
-	protected void setSourcePosition( Vector3f pos ){
-		source = pos;
+	public void setSourcePosition( float x, float y, float z ){
+		if( !simulate3DEffect ) return;
+		JSoundSystem.getSpatializer().setPosition( spatialSlot, x, y, z );
+		if( virtual ) JSoundSystem.getVirtualizer().move( this, x, y, z );
 	}
 
 	public boolean isPaused() {
@@ -346,7 +789,7 @@ class AudioThread extends Thread {
 		
 		//Try to clone the actual thread
 		try {
-			copy = new AudioThread( filePath, soundData, soundFormat );
+			copy = new AudioThread( source, soundData, soundFormat );
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
@@ -356,7 +799,18 @@ class AudioThread extends Thread {
 		copy.volume = this.volume;
 		copy.looping = this.looping;
 		copy.speed = this.speed;
-		copy.source = new Vector3f(source);
+		copy.priority = this.priority;
+		copy.bus = this.bus;
+		copy.setSend( this.sendBus, this.sendLevel );
+		copy.loopStart = this.loopStart;
+		copy.loopEnd = this.loopEnd;
+		if( simulate3DEffect ) {
+			copy.enableSpatializedSound();
+			JSoundSystem.getSpatializer().copyPosition( spatialSlot, copy.spatialSlot );
+		}
+		
+		//The copy shares our sound data
+		if( soundData != null ) JSoundSystem.getSampleCache().retain( soundData );
 		
 		//Finished cloning
 		return copy;
@@ -365,6 +819,16 @@ class AudioThread extends Thread {
 	public AudioFormat getAudioFormat() {
 		return soundFormat;
 	}
+
+	public float getBufferFill() {
+		if( soundData != null ) return 1;
+		InputStream current = stream;
+		return current instanceof StreamBuffer ? ((StreamBuffer) current).getFill() : 0;
+	}
+
+	public long getUnderruns() {
+		return underruns.get();
+	}
 	
 	
 	public void invertSoundData(){
@@ -372,12 +836,14 @@ class AudioThread extends Thread {
 		//the array itself. Others might be using the old non-inversed array through
 		//the clone() method. Slower, but it's safe.
 		
-		byte[] inverseData = new byte[soundData.length];
+		ByteBuffer data = soundData.data;
+		byte[] inverseData = new byte[data.limit()];
 		
-		for( int i = 0; i < soundData.length; i++ ){
-			inverseData[soundData.length-i-1] = soundData[i];
+		for( int i = 0; i < inverseData.length; i++ ){
+			inverseData[inverseData.length-i-1] = data.get(i);
 		}
 		
-		soundData = inverseData;
+		JSoundSystem.getSampleCache().release( soundData );
+		soundData = new SampleData( null, ByteBuffer.wrap(inverseData), soundFormat );
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the limited number of sound channels. Taking a free channel is a single atomic step. When all
+ * channels are in use, a sound with a higher priority can steal the channel of the voice with the lowest
+ * priority, the lowest volume or the oldest start, in that order. Voices holding a channel are kept sorted
+ * in a skip list, so finding and stealing a channel takes O(log n). The volume used for sorting is the one
+ * a voice was last played with, rounded to steps of about 1.5 dB. Voices report it after every block and
+ * are only sorted again when it moves to another step, so 3D sounds don't re-sort the list on every block.
+ * <p>
+ * A voice must never reserve, update or free its channel at the same time, voices only update their channel
+ * from the thread that plays them and use their own lock for the rest.
+ */
+class ChannelAllocator {
+
+	//Channel permits
+	private final AtomicInteger channelsInUse = new AtomicInteger();
+	private final AtomicInteger peakChannels = new AtomicInteger();
+	private volatile int maxChannels = 32;
+
+	//Voices holding a channel, sorted from the first to the last one to be stolen
+	private final ConcurrentSkipListSet<Entry> holders = new ConcurrentSkipListSet<Entry>();
+	private final ConcurrentHashMap<Voice, Entry> entries = new ConcurrentHashMap<Voice, Entry>();
+	private final AtomicLong sequence = new AtomicLong();
+	private volatile boolean stealingEnabled = true;
+
+	//Statistics
+	private final AtomicLong refusals = new AtomicLong();
+	private final AtomicLong steals = new AtomicLong();
+
+	/**
+	 * Reserves a channel for a voice that starts playing. Does nothing if the voice already holds one.
+	 * @return false if all channels are in use and none could be stolen
+	 */
+	boolean reserve( Voice voice ) {
+		if( entries.containsKey( voice ) ) return true;
+
+		Entry entry = new Entry( voice, voice.getPriority(), volumeStep( voice.getPlayedVolume() ), sequence.incrementAndGet() );
+		if( tryAcquire() || (stealingEnabled && steal( entry )) ) {
+			entries.put( voice, entry );
+			holders.add( entry );
+			return true;
+		}
+
+		refusals.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Sorts a voice again after its priority or played volume changed. Does nothing if the voice doesn't
+	 * hold a channel or if it still has the same place in the steal order.
+	 */
+	void update( Voice voice ) {
+		Entry entry = entries.get( voice );
+		if( entry == null ) return;
+
+		int priority = voice.getPriority();
+		int step = volumeStep( voice.getPlayedVolume() );
+		if( priority == entry.priority && step == entry.volumeStep ) return;
+
+		//The voice keeps its start, so it stays behind older voices with the same priority and volume
+		Entry updated = new Entry( voice, priority, step, entry.sequence );
+		if( !entries.replace( voice, entry, updated ) ) return;
+
+		//A steal that took the old entry owns the channel now
+		if( holders.remove( entry ) ) holders.add( updated );
+		else entries.remove( voice, updated );
+	}
+
+	/**
+	 * Rounds a volume to steps of about 1.5 dB, louder volumes give higher steps. The step is the exponent
+	 * and the two highest mantissa bits of the float, which keeps the order of positive floats.
+	 */
+	static int volumeStep( float volume ) {
+		return Float.floatToIntBits( Math.max( 0, volume ) ) >> 21;
+	}
+
+	/**
+	 * Takes the channel of the first voice in the steal order if it has a lower priority
+	 * @return true if a channel was taken over
+	 */
+	private boolean steal( Entry entry ) {
+		while( true ) {
+			Entry victim;
+			try {
+				victim = holders.first();
+			} catch( NoSuchElementException e ) {
+				return false;
+			}
+
+			//Only steal from voices that are less important
+			if( victim.priority >= entry.priority ) return false;
+
+			//Someone else freed or stole this channel first, try the next one
+			if( !holders.remove( victim ) ) continue;
+
+			//The channel now belongs to the new voice, so the victim must not free it again
+			entries.remove( victim.voice, victim );
+			steals.incrementAndGet();
+			victim.voice.steal();
+			return true;
+		}
+	}
+
+	/**
+	 * Gives back the channel of a voice. Does nothing if the voice doesn't hold a channel or if it was stolen.
+	 */
+	void free( Voice voice ) {
+		Entry entry = entries.remove( voice );
+		if( entry != null && holders.remove( entry ) ) channelsInUse.decrementAndGet();
+	}
+
+	/**
+	 * Takes a free channel in one atomic step
+	 */
+	private boolean tryAcquire() {
+		while( true ) {
+			int inUse = channelsInUse.get();
+			if( inUse >= maxChannels ) return false;
+
+			if( channelsInUse.compareAndSet( inUse, inUse + 1 ) ) {
+				updatePeak( inUse + 1 );
+				return true;
+			}
+		}
+	}
+
+	private void updatePeak( int inUse ) {
+		int peak;
+		while( inUse > (peak = peakChannels.get()) ) {
+			if( peakChannels.compareAndSet( peak, inUse ) ) return;
+		}
+	}
+
+	int getChannelsInUse() {
+		return channelsInUse.get();
+	}
+
+	int getPeakChannels() {
+		return peakChannels.get();
+	}
+
+	int getMaxChannels() {
+		return maxChannels;
+	}
+
+	void setMaxChannels( int amount ) {
+		maxChannels = amount;
+	}
+
+	boolean isStealingEnabled() {
+		return stealingEnabled;
+	}
+
+	void setStealingEnabled( boolean enabled ) {
+		stealingEnabled = enabled;
+	}
+
+	long getRefusals() {
+		return refusals.get();
+	}
+
+	long getSteals() {
+		return steals.get();
+	}
+
+	/**
+	 * A voice holding a channel. Entries never change, a voice that changed gets a new entry.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		final Voice voice;
+		final int priority;
+		final int volumeStep;
+		final long sequence;
+
+		Entry( Voice voice, int priority, int volumeStep, long sequence ){
+			this.voice = voice;
+			this.priority = priority;
+			this.volumeStep = volumeStep;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Lowest priority first, then the quietest, then the oldest
+		 */
+		public int compareTo( Entry other ) {
+			if( priority != other.priority ) return priority < other.priority ? -1 : 1;
+			if( volumeStep != other.volumeStep ) return volumeStep < other.volumeStep ? -1 : 1;
+			if( sequence != other.sequence ) return sequence < other.sequence ? -1 : 1;
+			return 0;
+		}
+	}
+}
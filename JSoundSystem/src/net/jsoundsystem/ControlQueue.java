@@ -0,0 +1,145 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free queue that carries control changes such as volume, panning and speed from any
+ * thread to the single thread that plays a voice. Offering a command never allocates or blocks, the
+ * playing side drains the queue once per block so all changes of a block are applied together.
+ * <p>
+ * If the queue is full the command is dropped and the queue is marked as overflowed. The caller keeps
+ * the latest values in its own fields, so the playing side simply reloads all of them in that case.
+ */
+class ControlQueue {
+
+	//Commands
+	static final int NONE 		= -1;
+	static final int VOLUME 	=  0;
+	static final int PANNING 	=  1;
+	static final int SPEED 		=  2;
+	static final int LOOP 		=  3;
+
+	//Ring buffer slots, each slot has a sequence number that tells if it can be written or read
+	private final int mask;
+	private final AtomicLongArray sequence;
+	private final int[] commands;
+	private final float[] values;
+
+	//Next slot to write, shared by all producers
+	private final AtomicLong tail = new AtomicLong();
+	private volatile boolean overflowed;
+
+	//Next slot to read, only used by the consumer
+	private long head;
+	private float value;
+
+	/**
+	 * @param capacity How many commands can be waiting, rounded up to a power of two
+	 */
+	ControlQueue( int capacity ) {
+		int size = Integer.highestOneBit( Math.max( 2, capacity - 1 ) ) << 1;
+		mask = size - 1;
+		sequence = new AtomicLongArray( size );
+		commands = new int[size];
+		values = new float[size];
+
+		for( int i = 0; i < size; i++ ) {
+			sequence.set( i, i );
+		}
+	}
+
+	/**
+	 * Adds a command to the queue. Safe to call from any number of threads at the same time.
+	 * @return false if the queue was full and the command was dropped
+	 */
+	boolean offer( int command, float value ) {
+		long position;
+		int index;
+
+		while( true ) {
+			position = tail.get();
+			index = (int)position & mask;
+			long difference = sequence.get( index ) - position;
+
+			//The slot is free, try to claim it
+			if( difference == 0 ) {
+				if( tail.compareAndSet( position, position + 1 ) ) break;
+			}
+
+			//The consumer has not read this slot yet, so the queue is full
+			else if( difference < 0 ) {
+				overflowed = true;
+				return false;
+			}
+		}
+
+		commands[index] = command;
+		values[index] = value;
+
+		//Publish the slot to the consumer
+		sequence.lazySet( index, position + 1 );
+		return true;
+	}
+
+	/**
+	 * Takes the next command from the queue. Must only be called by the thread that plays the voice.
+	 * @return The command, or NONE if the queue is empty. The value is returned by value().
+	 */
+	int poll() {
+		int index = (int)head & mask;
+		if( sequence.get( index ) != head + 1 ) return NONE;
+
+		int command = commands[index];
+		value = values[index];
+
+		//Free the slot for the producers of the next lap
+		sequence.lazySet( index, head + mask + 1 );
+		head++;
+		return command;
+	}
+
+	/**
+	 * Returns the value of the last command returned by poll()
+	 */
+	float value() {
+		return value;
+	}
+
+	/**
+	 * Returns true if commands were dropped since the last call. Should be checked before draining the queue.
+	 */
+	boolean checkOverflow() {
+		if( !overflowed ) return false;
+		overflowed = false;
+		return true;
+	}
+}
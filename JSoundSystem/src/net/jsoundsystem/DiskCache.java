@@ -0,0 +1,291 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Keeps decoded sounds in a directory, so they don't have to be decoded again the next time the program starts.
+ * Each sound file gets one cache file with a header that describes the decoded format and the sound file it was
+ * decoded from, followed by the PCM data. Cached sounds are mapped into memory instead of being read.
+ * <p>
+ * A cache file is used as long as the sound file has the same length and modification time. If only the
+ * modification time changed, for example after copying or checking out the files again, the contents of the sound
+ * file are compared by their hash. Cache files are written under a temporary name and then renamed, so other
+ * programs using the same directory at the same time only ever see complete cache files.
+ * @see JSoundSystem#setDiskCacheDirectory(File)
+ */
+final class DiskCache {
+
+	//"JSPC" followed by the version of the cache file layout and the decoder
+	private static final int MAGIC = 0x4A535043;
+	private static final int VERSION = 2;
+
+	//The header has a fixed size, the PCM data starts right after it
+	private static final int HEADER_SIZE = 128;
+	private static final int HASH_LENGTH = 20;
+	private static final int MAX_ENCODING_LENGTH = 40;
+
+	private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	private final File directory;
+
+	/**
+	 * Identifies the contents of a sound file at the time it was decoded
+	 */
+	static final class Source {
+		final long length, lastModified;
+		final byte[] hash;
+
+		Source( long length, long lastModified, byte[] hash ){
+			this.length = length;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+
+	DiskCache( File directory ){
+		this.directory = directory;
+	}
+
+	File getDirectory(){
+		return directory;
+	}
+
+	/**
+	 * Describes a sound file so a decoded version of it can be stored. Must be called before decoding it,
+	 * so a file that changes while it is being decoded is decoded again next time.
+	 */
+	static Source describe( File file ) throws IOException {
+		long length = file.length();
+		long lastModified = file.lastModified();
+		return new Source( length, lastModified, hash( file ) );
+	}
+
+	/**
+	 * Returns the cached sound data of a file, or null if it isn't cached or the cache file is out of date
+	 * @param key The sample cache key the data is created with
+	 */
+	SampleData load( File file, String key ) {
+		File entry = getEntry( file );
+		if( !entry.isFile() ) return null;
+
+		try {
+			RandomAccessFile in = new RandomAccessFile( entry, "r" );
+			try {
+				FileChannel channel = in.getChannel();
+				ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+				while( header.hasRemaining() && channel.read( header ) != -1 );
+				if( header.hasRemaining() ) return null;
+				header.flip();
+
+				if( header.getInt() != MAGIC || header.getInt() != VERSION ) return null;
+				long sourceLength = header.getLong();
+				long sourceModified = header.getLong();
+				byte[] sourceHash = new byte[HASH_LENGTH];
+				header.get( sourceHash );
+
+				//Timestamps are checked first, the contents only if the timestamp changed
+				if( sourceLength != file.length() ) return null;
+				boolean touched = sourceModified != file.lastModified();
+				if( touched && !Arrays.equals( sourceHash, hash( file ) ) ) return null;
+
+				AudioFormat format = readFormat( header );
+				long dataLength = header.getLong();
+				if( format == null || dataLength < 0 || channel.size() != HEADER_SIZE + dataLength ) return null;
+
+				ByteBuffer data = channel.map( FileChannel.MapMode.READ_ONLY, HEADER_SIZE, dataLength ).asReadOnlyBuffer();
+				SampleData cached = new SampleData( key, data, format );
+
+				//Same contents, remember the new timestamp so we don't have to compare them again
+				if( touched ) store( new Source( sourceLength, file.lastModified(), sourceHash ), file, cached );
+				return cached;
+			}
+			finally {
+				in.close();
+			}
+		} catch( IOException e ) {
+			return null;
+		} catch( RuntimeException e ) {
+			//A damaged cache file, it is replaced once the sound has been decoded again
+			return null;
+		}
+	}
+
+	/**
+	 * Writes decoded sound data into the cache. Failing to write it only means the sound is decoded again
+	 * next time, so errors are reported but not thrown.
+	 */
+	void store( Source source, File file, SampleData samples ) {
+		File temporary = null;
+
+		try {
+			if( !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() ) {
+				throw new IOException( "Could not create " + directory );
+			}
+
+			//Each writer has its own temporary file, the last one to finish wins
+			File entry = getEntry( file );
+			temporary = File.createTempFile( entry.getName(), ".tmp", directory );
+
+			RandomAccessFile out = new RandomAccessFile( temporary, "rw" );
+			try {
+				FileChannel channel = out.getChannel();
+				ByteBuffer data = samples.data.duplicate();
+				data.rewind();
+
+				ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+				header.putInt( MAGIC ).putInt( VERSION );
+				header.putLong( source.length ).putLong( source.lastModified ).put( source.hash );
+				writeFormat( header, samples.format );
+				header.putLong( data.remaining() );
+				header.clear();
+
+				while( header.hasRemaining() ) channel.write( header );
+				while( data.hasRemaining() ) channel.write( data );
+			}
+			finally {
+				out.close();
+			}
+
+			try {
+				Files.move( temporary.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE );
+			} catch( AtomicMoveNotSupportedException e ) {
+				Files.move( temporary.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING );
+			}
+		} catch( IOException e ) {
+			System.err.println( "Could not cache decoded sound (" + file.getName() + "): " + e );
+			if( temporary != null ) temporary.delete();
+		}
+	}
+
+	/**
+	 * Returns the cache file of a sound file, named after the hash of its full path
+	 */
+	private File getEntry( File file ) {
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch( IOException e ) {
+			path = file.getAbsolutePath();
+		}
+
+		MessageDigest digest = newDigest();
+		return new File( directory, toHex( digest.digest( path.getBytes( UTF8 ) ) ) + ".pcm" );
+	}
+
+	private static void writeFormat( ByteBuffer header, AudioFormat format ) {
+		byte[] encoding = format.getEncoding().toString().getBytes( UTF8 );
+
+		header.putFloat( format.getSampleRate() );
+		header.putInt( format.getSampleSizeInBits() );
+		header.putInt( format.getChannels() );
+		header.putInt( format.getFrameSize() );
+		header.putFloat( format.getFrameRate() );
+		header.put( (byte)(format.isBigEndian() ? 1 : 0) );
+		header.put( (byte) Math.min( encoding.length, MAX_ENCODING_LENGTH ) );
+		header.put( encoding, 0, Math.min( encoding.length, MAX_ENCODING_LENGTH ) );
+		header.position( header.position() + MAX_ENCODING_LENGTH - Math.min( encoding.length, MAX_ENCODING_LENGTH ) );
+	}
+
+	/**
+	 * Reads the format written by writeFormat(), returns null if the encoding is not known
+	 */
+	private static AudioFormat readFormat( ByteBuffer header ) {
+		float sampleRate = header.getFloat();
+		int sampleSize = header.getInt();
+		int channels = header.getInt();
+		int frameSize = header.getInt();
+		float frameRate = header.getFloat();
+		boolean bigEndian = header.get() != 0;
+
+		byte[] name = new byte[Math.min( header.get(), MAX_ENCODING_LENGTH )];
+		header.get( name );
+		header.position( header.position() + MAX_ENCODING_LENGTH - name.length );
+
+		String encodingName = new String( name, UTF8 );
+		AudioFormat.Encoding[] known = { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED,
+				AudioFormat.Encoding.PCM_FLOAT, AudioFormat.Encoding.ALAW, AudioFormat.Encoding.ULAW };
+		for( AudioFormat.Encoding encoding : known ) {
+			if( encoding.toString().equals( encodingName ) ) {
+				return new AudioFormat( encoding, sampleRate, sampleSize, channels, frameSize, frameRate, bigEndian );
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the SHA-1 hash of the contents of a file
+	 */
+	private static byte[] hash( File file ) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[64 * 1024];
+
+		InputStream in = new FileInputStream( file );
+		try {
+			int len;
+			while( (len = in.read( buffer )) != -1 ) digest.update( buffer, 0, len );
+		}
+		finally {
+			in.close();
+		}
+
+		return digest.digest();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance( "SHA-1" );
+		} catch( NoSuchAlgorithmException e ) {
+			//Every Java platform is required to support SHA-1
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static String toHex( byte[] bytes ) {
+		StringBuilder hex = new StringBuilder( bytes.length * 2 );
+		for( byte b : bytes ) hex.append( String.format( "%02x", b ) );
+		return hex.toString();
+	}
+}
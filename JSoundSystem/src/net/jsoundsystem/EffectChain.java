@@ -0,0 +1,147 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Arrays;
+
+import net.jsoundsystem.effects.SoundEffect;
+
+/**
+ * The effects of a sound or a bus, applied in the order they were added. Effects can be added and removed
+ * while the sound plays. Changing the chain copies a small array, but playing through it never allocates
+ * anything, so the cost of a block only depends on the effects themselves.
+ * @see Audio#getEffects()
+ * @see SoundBus#getEffects()
+ */
+public final class EffectChain {
+	private static final SoundEffect[] EMPTY = new SoundEffect[0];
+
+	//Replaced as a whole on every change, so the playing thread never sees a chain that is half changed
+	private volatile SoundEffect[] effects = EMPTY;
+
+	EffectChain() {
+	}
+
+	/**
+	 * Adds an effect at the end of the chain
+	 * @throws IllegalArgumentException if effect is null
+	 */
+	public synchronized void add( SoundEffect effect ) {
+		add( effects.length, effect );
+	}
+
+	/**
+	 * Inserts an effect at a position in the chain, 0 is processed first
+	 * @throws IllegalArgumentException if effect is null
+	 * @throws IndexOutOfBoundsException if index is negative or greater than size()
+	 */
+	public synchronized void add( int index, SoundEffect effect ) {
+		if( effect == null ) throw new IllegalArgumentException("Effect cannot be null.");
+		SoundEffect[] current = effects;
+		if( index < 0 || index > current.length ) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + current.length);
+
+		SoundEffect[] list = new SoundEffect[current.length + 1];
+		System.arraycopy( current, 0, list, 0, index );
+		list[index] = effect;
+		System.arraycopy( current, index, list, index + 1, current.length - index );
+		effects = list;
+	}
+
+	/**
+	 * Removes an effect from the chain
+	 * @return false if the effect was not in the chain
+	 */
+	public synchronized boolean remove( SoundEffect effect ) {
+		SoundEffect[] current = effects;
+		for( int i = 0; i < current.length; i++ ) {
+			if( current[i] != effect ) continue;
+
+			SoundEffect[] list = Arrays.copyOf( current, current.length - 1 );
+			System.arraycopy( current, i + 1, list, i, current.length - i - 1 );
+			effects = list;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all effects
+	 */
+	public synchronized void clear() {
+		effects = EMPTY;
+	}
+
+	/**
+	 * Returns the effect at a position in the chain
+	 * @throws IndexOutOfBoundsException if there is no effect at that position
+	 */
+	public SoundEffect get( int index ) {
+		return effects[index];
+	}
+
+	public int size() {
+		return effects.length;
+	}
+
+	public boolean isEmpty() {
+		return effects.length == 0;
+	}
+
+	/**
+	 * Runs a block through all effects, called by the playing thread
+	 */
+	void process( float[] buffer, int frames, float sampleRate ) {
+		SoundEffect[] list = effects;
+		for( int i = 0; i < list.length; i++ ) {
+			list[i].process( buffer, frames, sampleRate );
+		}
+	}
+
+	/**
+	 * Returns how long the chain keeps making sound after its input went silent
+	 */
+	int getTailFrames() {
+		SoundEffect[] list = effects;
+		int frames = 0;
+		for( int i = 0; i < list.length; i++ ) {
+			frames += list[i].getTailFrames();
+		}
+		return frames;
+	}
+
+	/**
+	 * Clears the state of all effects when the sound starts over, called by the playing thread
+	 */
+	void reset() {
+		SoundEffect[] list = effects;
+		for( int i = 0; i < list.length; i++ ) {
+			list[i].reset();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Arrays;
+
+/**
+ * The voices that play the instances of one JSound. Voices are copies of the voice of the JSound that share
+ * its sound data. A voice is reused as soon as its instance has finished playing, so playing a sound over and
+ * over only creates as many voices as are playing at the same time, up to the maximum number of instances.
+ * Every time a voice is reused its generation goes up, which tells old SoundInstance handles that their
+ * instance is gone.
+ */
+final class InstancePool {
+	private final Voice parent;
+
+	private Voice[] voices = new Voice[4];
+	private long[] generations = new long[4];
+	private long[] startOrder = new long[4];
+	private int count;
+	private long started;
+	private int maxInstances = 8;
+	private boolean disposed;
+
+	InstancePool( Voice parent ){
+		this.parent = parent;
+	}
+
+	/**
+	 * Starts a new instance with the current settings of the parent. If all instances are playing and there
+	 * are as many as allowed, the instance that was started first is restarted.
+	 * @return A handle for the instance, or null if there was no free channel
+	 */
+	synchronized SoundInstance play() {
+		if( disposed ) return null;
+
+		int slot = findFinished();
+		if( slot < 0 && count < maxInstances ) slot = add();
+		if( slot < 0 && count == 0 ) return null;
+
+		//Too many instances, start over with the oldest one
+		if( slot < 0 ) {
+			slot = findOldest();
+			voices[slot].stopPlaying();
+		}
+
+		Voice voice = voices[slot];
+		voice.takeSettings( parent );
+		long generation = ++generations[slot];
+		startOrder[slot] = started++;
+
+		if( !voice.play() ) return null;
+		return new SoundInstance( this, slot, generation );
+	}
+
+	/**
+	 * Returns the voice of an instance, or null if it has finished and the voice might be playing another one
+	 */
+	synchronized Voice getVoice( int slot, long generation ) {
+		if( disposed || generations[slot] != generation ) return null;
+		return voices[slot];
+	}
+
+	/**
+	 * Returns how many instances are playing right now
+	 */
+	synchronized int getPlayingCount() {
+		int playing = 0;
+		for( int i = 0; i < count; i++ ) {
+			if( voices[i].isPlaying() ) playing++;
+		}
+		return playing;
+	}
+
+	synchronized int getMaxInstances() {
+		return maxInstances;
+	}
+
+	/**
+	 * Changes how many instances can play at the same time. Voices beyond the new maximum are stopped and thrown away.
+	 */
+	synchronized void setMaxInstances( int amount ) {
+		maxInstances = amount;
+
+		while( count > maxInstances ) {
+			count--;
+			voices[count].dispose();
+			voices[count] = null;
+			generations[count]++;
+		}
+	}
+
+	/**
+	 * Stops all instances and frees their voices
+	 */
+	synchronized void dispose() {
+		disposed = true;
+		for( int i = 0; i < count; i++ ) voices[i].dispose();
+		count = 0;
+	}
+
+	private int findFinished() {
+		for( int i = 0; i < count; i++ ) {
+			if( !voices[i].isPlaying() && !voices[i].isPaused() ) return i;
+		}
+		return -1;
+	}
+
+	private int findOldest() {
+		int oldest = 0;
+		for( int i = 1; i < count; i++ ) {
+			if( startOrder[i] < startOrder[oldest] ) oldest = i;
+		}
+		return oldest;
+	}
+
+	private int add() {
+		if( count == voices.length ) {
+			int size = count * 2;
+			voices = Arrays.copyOf( voices, size );
+			generations = Arrays.copyOf( generations, size );
+			startOrder = Arrays.copyOf( startOrder, size );
+		}
+
+		Voice voice = parent.clone();
+		if( voice == null ) return -1;
+		voices[count] = voice;
+		return count++;
+	}
+}
@@ -40,6 +40,51 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 public class JMusic extends Audio {
 	
 	public JMusic( File file ) throws UnsupportedAudioFileException, IOException{
-		super( JSoundSystem.createSoundThread(file, false) );
+		super( JSoundSystem.createVoice(file, false) );
+	}
+
+	JMusic( Voice voice ){
+		super( voice );
+	}
+
+	/**
+	 * Sets which part of the music is repeated while it is looping, for example to play an intro once and then
+	 * loop the rest. Looping is gapless: the beginning of the loop is kept in memory, so wrapping around is
+	 * sample accurate and doesn't need the file to be opened again. Once looping is switched off the music
+	 * plays on past the loop end until the end of the file.
+	 * @param startFrame The first frame of the loop, 0 is the beginning of the music
+	 * @param endFrame The frame the loop ends before, or -1 to loop at the end of the music
+	 * @throws IllegalArgumentException if startFrame is negative or endFrame is not after startFrame
+	 * @see #setLoop(boolean)
+	 */
+	public void setLoopPoints( long startFrame, long endFrame ){
+		if( startFrame < 0 ) throw new IllegalArgumentException("Loop start cannot be negative.");
+		if( endFrame >= 0 && endFrame <= startFrame ) throw new IllegalArgumentException("Loop end must be after the loop start.");
+		voice.setLoopPoints( startFrame, endFrame );
+	}
+
+	/**
+	 * Loops the whole music again, this is the default
+	 */
+	public void clearLoopPoints(){
+		voice.setLoopPoints( 0, -1 );
+	}
+
+	/**
+	 * Returns how full the buffer of audio that is decoded ahead of time is. A buffer that stays close to
+	 * empty while playing means the file can't be decoded fast enough.
+	 * @return A number between 0.00f (empty) and 1.00f (full), 0.00f while the music isn't playing
+	 * @see JSoundSystem#setStreamBufferTime(int)
+	 */
+	public float getBufferFill(){
+		return voice.getBufferFill();
+	}
+
+	/**
+	 * Returns how often this music ran out of decoded audio while playing. Each time this happens silence
+	 * is played until the decoder has caught up.
+	 */
+	public long getUnderruns(){
+		return voice.getUnderruns();
 	}
 }
@@ -42,6 +42,9 @@ import javax.sound.sampled.UnsupportedAudioFileException;
  */
 public class JSound extends Audio {
 
+	//Voices for playInstance(), created the first time it is called
+	private InstancePool instances;
+
 	/**
 	 * A constructor for the JSound object. This is same as calling JSoundSystem.createSound( File soundFile )
 	 * @param soundFile The file you want to play as an audio file.
@@ -49,11 +52,11 @@ public class JSound extends Audio {
 	 * @throws IOException If the file could not be read
 	 */
 	public JSound( File soundFile ) throws UnsupportedAudioFileException, IOException {
-		super( JSoundSystem.createSoundThread(soundFile, true) );
+		super( JSoundSystem.createVoice(soundFile, true) );
 	}
 	
-	private JSound( AudioThread thread ){
-		super(thread);
+	JSound( Voice voice ){
+		super(voice);
 	}
 	
 	/**
@@ -72,7 +75,64 @@ public class JSound extends Audio {
 	 * original JSound from which this one is cloned from.
 	 */
 	public JSound clone() {
-		return new JSound( soundThread.clone() );
+		return new JSound( voice.clone() );
+	}
+
+	/**
+	 * Plays this sound once more, on top of any other instances that are already playing. This is the cheap
+	 * way to play the same sound over and over, like gun shots or footsteps: instances share the sound data
+	 * and reuse their voices once they have finished, so they never have to be disposed of. An instance takes
+	 * the current volume, panning, speed, looping and 3D position of this sound.
+	 * <p>
+	 * If as many instances are playing as allowed by setMaxInstances(), the oldest one is restarted.
+	 * @return A handle to change or stop the instance while it plays, or null if there was no free channel
+	 */
+	public SoundInstance playInstance() {
+		return getInstances().play();
+	}
+
+	/**
+	 * Sets how many instances started with playInstance() can play at the same time. Voices beyond the new
+	 * maximum are stopped. The default is 8.
+	 * @param amount The maximum number of instances
+	 * @throws IllegalArgumentException if amount is less than 1
+	 */
+	public void setMaxInstances( int amount ) {
+		if( amount < 1 ) throw new IllegalArgumentException("There must be at least one instance.");
+		getInstances().setMaxInstances( amount );
+	}
+
+	/**
+	 * Returns how many instances started with playInstance() can play at the same time
+	 */
+	public int getMaxInstances() {
+		return getInstances().getMaxInstances();
+	}
+
+	/**
+	 * Returns how many instances started with playInstance() are playing right now
+	 */
+	public int getInstancesPlaying() {
+		InstancePool pool;
+		synchronized( this ) {
+			pool = instances;
+		}
+		return pool == null ? 0 : pool.getPlayingCount();
+	}
+
+	/**
+	 * Disposes of this sound and of all its instances
+	 */
+	public void dispose() {
+		synchronized( this ) {
+			if( instances != null ) instances.dispose();
+		}
+		super.dispose();
+	}
+
+	private synchronized InstancePool getInstances() {
+		if( instances == null ) instances = new InstancePool( voice );
+		return instances;
 	}
 	
 	/**
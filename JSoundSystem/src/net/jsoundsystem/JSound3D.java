@@ -59,7 +59,12 @@ public class JSound3D extends JSound {
 	 */
 	public JSound3D( File soundFile ) throws UnsupportedAudioFileException, IOException{
 		super( soundFile );
-		soundThread.enableSpatializedSound();
+		voice.enableSpatializedSound();
+	}
+
+	JSound3D( Voice voice ){
+		super( voice );
+		voice.enableSpatializedSound();
 	}
 
     /**
@@ -73,10 +78,21 @@ public class JSound3D extends JSound {
     }
 	
 	/**
-	 * This sets the position for this sound
+	 * This sets the position for this sound. The position is copied, so call this again whenever
+	 * the sound moves.
 	 * @param source A Vector3f position
 	 */
 	public void setSourcePosition( Vector3f source ) {
-		soundThread.setSourcePosition( source );
+		voice.setSourcePosition( source.x, source.y, source.z );
+	}
+
+	/**
+	 * This sets the position for this sound without needing a Vector3f
+	 * @param x The x coordinate
+	 * @param y The y coordinate
+	 * @param z The z coordinate
+	 */
+	public void setSourcePosition( float x, float y, float z ) {
+		voice.setSourcePosition( x, y, z );
 	}
 }
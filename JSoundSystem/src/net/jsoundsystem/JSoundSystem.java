@@ -28,17 +28,37 @@ THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package net.jsoundsystem;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import net.jsoundsystem.effects.ConvolutionReverb;
+import net.jsoundsystem.output.LineBackend;
+import net.jsoundsystem.output.OutputBackend;
 import net.jsoundsystem.utils.Vector3f;
 
 
@@ -52,19 +72,167 @@ import net.jsoundsystem.utils.Vector3f;
 public abstract class JSoundSystem {
 	public final static String VERSION = "1.00";
 
+	/**
+	 * Describes how sounds are played by the JSoundSystem
+	 * @see JSoundSystem#setPlaybackMode(PlaybackMode)
+	 */
+	public enum PlaybackMode {
+		/**
+		 * Every sound is played in its own thread on its own audio line (default)
+		 */
+		THREADED,
+
+		/**
+		 * All sounds are summed by one mixing thread into a single audio line. The number of threads
+		 * and lines stays the same no matter how many sounds are playing.
+		 */
+		MIXER
+	}
+
+	/**
+	 * Describes where the decoded data of sounds loaded into memory is stored
+	 * @see JSoundSystem#setSampleStorage(SampleStorage)
+	 */
+	public enum SampleStorage {
+		/**
+		 * Sound data is stored on the Java heap (default)
+		 */
+		HEAP,
+
+		/**
+		 * Sound data is stored in direct buffers outside of the Java heap, so it is never scanned by the
+		 * garbage collector. The amount of direct memory is limited by -XX:MaxDirectMemorySize.
+		 */
+		DIRECT,
+
+		/**
+		 * Sound data is decoded into temporary files that are mapped into memory. The operating system decides
+		 * what is kept in memory, so this works for sound libraries larger than the available memory.
+		 */
+		MAPPED
+	}
+
 	//Sound channels
-	protected static int channelsPlaying = 0;
-	private static int maxChannels = 32;
+	private static final ChannelAllocator channels = new ChannelAllocator();
+
+	//Playback
+	private static PlaybackMode playbackMode = PlaybackMode.THREADED;
+	private static SoftwareMixer softwareMixer;
+	private static Executor voiceExecutor;
+	private static boolean defaultVoiceExecutor;
+	private static OutputBackend outputBackend = new LineBackend();
+	private static final OutputPool outputPool = new OutputPool();
+
+	//Decoded sounds shared between JSound objects
+	private static final SampleCache sampleCache = new SampleCache();
+	private static ForkJoinPool loaderPool;
+	private static AudioProviders audioProviders;
+	private static volatile int streamBufferTime = 500;
+	private static SampleStorage sampleStorage = SampleStorage.HEAP;
+	private static volatile DiskCache diskCache;
 
 	//3D sound effects
 	private static Vector3f listenerPosition = new Vector3f();
 	protected static float maxDistance = 800;
+	private static final Spatializer spatializer = new Spatializer();
+	private static volatile VoiceVirtualizer virtualizer;
+	private static volatile boolean voiceVirtualization = true;
+
+	//Sound groups, parents always come before the buses inside them
+	private static final SoundBus masterBus = new SoundBus( "master", null );
+	private static volatile SoundBus[] buses = { masterBus };
+
+	//Statistics published through JMX
+	private static final SoundSystemMetrics metrics = new SoundSystemMetrics();
+	private static final String MBEAN_NAME = "net.jsoundsystem:type=SoundSystem";
 
 	/**
 	 * Gets the number of channels in use
 	 */
 	public static int getSoundsPlaying(){
-		return channelsPlaying;
+		return channels.getChannelsInUse();
+	}
+
+	/**
+	 * Returns the highest number of channels that were in use at the same time
+	 */
+	public static int getPeakSoundsPlaying(){
+		return channels.getPeakChannels();
+	}
+
+	/**
+	 * Returns how many times a sound could not be played because all channels were in use
+	 */
+	public static long getChannelRefusals(){
+		return channels.getRefusals();
+	}
+
+	/**
+	 * Returns how many times a sound was stopped to give its channel to a sound with a higher priority
+	 */
+	public static long getStolenVoices(){
+		return channels.getSteals();
+	}
+
+	/**
+	 * Returns statistics about what the sound system is doing, like the sounds playing, load times and
+	 * cache hit rates. These are the same numbers registerMBean() publishes through JMX.
+	 */
+	public static SoundSystemMXBean getMetrics(){
+		return metrics;
+	}
+
+	/**
+	 * Publishes the statistics of getMetrics() to the platform MBean server as net.jsoundsystem:type=SoundSystem,
+	 * so they can be watched with tools like JConsole or a JMX monitoring agent. Statistics are always collected,
+	 * this only makes them visible. Calling this again does nothing.
+	 * @return The name the MBean is registered under
+	 * @throws IllegalStateException if the MBean could not be registered
+	 */
+	public static ObjectName registerMBean(){
+		ObjectName name = getMBeanName();
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if( !server.isRegistered( name ) ) server.registerMBean( metrics, name );
+		} catch( InstanceAlreadyExistsException e ) {
+			//Registered by another thread at the same time
+		} catch( JMException e ) {
+			throw new IllegalStateException( "Could not register the JSoundSystem MBean.", e );
+		}
+
+		return name;
+	}
+
+	/**
+	 * Removes the MBean published by registerMBean(), does nothing if it isn't registered
+	 */
+	public static void unregisterMBean(){
+		ObjectName name = getMBeanName();
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if( server.isRegistered( name ) ) server.unregisterMBean( name );
+		} catch( InstanceNotFoundException e ) {
+			//Removed by another thread at the same time
+		} catch( JMException e ) {
+			throw new IllegalStateException( "Could not unregister the JSoundSystem MBean.", e );
+		}
+	}
+
+	private static ObjectName getMBeanName(){
+		try {
+			return new ObjectName( MBEAN_NAME );
+		} catch( MalformedObjectNameException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * Returns the collector that the sound system reports its statistics to
+	 */
+	static SoundSystemMetrics getMetricsCollector(){
+		return metrics;
 	}
 
 	/**
@@ -95,6 +263,130 @@ public abstract class JSoundSystem {
 		return new JSound(soundFile);
 	}
 
+	/**
+	 * Opens a sound bank made with SoundBankWriter. The bank is mapped into memory, so opening it is quick no
+	 * matter how many sounds it holds, and its sounds are created without opening any other files.
+	 * @param bankFile The sound bank file
+	 * @return The opened sound bank
+	 * @throws IOException If the file could not be read or is not a sound bank
+	 * @see SoundBank
+	 */
+	public static SoundBank openSoundBank( File bankFile ) throws IOException {
+		if( bankFile == null ) throw new IllegalArgumentException("Sound bank file cannot be null.");
+		return new SoundBank( bankFile );
+	}
+
+	/**
+	 * Works like createSound( File soundFile ) except that the sound is loaded by the loader pool, so the calling
+	 * thread does not have to wait for the file to be decoded. If the sound cannot be loaded the future completes
+	 * exceptionally with the UnsupportedAudioFileException or IOException that createSound() would have thrown.
+	 * @param soundFile A File object pointing to the audio file you want to use
+	 * @return A future that completes with a JSound object ready to be played
+	 * @see #setLoaderPool(ForkJoinPool)
+	 */
+	public static CompletableFuture<JSound> createSoundAsync( File soundFile ) {
+		return loadAsync( soundFile, false );
+	}
+
+	/**
+	 * Works like create3DSound( File soundFile ) except that the sound is loaded by the loader pool, so the calling
+	 * thread does not have to wait for the file to be decoded. If the sound cannot be loaded the future completes
+	 * exceptionally with the UnsupportedAudioFileException or IOException that create3DSound() would have thrown.
+	 * @param soundFile A File object pointing to the audio file you want to use
+	 * @return A future that completes with a JSound3D object ready to be played
+	 * @see #setLoaderPool(ForkJoinPool)
+	 */
+	public static CompletableFuture<JSound> create3DSoundAsync( File soundFile ) {
+		return loadAsync( soundFile, true );
+	}
+
+	private static CompletableFuture<JSound> loadAsync( final File soundFile, final boolean spatial ) {
+		if( soundFile == null ) throw new IllegalArgumentException("Sound file cannot be null.");
+
+		final CompletableFuture<JSound> future = new CompletableFuture<JSound>();
+		getLoaderPool().execute( new Runnable() {
+			public void run() {
+				try {
+					future.complete( spatial ? new JSound3D(soundFile) : new JSound(soundFile) );
+				} catch (Exception e) {
+					future.completeExceptionally( e );
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Loads many sounds at the same time, using every thread of the loader pool. This returns immediately, the
+	 * returned SoundPreload tells how far along loading is and which sounds have been loaded. A file that
+	 * cannot be loaded does not stop the other files from loading, it is reported by SoundPreload.getFailures().
+	 * Because decoded sounds are shared through the sample cache, sounds that are created from the same files
+	 * later on are ready without having to decode them again.
+	 * @param soundFiles The audio files to load, a file that is in the collection more than once is loaded once
+	 * @return A SoundPreload that keeps track of the loading sounds
+	 * @throws IllegalArgumentException if soundFiles is null or contains null
+	 * @see SoundPreload
+	 */
+	public static SoundPreload preload( Collection<File> soundFiles ) {
+		return preload( soundFiles, null );
+	}
+
+	/**
+	 * Works like preload( Collection<File> soundFiles ) except that the listener is told about each sound as soon
+	 * as it has been loaded or has failed.
+	 * @param soundFiles The audio files to load, a file that is in the collection more than once is loaded once
+	 * @param listener Is told about each loaded or failed sound, can be null
+	 * @return A SoundPreload that keeps track of the loading sounds
+	 * @throws IllegalArgumentException if soundFiles is null or contains null
+	 */
+	public static SoundPreload preload( Collection<File> soundFiles, SoundPreload.Listener listener ) {
+		if( soundFiles == null ) throw new IllegalArgumentException("Sound files cannot be null.");
+		if( soundFiles.contains(null) ) throw new IllegalArgumentException("Sound files cannot contain null.");
+
+		List<File> files = new ArrayList<File>( new LinkedHashSet<File>(soundFiles) );
+		final SoundPreload preload = new SoundPreload( files, listener );
+
+		ForkJoinPool pool = getLoaderPool();
+		for( final File file : files ) {
+			pool.execute( new Runnable() {
+				public void run() {
+					JSound sound;
+					try {
+						sound = new JSound( file );
+					} catch (Exception e) {
+						preload.failed( file, e );
+						return;
+					}
+					preload.loaded( file, sound );
+				}
+			});
+		}
+
+		return preload;
+	}
+
+	/**
+	 * Changes the pool that loads sounds for createSoundAsync(), create3DSoundAsync() and preload(). Sounds
+	 * that are already being loaded finish on the old pool. The old pool is not shut down.
+	 * @param pool The pool that decodes sounds
+	 * @throws IllegalArgumentException if pool is null
+	 */
+	public static synchronized void setLoaderPool( ForkJoinPool pool ){
+		if( pool == null ) throw new IllegalArgumentException("Loader pool cannot be null.");
+		loaderPool = pool;
+	}
+
+	/**
+	 * Returns the pool that loads sounds asynchronously. By default this is a pool of daemon threads with
+	 * one thread for every processor.
+	 */
+	public static synchronized ForkJoinPool getLoaderPool(){
+		if( loaderPool == null ) {
+			loaderPool = new ForkJoinPool( Runtime.getRuntime().availableProcessors(), new LoaderThreadFactory(), null, false );
+		}
+		return loaderPool;
+	}
+
 	/**
 	 * This function sets the amount of sound channels that can be used at the same time.
 	 * Sound channels define the number of sounds that can be played at the same time.
@@ -109,45 +401,345 @@ public abstract class JSoundSystem {
 			throw new IllegalArgumentException("Cannot set number of channels to negative.");
 
 		//Dont close channels that are in use
-		if( amount < channelsPlaying ) 
-			throw new IllegalArgumentException("Cannot set channels to " + amount + " because " + channelsPlaying + " is already in use.");
+		int inUse = channels.getChannelsInUse();
+		if( amount < inUse ) 
+			throw new IllegalArgumentException("Cannot set channels to " + amount + " because " + inUse + " is already in use.");
 
 		//All ok
-		maxChannels = amount;
+		channels.setMaxChannels( amount );
+
+		//The default thread pool grows with the number of channels
+		synchronized( JSoundSystem.class ) {
+			if( defaultVoiceExecutor ) VoiceExecutors.resizePlatformThreadPool( voiceExecutor, amount );
+		}
+	}
+
+	/**
+	 * Returns the maximum amount of channels that can be used at the same time
+	 */
+	public static int getMaxChannels(){
+		return channels.getMaxChannels();
 	}
 
 	/**
 	 * Returns true if there is at least one free channel
 	 */
 	public static boolean hasFreeChannels(){
-		return channelsPlaying <= maxChannels;
+		return channels.getChannelsInUse() < channels.getMaxChannels();
+	}
+
+	/**
+	 * Enables or disables voice stealing. When all channels are in use and a sound is played with a higher
+	 * priority than another sound that is playing, the sound with the lowest priority is faded out to make room.
+	 * Among sounds with the same priority the quietest is stolen first, then the one that started earliest.
+	 * Sounds with equal priority never steal from each other. Voice stealing is enabled by default.
+	 * @param enabled true to let important sounds take the channels of less important sounds
+	 * @see JSound#setPriority(int)
+	 */
+	public static void setVoiceStealing( boolean enabled ){
+		channels.setStealingEnabled( enabled );
+	}
+
+	/**
+	 * Returns true if sounds with a higher priority can take the channel of sounds with a lower priority
+	 */
+	public static boolean isVoiceStealing(){
+		return channels.isStealingEnabled();
+	}
+
+	/**
+	 * Reserves a channel for a voice that starts playing. Checking for a free channel and taking it
+	 * is done in one atomic step, so the number of channels can never go beyond the maximum.
+	 * @return false if all channels are in use and none could be stolen
+	 */
+	static boolean reserveChannel( Voice voice ){
+		return channels.reserve( voice );
+	}
+
+	/**
+	 * Sorts a playing voice again in the steal order after its priority or played volume changed
+	 */
+	static void updateChannel( Voice voice ){
+		channels.update( voice );
+	}
+
+	/**
+	 * Gives back the channel of a voice, does nothing if its channel was stolen
+	 */
+	static void freeChannel( Voice voice ){
+		channels.free( voice );
+	}
+
+
+	/**
+	 * Changes how sounds are played. This only affects sounds created after this call, sounds that already
+	 * exist keep playing the way they were created. The default mode is PlaybackMode.THREADED.
+	 * @param mode Either PlaybackMode.THREADED or PlaybackMode.MIXER
+	 * @throws IllegalArgumentException if mode is null
+	 */
+	public static void setPlaybackMode( PlaybackMode mode ){
+		if( mode == null ) throw new IllegalArgumentException("Playback mode cannot be null.");
+		playbackMode = mode;
+	}
+
+	/**
+	 * Returns how new sounds are played. Default is PlaybackMode.THREADED.
+	 */
+	public static PlaybackMode getPlaybackMode(){
+		return playbackMode;
+	}
+
+	/**
+	 * Returns true if sounds are mixed with SIMD instructions through the Java Vector API. This needs
+	 * Java 16 or newer started with --add-modules jdk.incubator.vector and the classes from the src-vector
+	 * folder on the classpath, otherwise plain Java code is used.
+	 */
+	public static boolean isVectorMixing(){
+		return !"scalar".equals( MixKernels.get().getName() );
 	}
 
+	/**
+	 * Changes where sounds are played. By default sounds are played on the sound device through a LineBackend.
+	 * Use a NullBackend or a MemoryBackend to run without a sound device. Sounds that are already playing
+	 * keep their output, and the software mixer keeps the output it was started with.
+	 * @param backend The backend used to open outputs for new sounds
+	 * @throws IllegalArgumentException if backend is null
+	 * @see net.jsoundsystem.output.NullBackend
+	 * @see net.jsoundsystem.output.MemoryBackend
+	 */
+	public static void setOutputBackend( OutputBackend backend ){
+		if( backend == null ) throw new IllegalArgumentException("Output backend cannot be null.");
+		outputBackend = backend;
+	}
 
 	/**
-	 * This function decodes and loads sound data into memory stored in a JSoundThread ready to be played
+	 * Returns the backend used to open outputs for sounds. Default is a LineBackend.
+	 */
+	public static OutputBackend getOutputBackend(){
+		return outputBackend;
+	}
+
+	/**
+	 * Returns the pool of opened outputs that are lent to sounds while they play
+	 */
+	public static OutputPool getOutputPool(){
+		return outputPool;
+	}
+
+	/**
+	 * Opens outputs in advance so that sounds can start playing without having to open a line first.
+	 * Call this once at startup with the number of sounds you expect to play at the same time.
+	 * The outputs are opened in 44.1 kHz 16 bit stereo, the format most sounds are decoded to.
+	 * @param count How many outputs to open
+	 * @throws LineUnavailableException If the output backend cannot open that many outputs
+	 */
+	public static void initOutputPool( int count ) throws LineUnavailableException {
+		initOutputPool( SoftwareMixer.OUTPUT_FORMAT, count );
+	}
+
+	/**
+	 * Opens outputs in a specific format in advance so that sounds in that format can start playing
+	 * without having to open a line first.
+	 * @param format The format of the sounds that will be played
+	 * @param count How many outputs to open
+	 * @throws LineUnavailableException If the output backend cannot open that many outputs
+	 * @see JSound#getSoundFormat()
+	 */
+	public static void initOutputPool( AudioFormat format, int count ) throws LineUnavailableException {
+		outputPool.warmUp( format, count );
+	}
+
+	/**
+	 * Changes the executor that runs sounds played in PlaybackMode.THREADED. Every playing sound occupies one
+	 * task of the executor until it is paused, stopped or finished. By default virtual threads are used if the
+	 * Java version supports them, otherwise a pool of low priority daemon threads that is as large as the
+	 * maximum number of channels.
+	 * @param executor The executor that runs playing sounds
+	 * @throws IllegalArgumentException if executor is null
+	 * @see VoiceExecutors
+	 */
+	public static synchronized void setVoiceExecutor( Executor executor ){
+		if( executor == null ) throw new IllegalArgumentException("Voice executor cannot be null.");
+		voiceExecutor = executor;
+		defaultVoiceExecutor = false;
+	}
+
+	/**
+	 * Returns the executor that runs sounds played in PlaybackMode.THREADED
+	 */
+	public static synchronized Executor getVoiceExecutor(){
+		if( voiceExecutor == null ) {
+			voiceExecutor = VoiceExecutors.newDefaultExecutor( channels.getMaxChannels() );
+			defaultVoiceExecutor = true;
+		}
+		return voiceExecutor;
+	}
+
+	/**
+	 * Returns the software mixer, starting the mixing thread the first time it is needed
+	 */
+	static synchronized SoftwareMixer getSoftwareMixer(){
+		if( softwareMixer == null ) {
+			softwareMixer = new SoftwareMixer();
+			softwareMixer.start();
+		}
+		return softwareMixer;
+	}
+
+	/**
+	 * Returns the providers that open and convert sound files, finding the installed providers the first time
+	 */
+	static synchronized AudioProviders getAudioProviders(){
+		if( audioProviders == null ) audioProviders = new AudioProviders();
+		return audioProviders;
+	}
+
+	/**
+	 * Returns the cache that holds the decoded data of all sounds loaded into memory. Sounds created
+	 * from the same file share the same data through this cache.
+	 */
+	public static SampleCache getSampleCache(){
+		return sampleCache;
+	}
+
+	/**
+	 * Changes where the decoded data of new sounds is stored. Sounds that are already loaded, including
+	 * those in the sample cache, keep their data where it is. The default is SampleStorage.HEAP.
+	 * @param storage Where to store decoded sound data
+	 * @throws IllegalArgumentException if storage is null
+	 */
+	public static void setSampleStorage( SampleStorage storage ){
+		if( storage == null ) throw new IllegalArgumentException("Sample storage cannot be null.");
+		sampleStorage = storage;
+	}
+
+	/**
+	 * Returns where the decoded data of new sounds is stored. Default is SampleStorage.HEAP.
+	 */
+	public static SampleStorage getSampleStorage(){
+		return sampleStorage;
+	}
+
+	/**
+	 * Sets a directory where decoded sounds are kept between runs of the program. A sound loaded into memory
+	 * is then only decoded the first time, later it is mapped directly from the cache directory. This is
+	 * useful for compressed sounds that take long to decode. Cached sounds are always mapped from the cache
+	 * file, regardless of the sample storage. Several programs can safely use the same directory at once.
+	 * @param directory Where to keep decoded sounds, created if needed. null disables the cache (default).
+	 */
+	public static void setDiskCacheDirectory( File directory ){
+		diskCache = directory == null ? null : new DiskCache( directory );
+	}
+
+	/**
+	 * Returns the directory where decoded sounds are kept between runs, or null if this is disabled (default)
+	 */
+	public static File getDiskCacheDirectory(){
+		DiskCache cache = diskCache;
+		return cache == null ? null : cache.getDirectory();
+	}
+
+	/**
+	 * Changes how much audio streamed sounds like JMusic decode ahead of time. A larger buffer survives longer
+	 * decoding or disk delays without running out, but uses more memory and takes longer to fill when a
+	 * sound starts. Sounds that are already playing keep their buffer until they are started again.
+	 * @param milliseconds How much audio to buffer, 500 ms by default
+	 * @throws IllegalArgumentException if milliseconds is less than 1
+	 * @see JMusic#getUnderruns()
+	 */
+	public static void setStreamBufferTime( int milliseconds ){
+		if( milliseconds < 1 ) throw new IllegalArgumentException("Stream buffer time must be at least 1 ms.");
+		streamBufferTime = milliseconds;
+	}
+
+	/**
+	 * Returns how many milliseconds of audio streamed sounds decode ahead of time. Default is 500 ms.
+	 */
+	public static int getStreamBufferTime(){
+		return streamBufferTime;
+	}
+
+	/**
+	 * Returns how often any streamed sound ran out of decoded audio while playing. Each time this happens
+	 * silence is played until the decoder has caught up.
+	 */
+	public static long getStreamUnderruns(){
+		return StreamBuffer.getTotalUnderruns();
+	}
+
+	/**
+	 * This function creates a Voice ready to be played. Sounds loaded into memory are taken from the sample
+	 * cache, decoding them if needed. Depending on the playback mode this is either an AudioThread or a voice
+	 * in the software mixer.
 	 * @param file
 	 * @return
 	 * @throws UnsupportedAudioFileException
 	 * @throws IOException
 	 */
-	static AudioThread createSoundThread( File file, boolean loadToMemory ) throws UnsupportedAudioFileException, IOException {
-		AudioInputStream audioStream = JSoundSystem.getAudioInputStream( file );
-		byte[] memoryData = null;
+	static Voice createVoice( File file, boolean loadToMemory ) throws UnsupportedAudioFileException, IOException {
+		FileSource source = new FileSource( file );
 
 		if( loadToMemory ){
-			// copy the AudioInputStream to a byte array which we load into memory
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			byte[] buffer = new byte[4096];
-			int tempBytesRead = 0;
-			while ((tempBytesRead = audioStream.read(buffer, 0, buffer.length)) != -1) {
-				bos.write(buffer, 0, tempBytesRead);
-			}
-			memoryData = bos.toByteArray();
+			SampleData samples = sampleCache.acquire( file );
+			return createVoice( source, samples, samples.format );
 		}
 
+		//Streamed sounds only need the format here, they are decoded while playing
+		AudioInputStream audioStream = source.open();
+		AudioFormat format = audioStream.getFormat();
+		audioStream.close();
+		return createVoice( source, null, format );
+	}
+
+	/**
+	 * Creates a Voice for the current playback mode. Streamed sounds have no samples and are decoded
+	 * from source while playing.
+	 */
+	static Voice createVoice( SoundSource source, SampleData samples, AudioFormat format ) throws UnsupportedAudioFileException, IOException {
+
 		//All done!
-		return new AudioThread( file, memoryData, audioStream.getFormat() );
+		if( playbackMode == PlaybackMode.MIXER ) return new MixerVoice( source, samples, format );
+		return new AudioThread( source, samples, format );
+	}
+
+	/**
+	 * This function decodes a whole sound file into memory, using the current sample storage. If the disk cache
+	 * is enabled, the decoded data is taken from or written to it.
+	 * @param file Which file to decode
+	 * @param key The key used by the sample cache, or null
+	 * @return The decoded sound data
+	 * @throws UnsupportedAudioFileException
+	 * @throws IOException
+	 */
+	static SampleData decodeSamples( File file, String key ) throws UnsupportedAudioFileException, IOException {
+		DiskCache cache = diskCache;
+		DiskCache.Source source = null;
+
+		if( cache != null ){
+			SampleData cached = cache.load( file, key );
+			if( cached != null ) {
+				metrics.diskCacheHit();
+				return cached;
+			}
+			metrics.diskCacheMiss();
+
+			//Describe the file before decoding it, so changes made while decoding are noticed next time
+			source = DiskCache.describe( file );
+		}
+
+		AudioInputStream audioStream = JSoundSystem.getAudioInputStream( file );
+		SampleData samples;
+
+		try {
+			ByteBuffer data = new SampleWriter( sampleStorage ).decode( audioStream );
+			samples = new SampleData( key, data, audioStream.getFormat() );
+		}
+		finally {
+			audioStream.close();
+		}
+
+		if( cache != null ) cache.store( source, file, samples );
+		return samples;
 	}
 
 	/**
@@ -158,73 +750,64 @@ public abstract class JSoundSystem {
 	 * @throws IOException
 	 */
 	static AudioInputStream getAudioInputStream( File file ) throws UnsupportedAudioFileException, IOException{
+		AudioProviders providers = getAudioProviders();
 
-        //Try to open a stream to it, we use BufferedInputStream which works with JAR files
-        BufferedInputStream in = new BufferedInputStream( new FileInputStream(file) );
-
+        //Open the file with the provider that handled this type of file before
         AudioInputStream rawstream = null;
         try {
-            rawstream = AudioSystem.getAudioInputStream(file);
+            rawstream = providers.open(file);
         }
         catch(UnsupportedAudioFileException ex) {
             throw new UnsupportedAudioFileException("Audio file not supported: " + file.getAbsolutePath() + " (" + ex.getMessage() + ")");
         }
 
-        //Now decode the stream
-		AudioFormat decodedFormat = rawstream.getFormat();
-		String fileName = file.getName().toLowerCase();
+        return decodeStream( providers, rawstream );
+	}
 
-        decodedFormat = new AudioFormat(
-                AudioFormat.Encoding.PCM_SIGNED,
-                decodedFormat.getSampleRate(),
-                16,
-                2,
-                decodedFormat.getChannels() * 2,
-                decodedFormat.getSampleRate(),
-                false);
+	/**
+	 * Opens a sound file that has been read into memory, for example from a sound bank, turning it into
+	 * a decoded AudioInputStream
+	 * @param stream The contents of the file, must support mark and reset
+	 * @param name The name of the file
+	 */
+	static AudioInputStream getAudioInputStream( InputStream stream, String name ) throws UnsupportedAudioFileException, IOException{
+		AudioProviders providers = getAudioProviders();
 
-        //Decode it if it is in OGG Vorbis format
-		/*if( fileName.endsWith(".ogg") ) {
-		}
+        AudioInputStream rawstream = null;
+        try {
+            rawstream = providers.open(stream, name);
+        }
+        catch(UnsupportedAudioFileException ex) {
+            throw new UnsupportedAudioFileException("Audio file not supported: " + name + " (" + ex.getMessage() + ")");
+        }
 
-		//Decode it if it is in MP3 format
-		else if( fileName.endsWith(".mp3") ) {
-			decodedFormat = new AudioFormat(
-					AudioFormat.Encoding.PCM_SIGNED,
-					decodedFormat.getSampleRate(),
-					16,
-					decodedFormat.getChannels(),
-					decodedFormat.getChannels() * 2,
-					decodedFormat.getSampleRate(),
-					false);
-		}
+        return decodeStream( providers, rawstream );
+	}
+
+	/**
+	 * Decodes an opened sound file into the format used for playback
+	 */
+	private static AudioInputStream decodeStream( AudioProviders providers, AudioInputStream rawstream ) throws IOException {
+
+        //Now decode the stream, always to 16 bit stereo so that we can adjust panning
+		AudioFormat decodedFormat = rawstream.getFormat();
 
-        else if( fileName.endsWith(".flac") ) {
-            decodedFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    decodedFormat.getSampleRate(),
-                    16,
-                    decodedFormat.getChannels(),
-                    decodedFormat.getChannels() * 2,
-                    decodedFormat.getSampleRate(),
-                    false);
-        }*/
-
-        //Convert sound from Mono to Stereo so that we can adjust panning
-		/*if(decodedFormat.getChannels() == 1 )
-		{
-	        decodedFormat = new AudioFormat(
+        decodedFormat = new AudioFormat(
                 AudioFormat.Encoding.PCM_SIGNED,
                 decodedFormat.getSampleRate(),
                 16,
                 2,
-                decodedFormat.getChannels()*2,
+                4,
                 decodedFormat.getSampleRate(),
                 false);
-		}*/
 
 		//Decode the sound by using the underlying SPI with the specified format
-		return AudioSystem.getAudioInputStream( decodedFormat, rawstream );
+		try {
+			return providers.convert( decodedFormat, rawstream );
+		} catch( IllegalArgumentException e ) {
+			rawstream.close();
+			throw e;
+		}
 	}
 
 	/**
@@ -235,7 +818,7 @@ public abstract class JSoundSystem {
 		if( soundFile == null ) return false;
 		
 		try {
-			AudioSystem.getAudioFileFormat( soundFile );
+			getAudioProviders().getFileFormat( soundFile );
 		} catch (UnsupportedAudioFileException e) {
 			return false;
 		} catch(IOException ex) {
@@ -260,9 +843,7 @@ public abstract class JSoundSystem {
 	 * @see JSound3D
 	 */
 	public static JSound create3DSound( File soundFile ) throws UnsupportedAudioFileException, IOException {
-		//Make sure the file is actually a sound
-		if( !soundIsSupported(soundFile) ) throw new UnsupportedAudioFileException("Audio file not supported: " + soundFile.getAbsolutePath());
-
+		//No need to check soundIsSupported() first, opening the file already throws if it isn't a sound
 		return new JSound3D(soundFile);
 	}
 
@@ -298,6 +879,51 @@ public abstract class JSoundSystem {
 		return listenerPosition;
 	}
 
+	/**
+	 * Enables or disables virtual voices. A JSound3D that is playing but beyond the max distance gives back
+	 * its channel and stops using any CPU, while it keeps track of where it would have been. Once it comes
+	 * back into range it continues playing at the right position. Only sounds loaded into memory can become
+	 * virtual. Enabled by default.
+	 * @param enabled false to keep all 3D sounds playing even when they cannot be heard
+	 * @see #setMaxDistance(float)
+	 */
+	public static void setVoiceVirtualization( boolean enabled ){
+		voiceVirtualization = enabled;
+	}
+
+	/**
+	 * Returns true if 3D sounds out of range become virtual
+	 */
+	public static boolean isVoiceVirtualization(){
+		return voiceVirtualization;
+	}
+
+	/**
+	 * Returns how many 3D sounds are playing virtually because they are out of range
+	 */
+	public static int getVirtualSoundsPlaying(){
+		VoiceVirtualizer current = virtualizer;
+		return current == null ? 0 : current.getVirtualCount();
+	}
+
+	/**
+	 * Returns the virtualizer that keeps track of virtual voices, starting it if needed
+	 */
+	static synchronized VoiceVirtualizer getVirtualizer(){
+		if( virtualizer == null ) {
+			virtualizer = new VoiceVirtualizer();
+			virtualizer.start();
+		}
+		return virtualizer;
+	}
+
+	/**
+	 * Returns the store that computes volume and panning for all 3D sounds
+	 */
+	static Spatializer getSpatializer(){
+		return spatializer;
+	}
+
 	/**
 	 * Returns the current max hearing distance. Default is 800.
 	 * @return
@@ -306,4 +932,103 @@ public abstract class JSoundSystem {
 		return maxDistance;
 	}
 
+	/**
+	 * Returns the bus all other buses are inside of. Sounds play on the master bus unless they were moved
+	 * to another bus, so its volume is the volume of everything played by the JSoundSystem.
+	 * @see SoundBus
+	 */
+	public static SoundBus getMasterBus(){
+		return masterBus;
+	}
+
+	/**
+	 * Creates a new bus inside the master bus
+	 * @param name A name that is not used by any other bus
+	 * @throws IllegalArgumentException if the name is null or already used
+	 * @see SoundBus#createBus(String)
+	 */
+	public static SoundBus createBus( String name ){
+		return createBus( name, masterBus );
+	}
+
+	/**
+	 * Returns the bus with the given name, or null if there is none. The master bus is called "master".
+	 */
+	public static SoundBus getBus( String name ){
+		for( SoundBus bus : buses ) {
+			if( bus.getName().equals( name ) ) return bus;
+		}
+		return null;
+	}
+
+	static synchronized SoundBus createBus( String name, SoundBus parent ){
+		if( name == null ) throw new IllegalArgumentException("Bus name cannot be null.");
+		if( getBus( name ) != null ) throw new IllegalArgumentException("There already is a bus called " + name);
+
+		SoundBus bus = new SoundBus( name, parent );
+		SoundBus[] list = Arrays.copyOf( buses, buses.length + 1 );
+		list[buses.length] = bus;
+		buses = list;
+		return bus;
+	}
+
+	/**
+	 * Loads an impulse response and creates a convolution reverb with it. The impulse response is decoded like
+	 * any other sound, so it can be in any supported format. Add the reverb to a bus and send sounds to it with
+	 * Audio.setSend(), so that all of them share one reverb.
+	 * @param impulseResponse A recording of how a room sounds, like a short click in a hall
+	 * @param partitionSize How many frames are convolved at a time, a power of two from 32 to 16384. Smaller
+	 * partitions have less latency, larger ones use less CPU time. 512 is a good start.
+	 * @return A reverb for the sample rate of the software mixer
+	 * @throws IllegalArgumentException if the partition size is not supported
+	 * @see ConvolutionReverb
+	 */
+	public static ConvolutionReverb createReverb( File impulseResponse, int partitionSize ) throws UnsupportedAudioFileException, IOException {
+		AudioInputStream stream = getAudioInputStream( impulseResponse );
+		AudioFormat format = stream.getFormat();
+		byte[] data;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[16384];
+			for( int length; (length = stream.read( buffer )) != -1; ) bytes.write( buffer, 0, length );
+			data = bytes.toByteArray();
+		} finally {
+			stream.close();
+		}
+
+		//Decoded sounds are always 16 bit little endian stereo
+		int frames = data.length / 4;
+		float[][] channels = new float[2][frames];
+		for( int i = 0; i < frames; i++ ) {
+			channels[0][i] = (short) ((data[i*4] & 0xFF) | (data[i*4+1] << 8)) / 32768f;
+			channels[1][i] = (short) ((data[i*4+2] & 0xFF) | (data[i*4+3] << 8)) / 32768f;
+		}
+
+		//Mono files are decoded to two equal channels, which only need to be convolved once
+		if( Arrays.equals( channels[0], channels[1] ) ) channels = new float[][]{ channels[0] };
+
+		return new ConvolutionReverb( channels, format.getSampleRate(), SoftwareMixer.OUTPUT_FORMAT.getSampleRate(), partitionSize );
+	}
+
+	/**
+	 * Returns all buses, parents before the buses inside them
+	 */
+	static SoundBus[] getBuses(){
+		return buses;
+	}
+
+	/**
+	 * Creates the daemon threads of the default loader pool
+	 */
+	private static class LoaderThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		public ForkJoinWorkerThread newThread( ForkJoinPool pool ) {
+			ForkJoinWorkerThread thread = new ForkJoinWorkerThread( pool ){};
+			thread.setName( "JSoundSystem Loader " + count.getAndIncrement() );
+			thread.setDaemon( true );						//Loading never keeps the application alive
+			return thread;
+		}
+	}
+
 }
@@ -0,0 +1,133 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+/**
+ * The inner loops of software mixing: decoding 16 bit PCM to floats, adding a block to the mix with a
+ * gain ramp and converting the mix back to 16 bit PCM. This class is the plain Java version. When the
+ * Java Vector API is available, VectorMixKernels (built from the src-vector folder) is used instead, which
+ * processes as many samples at a time as the CPU's SIMD registers can hold.
+ * <p>
+ * Set the system property jsoundsystem.mixKernels to "scalar" to always use the plain Java version.
+ */
+class MixKernels {
+
+	private static final MixKernels INSTANCE = load();
+
+	/**
+	 * Returns the fastest kernels that work on this JVM
+	 */
+	static MixKernels get() {
+		return INSTANCE;
+	}
+
+	private static MixKernels load() {
+		if( "scalar".equals( System.getProperty( "jsoundsystem.mixKernels" ) ) ) return new MixKernels();
+
+		//Only available on Java 16 or newer started with --add-modules jdk.incubator.vector
+		try {
+			MixKernels kernels = (MixKernels) Class.forName( "net.jsoundsystem.VectorMixKernels" ).getDeclaredConstructor().newInstance();
+			if( kernels.isSupported() ) return kernels;
+		} catch( ReflectiveOperationException | LinkageError e ) {
+			//Not available, use the plain version
+		}
+
+		return new MixKernels();
+	}
+
+	/**
+	 * Returns true if these kernels can be used on this CPU
+	 */
+	boolean isSupported() {
+		return true;
+	}
+
+	/**
+	 * Returns a short description of these kernels
+	 */
+	String getName() {
+		return "scalar";
+	}
+
+	/**
+	 * Decodes 16 bit PCM frames into interleaved stereo floats, mono frames are copied to both sides
+	 * @param input Raw sample data
+	 * @param inputOffset Where the first frame starts in the input
+	 * @param frames How many frames to decode
+	 * @param frameSize The size of one frame in bytes
+	 * @param channels 1 for mono, 2 or more for stereo
+	 * @param output Interleaved stereo output
+	 * @param outputFrame The first frame in the output to write to
+	 */
+	void decodePcm16( byte[] input, int inputOffset, int frames, int frameSize, int channels, boolean bigEndian, float[] output, int outputFrame ) {
+		int high = bigEndian ? 0 : 1;
+		int low = bigEndian ? 1 : 0;
+		int right = channels > 1 ? 2 : 0;
+
+		for( int i = 0; i < frames; i++ ) {
+			int offset = inputOffset + i * frameSize;
+			int out = (outputFrame + i) * 2;
+			output[out]   = (short)((input[offset + high] << 8) | (input[offset + low] & 0xFF)) / 32768.0f;
+			output[out+1] = (short)((input[offset + right + high] << 8) | (input[offset + right + low] & 0xFF)) / 32768.0f;
+		}
+	}
+
+	/**
+	 * Adds stereo frames to a mix buffer. The gain of frame i is start + step * (i + 1), so a whole
+	 * block ramps smoothly from one gain to the next.
+	 * @param source Interleaved stereo input
+	 * @param sourceFrame The first frame to read
+	 * @param mix Interleaved stereo buffer the frames are added to
+	 * @param mixFrame The first frame to add to
+	 * @param frames How many frames to add
+	 */
+	void mixRamp( float[] source, int sourceFrame, float[] mix, int mixFrame, int frames,
+			float leftStart, float leftStep, float rightStart, float rightStep ) {
+		int in = sourceFrame * 2;
+		int out = mixFrame * 2;
+
+		for( int i = 0; i < frames; i++ ) {
+			mix[out + i*2]   += source[in + i*2]   * (leftStart + leftStep * (i + 1));
+			mix[out + i*2+1] += source[in + i*2+1] * (rightStart + rightStep * (i + 1));
+		}
+	}
+
+	/**
+	 * Clips interleaved float samples and converts them to signed 16 bit little endian PCM
+	 * @param samples How many samples to convert, two per stereo frame
+	 */
+	void encodePcm16( float[] input, int samples, byte[] output ) {
+		for( int i = 0; i < samples; i++ ) {
+			float sample = Math.max( -1.0f, Math.min( input[i], 1.0f ) );
+			int value = (int)(sample * 32767.0f);
+			output[i*2] = (byte) value;
+			output[i*2+1] = (byte)(value >> 8);
+		}
+	}
+}
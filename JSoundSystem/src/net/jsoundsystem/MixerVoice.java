@@ -0,0 +1,651 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+
+
+/**
+ * A voice that is played by the SoftwareMixer instead of in its own thread. The caller only changes
+ * the playback state, all decoding, resampling and mixing is done block by block in the mixer thread.
+ * @see SoftwareMixer
+ */
+class MixerVoice implements Voice, VoiceDsp.Source {
+
+	//How many control changes can be waiting for the next block
+	private static final int CONTROL_QUEUE_SIZE = 64;
+
+	//Playback state, written by the caller and read by the mixer thread
+	private volatile boolean looping, paused, stopped;
+	private volatile boolean rewind, killVoice;
+	private volatile boolean stolen;
+	private volatile int priority;
+	private volatile SoundBus bus = JSoundSystem.getMasterBus();
+	private final EffectChain effects = new EffectChain();
+	private volatile SoundBus sendBus;
+	private volatile float sendLevel;
+
+	//Latest values set by the caller
+	private volatile float volume;
+	private volatile float panning;
+	private volatile float speed;
+
+	//Control changes from the caller, applied by the mixer thread once per block
+	private final ControlQueue controls = new ControlQueue( CONTROL_QUEUE_SIZE );
+	private float mixVolume, mixPanning, mixSpeed;
+	private volatile float playedVolume = 1.00f;
+	private boolean mixLooping;
+
+	//3D sound simulation
+	private boolean simulate3DEffect;
+	private int spatialSlot;
+	private float lastVolume;
+
+	//Virtual voices are out of range and are not mixed, they only remember where and when they left
+	private volatile boolean virtual;
+	private long virtualFrame, virtualSince;
+	private volatile long seekFrame;
+
+	//Where a streamed sound loops, in frames
+	private volatile long loopStart, loopEnd = -1;
+
+	//Playback data
+	private final String name;
+	private final AudioFormat soundFormat;
+	private final SampleData soundData;
+	private final SoundSource source;
+	private boolean released;
+
+	//Only used by the mixer thread
+	boolean active;
+	private volatile InputStream stream;
+	private final AtomicLong underruns = new AtomicLong();
+	private final VoiceDsp dsp;
+	private float[] effectBuffer;
+
+	//The send bus and level of the last block, only used by the mixer thread
+	private SoundBus mixSendBus;
+	private float mixSend;
+
+	MixerVoice( SoundSource source, SampleData data, AudioFormat format ) {
+		name = source.getName();
+		this.source = source;
+		soundFormat = format;
+		soundData = data;
+
+		//Set default values
+		volume = mixVolume = 1.00f;
+		speed = mixSpeed = 1.00f;
+		panning = mixPanning = 0.00f;
+		stopped = true;
+
+		dsp = new VoiceDsp( this, format, SoftwareMixer.BLOCK_FRAMES );
+	}
+
+	public void enableSpatializedSound(){
+		spatialSlot = JSoundSystem.getSpatializer().allocate();
+		simulate3DEffect = true;
+	}
+
+	public void setSourcePosition( float x, float y, float z ){
+		if( !simulate3DEffect ) return;
+		JSoundSystem.getSpatializer().setPosition( spatialSlot, x, y, z );
+		if( virtual ) JSoundSystem.getVirtualizer().move( this, x, y, z );
+	}
+
+	public void setLooped( boolean looping ){
+		this.looping = looping;
+		controls.offer( ControlQueue.LOOP, looping ? 1 : 0 );
+	}
+
+	public void setLoopPoints( long startFrame, long endFrame ){
+		loopStart = startFrame;
+		loopEnd = endFrame;
+	}
+
+	public void takeSettings( Voice parent ){
+		MixerVoice original = (MixerVoice) parent;
+		setVolume( original.volume );
+		setPanning( original.panning );
+		setSpeed( original.speed );
+		setLooped( original.looping );
+		priority = original.priority;
+		bus = original.bus;
+		setSend( original.sendBus, original.sendLevel );
+		if( simulate3DEffect && original.simulate3DEffect ) {
+			JSoundSystem.getSpatializer().copyPosition( original.spatialSlot, spatialSlot );
+		}
+	}
+
+	public void setVolume( float volume ){
+		this.volume = volume;
+		controls.offer( ControlQueue.VOLUME, volume );
+	}
+
+	public void setPanning( float panning ){
+		this.panning = panning;
+		controls.offer( ControlQueue.PANNING, panning );
+	}
+
+	public void setSpeed( float speed ){
+		this.speed = speed;
+		controls.offer( ControlQueue.SPEED, speed );
+	}
+
+	public void setBus( SoundBus bus ){
+		this.bus = bus;
+	}
+
+	public SoundBus getBus(){
+		return bus;
+	}
+
+	public void setSend( SoundBus bus, float level ){
+		sendLevel = bus == null ? 0 : Math.max( 0, level );
+		sendBus = bus;
+	}
+
+	public SoundBus getSendBus(){
+		return sendBus;
+	}
+
+	public float getSendLevel(){
+		return sendLevel;
+	}
+
+	public EffectChain getEffects(){
+		return effects;
+	}
+
+	public float getVolume(){
+		return volume;
+	}
+
+	public float getPlayedVolume(){
+		return playedVolume;
+	}
+
+	public void setPriority( int priority ){
+		this.priority = priority;
+	}
+
+	public int getPriority(){
+		return priority;
+	}
+
+	/**
+	 * Our channel was given to another sound. The mixer fades us out during the next block and then stops us.
+	 */
+	public void steal(){
+		stolen = true;
+	}
+
+	/**
+	 * Begins playing the sound or resumes if it was paused
+	 */
+	public boolean play(){
+		if( killVoice ) return false;
+
+		//Still playing, just out of range
+		if( virtual ) return true;
+
+		//Sounds out of range start as virtual voices without taking a channel
+		if( stopped && simulate3DEffect && soundData != null && JSoundSystem.isVoiceVirtualization()
+				&& !JSoundSystem.getSpatializer().isInRange( spatialSlot ) ) {
+			synchronized( this ) {
+				virtualFrame = seekFrame;
+				virtualSince = System.nanoTime();
+				rewind = true;
+				stolen = false;
+				paused = false;
+				stopped = false;
+				virtual = true;
+			}
+			registerVirtual();
+			return true;
+		}
+
+		//No free channels to start a new sound
+		return JSoundSystem.getSoftwareMixer().addVoice( this );
+	}
+
+	/**
+	 * Marks the voice as playing, called by the mixer once the voice has a channel
+	 */
+	void start(){
+		stolen = false;
+		paused = false;
+		stopped = false;
+	}
+
+	public void pause(){
+		paused = true;
+
+		//A virtual sound remembers where it would have been by now
+		if( virtual ) {
+			synchronized( this ) {
+				leaveVirtual();
+			}
+		}
+	}
+
+	/**
+	 * Stops playing and rewinds the sound. The mixer removes the voice and releases
+	 * its channel at the beginning of the next block.
+	 */
+	public void stopPlaying(){
+		rewind = true;
+		stopped = true;
+
+		if( virtual ) {
+			synchronized( this ) {
+				leaveVirtual();
+			}
+		}
+		seekFrame = 0;
+	}
+
+	public boolean resumeFromVirtual(){
+		synchronized( this ) {
+			if( !virtual ) return true;
+
+			//Paused, stopped or finished while we were virtual
+			if( paused || stopped || killVoice || getVirtualCursor() < 0 ) {
+				leaveVirtual();
+				return true;
+			}
+
+			seekFrame = getVirtualCursor();
+			virtual = false;
+		}
+
+		if( JSoundSystem.getSoftwareMixer().addVoice( this ) ) return true;
+
+		//No free channel, try again later
+		synchronized( this ) {
+			virtual = true;
+		}
+		return false;
+	}
+
+	/**
+	 * Called by the mixer thread when we are out of range. The mixer drops us and frees our channel
+	 * at the beginning of the next block.
+	 */
+	private void becomeVirtual(){
+		synchronized( this ) {
+			virtualFrame = getCursor();
+			virtualSince = System.nanoTime();
+			rewind = true;
+			virtual = true;
+		}
+
+		registerVirtual();
+	}
+
+	/**
+	 * Lets the virtualizer bring us back once we are in range again
+	 */
+	private void registerVirtual(){
+		float[] position = JSoundSystem.getSpatializer().getPosition( spatialSlot );
+		JSoundSystem.getVirtualizer().add( this, position[0], position[1], position[2] );
+	}
+
+	/**
+	 * Stops being virtual without playing, a paused sound continues where it would have been by now.
+	 * Must be called while holding our lock.
+	 */
+	private void leaveVirtual(){
+		if( !virtual ) return;
+		virtual = false;
+		JSoundSystem.getVirtualizer().remove( this );
+
+		long frame = getVirtualCursor();
+		if( frame >= 0 ) seekFrame = frame;
+		else stopped = true;
+	}
+
+	/**
+	 * Works out where we would be playing by now. Must be called while holding our lock.
+	 * @return The current frame or -1 if the sound has ended
+	 */
+	private long getVirtualCursor(){
+		long totalFrames = soundData.data.limit() / soundFormat.getFrameSize();
+		return VoiceVirtualizer.advance( virtualFrame, virtualSince, speed, soundFormat, totalFrames, looping );
+	}
+
+	/**
+	 * Returns the frame that will be mixed next, only used by the mixer thread
+	 */
+	private long getCursor(){
+		if( !(stream instanceof SampleInputStream) ) return seekFrame;
+		int position = ((SampleInputStream) stream).position() - dsp.getBufferedBytes();
+		return Math.max( 0, position / soundFormat.getFrameSize() );
+	}
+
+	/**
+	 * Returns true if we are out of range and can continue as a virtual voice
+	 */
+	private boolean canBecomeVirtual(){
+		return lastVolume == 0 && soundData != null && JSoundSystem.isVoiceVirtualization();
+	}
+
+	public void dispose(){
+		killVoice = true;
+		stopPlaying();
+		JSoundSystem.getSoftwareMixer().disposeVoice( this );
+
+		//Give the sound data and 3D slot back
+		synchronized( this ) {
+			if( released ) return;
+			released = true;
+		}
+		if( simulate3DEffect ) JSoundSystem.getSpatializer().free( spatialSlot );
+		if( soundData != null ) JSoundSystem.getSampleCache().release( soundData );
+	}
+
+	public boolean isPlaying(){
+		return !paused && !stopped;
+	}
+
+	public boolean isPaused(){
+		return paused;
+	}
+
+	/**
+	 * Returns true if the mixer should drop this voice and release its channel
+	 */
+	boolean isFinished(){
+		return stopped || killVoice || virtual;
+	}
+
+	boolean isKilled(){
+		return killVoice;
+	}
+
+	public AudioFormat getAudioFormat(){
+		return soundFormat;
+	}
+
+	public float getBufferFill(){
+		if( soundData != null ) return 1;
+		InputStream current = stream;
+		return current instanceof StreamBuffer ? ((StreamBuffer) current).getFill() : 0;
+	}
+
+	public long getUnderruns(){
+		return underruns.get();
+	}
+
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Makes a copy of this voice that shares the same sound data and effect settings
+	 */
+	public MixerVoice clone(){
+		MixerVoice copy = new MixerVoice( source, soundData, soundFormat );
+		if( soundData != null ) JSoundSystem.getSampleCache().retain( soundData );
+
+		//Copy attributes
+		copy.setVolume( this.volume );
+		copy.setPanning( this.panning );
+		copy.setLooped( this.looping );
+		copy.setSpeed( this.speed );
+		copy.priority = this.priority;
+		copy.bus = this.bus;
+		copy.setSend( this.sendBus, this.sendLevel );
+		copy.loopStart = this.loopStart;
+		copy.loopEnd = this.loopEnd;
+		if( simulate3DEffect ) {
+			copy.enableSpatializedSound();
+			JSoundSystem.getSpatializer().copyPosition( spatialSlot, copy.spatialSlot );
+		}
+
+		return copy;
+	}
+
+	/**
+	 * Resamples, pans and adds the next block of this voice to the mix buffer. Must only be called
+	 * from the mixer thread.
+	 * @param mixBuffer Interleaved stereo buffer the voice is added to
+	 * @param frames How many frames to mix
+	 * @param outputRate The frame rate of the mixer output
+	 */
+	void mix( float[] mixBuffer, int frames, float outputRate ) throws Exception {
+		if( rewind ) {
+			rewind = false;
+			rewindStream();
+			dsp.reset();
+			effects.reset();
+		}
+
+		//Apply all control changes made since the last block at once
+		drainControls();
+
+		//A paused sound that lost its channel simply stops
+		if( stolen && (paused || stopped) ) {
+			stolen = false;
+			paused = false;
+			stopped = true;
+			rewind = true;
+			return;
+		}
+
+		if( paused || stopped ) return;
+
+		//Our bus is paused, hold the sound where it is
+		if( bus.isCombinedPaused() && !stolen ) return;
+
+		//Update 3D sound effects, sounds that are out of range become virtual
+		if( simulate3DEffect ) {
+			update3DSound();
+			if( !stolen && canBecomeVirtual() ) {
+				becomeVirtual();
+				return;
+			}
+		}
+		dsp.setGain( mixVolume, mixPanning );
+		playedVolume = mixVolume * bus.getCombinedGain();
+		JSoundSystem.updateChannel( this );
+
+		//Our channel was given to a more important sound, fade out during this block and stop
+		if( stolen ) {
+			stolen = false;
+			dsp.fadeOut();
+			stopped = true;
+			rewind = true;
+		}
+
+		//Reached the end of the sound
+		double step = mixSpeed * soundFormat.getSampleRate() / outputRate;
+		if( mixVoice( mixBuffer, frames, step, outputRate ) < frames ) {
+			stopped = true;
+			rewind = true;
+		}
+	}
+
+	/**
+	 * Adds the next block to the mix buffer, going through a buffer of our own first if we have effects
+	 * or send to another bus
+	 * @return The number of frames that were mixed
+	 */
+	private int mixVoice( float[] mixBuffer, int frames, double step, float outputRate ) throws Exception {
+		SoundBus send = sendBus;
+		float level = send == null ? 0 : sendLevel;
+
+		//The send was removed or moved to another bus, the old bus fades out during this block
+		SoundBus fading = null;
+		float fadingLevel = 0;
+		if( send != mixSendBus ) {
+			if( mixSend > 0 ) {
+				fading = mixSendBus;
+				fadingLevel = mixSend;
+			}
+			mixSendBus = send;
+			mixSend = 0;
+		}
+		if( effects.isEmpty() && send == null && fading == null ) return dsp.mix( mixBuffer, frames, step );
+
+		if( effectBuffer == null || effectBuffer.length < frames * 2 ) effectBuffer = new float[frames * 2];
+		Arrays.fill( effectBuffer, 0, frames * 2, 0 );
+		int mixed = dsp.mix( effectBuffer, frames, step );
+		effects.process( effectBuffer, mixed, outputRate );
+
+		for( int i = 0; i < mixed * 2; i++ ) {
+			mixBuffer[i] += effectBuffer[i];
+		}
+
+		//Add the copy for the send bus, ramping when the send level changed
+		if( send != null ) addToSend( send, mixSend, level, mixed, frames );
+		if( fading != null ) addToSend( fading, fadingLevel, 0, mixed, frames );
+		mixSend = level;
+		return mixed;
+	}
+
+	/**
+	 * Adds the block in the effect buffer to a send bus with a gain that ramps over the whole block
+	 */
+	private void addToSend( SoundBus bus, float startLevel, float endLevel, int mixed, int frames ) {
+		float[] sendBuffer = SoftwareMixer.getBusBuffer( bus );
+		float gain = startLevel;
+		float gainStep = (endLevel - startLevel) / frames;
+		for( int i = 0; i < mixed * 2; i += 2 ) {
+			gain += gainStep;
+			sendBuffer[i] += effectBuffer[i] * gain;
+			sendBuffer[i+1] += effectBuffer[i+1] * gain;
+		}
+	}
+
+	/**
+	 * Takes all control changes from the queue. Must only be called from the mixer thread.
+	 */
+	private void drainControls() {
+		boolean overflowed = controls.checkOverflow();
+
+		for( int command; (command = controls.poll()) != ControlQueue.NONE; ) {
+			switch( command ) {
+				case ControlQueue.VOLUME:	mixVolume = controls.value(); break;
+				case ControlQueue.PANNING:	mixPanning = controls.value(); break;
+				case ControlQueue.SPEED:	mixSpeed = controls.value(); break;
+				case ControlQueue.LOOP:		mixLooping = controls.value() != 0; break;
+			}
+		}
+
+		//Some changes were dropped, so take the latest values instead
+		if( overflowed ) {
+			mixVolume = volume;
+			mixPanning = panning;
+			mixSpeed = speed;
+			mixLooping = looping;
+		}
+	}
+
+	/**
+	 * Reads raw data from the sound stream for the DSP, looping the sound if needed
+	 */
+	public int readSamples( byte[] buffer, int offset, int length ) throws Exception {
+		if( stream == null ) openStream();
+
+		//Continue where a virtual or paused sound would have been
+		long seek = seekFrame;
+		if( seek > 0 ) {
+			stream.skip( seek * soundFormat.getFrameSize() );
+			seekFrame = 0;
+		}
+
+		//Streamed sounds loop in their decoder, so the loop has no gap
+		if( stream instanceof StreamBuffer ) ((StreamBuffer) stream).setLoop( mixLooping && !stopped, loopStart, loopEnd );
+
+		int len = stream.read( buffer, offset, length );
+		if( len == -1 && mixLooping && !stopped ) {
+
+			//Start over from the beginning, streamed sounds continue with a buffer that decodes from the loop start
+			if( stream instanceof StreamBuffer ) stream = ((StreamBuffer) stream).restart();
+			else rewindStream();
+			if( stream == null ) openStream();
+			len = stream.read( buffer, offset, length );
+		}
+
+		//Looping was switched on after the decoder had finished, start decoding the loop again right away
+		else if( mixLooping && stream instanceof StreamBuffer ) ((StreamBuffer) stream).prepareRestart();
+
+		return len;
+	}
+
+	private void openStream() throws Exception {
+
+		//It's a sound loaded into memory
+		if( soundData != null ) stream = new SampleInputStream( soundData.data );
+
+		//Streamed sounds are decoded ahead by a decoder thread, so the mixer never waits for the file
+		else stream = new StreamBuffer( source, soundFormat, JSoundSystem.getStreamBufferTime(), underruns,
+				!JSoundSystem.getOutputBackend().isRealtime() );
+	}
+
+	/**
+	 * Resets the sound stream to the beginning. Memory sounds are simply reset while streamed
+	 * sounds need to reopen the file.
+	 */
+	private void rewindStream() throws Exception {
+		if( stream != null && soundData != null ) stream.reset();
+		else closeStream();
+	}
+
+	void closeStream() {
+		if( stream == null ) return;
+
+		try {
+			stream.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		stream = null;
+	}
+
+	/**
+	 * Takes the volume and panning computed for our position by the last spatial pass
+	 */
+	private void update3DSound() {
+		Spatializer spatializer = JSoundSystem.getSpatializer();
+		float newVolume = spatializer.getVolume( spatialSlot );
+
+		//Now actually update the effects
+		mixVolume = (newVolume + lastVolume) / 2;
+		mixPanning = spatializer.getPanning( spatialSlot );
+		lastVolume = newVolume;
+	}
+}
@@ -0,0 +1,272 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+import net.jsoundsystem.output.AudioOutput;
+import net.jsoundsystem.output.OutputBackend;
+
+/**
+ * Keeps opened outputs around so that sounds don't have to open a new line every time they are played.
+ * Opening a line can take several milliseconds on some drivers, which adds directly to the delay between
+ * calling play() and hearing the sound. Outputs are pooled per AudioFormat and can be opened in advance
+ * with JSoundSystem.initOutputPool().
+ * @see JSoundSystem#getOutputPool()
+ */
+public final class OutputPool {
+
+	//Idle outputs ready to be lent, by format
+	private final HashMap<String, ArrayList<AudioOutput>> idle = new HashMap<String, ArrayList<AudioOutput>>();
+
+	//Outputs that are lent and the backend that opened them
+	private final IdentityHashMap<AudioOutput, OutputBackend> lent = new IdentityHashMap<AudioOutput, OutputBackend>();
+
+	//Backend that opened the idle outputs
+	private OutputBackend backend;
+
+	private int maxIdle = 32;
+	private int idleCount;
+
+	//Statistics
+	private long acquireCount, reuseCount;
+	private long totalAcquireTime, maxAcquireTime;
+
+	OutputPool(){
+	}
+
+	/**
+	 * Lends an output in the specified format, opening a new one if none is idle. The output is stopped
+	 * with empty buffers and must be given back with release().
+	 */
+	AudioOutput acquire( AudioFormat format ) throws LineUnavailableException {
+		long startTime = System.nanoTime();
+		OutputBackend current = JSoundSystem.getOutputBackend();
+		AudioOutput output = null;
+
+		synchronized( this ) {
+			checkBackend( current );
+
+			ArrayList<AudioOutput> outputs = idle.get( getKey(format) );
+			if( outputs != null && !outputs.isEmpty() ) {
+				output = outputs.remove( outputs.size() - 1 );
+				idleCount--;
+				reuseCount++;
+			}
+		}
+
+		if( output == null ) output = open( current, format );
+
+		synchronized( this ) {
+			long time = System.nanoTime() - startTime;
+			acquireCount++;
+			lent.put( output, current );
+			totalAcquireTime += time;
+			maxAcquireTime = Math.max( maxAcquireTime, time );
+		}
+
+		return output;
+	}
+
+	/**
+	 * Gives back an output acquired through acquire(). It is kept open for the next sound unless the
+	 * pool is already full, then it is closed.
+	 */
+	void release( AudioOutput output ) {
+		output.stop();
+		output.flush();
+
+		synchronized( this ) {
+			OutputBackend owner = lent.remove( output );
+
+			//Outputs from a backend that is not used anymore are closed
+			if( owner == backend && idleCount < maxIdle ) {
+				add( output );
+				return;
+			}
+		}
+
+		output.close();
+	}
+
+	/**
+	 * Opens outputs in the specified format until there are at least count idle ones
+	 */
+	void warmUp( AudioFormat format, int count ) throws LineUnavailableException {
+		OutputBackend current = JSoundSystem.getOutputBackend();
+
+		synchronized( this ) {
+			checkBackend( current );
+		}
+
+		while( getIdleCount(format) < count ) {
+			AudioOutput output = open( current, format );
+
+			synchronized( this ) {
+				checkBackend( current );
+				maxIdle = Math.max( maxIdle, idleCount + 1 );
+				add( output );
+			}
+		}
+	}
+
+	/**
+	 * Opens a new output, the time it takes is reported to the metrics
+	 */
+	private static AudioOutput open( OutputBackend backend, AudioFormat format ) throws LineUnavailableException {
+		long startTime = System.nanoTime();
+		AudioOutput output = backend.openOutput( format );
+		JSoundSystem.getMetricsCollector().lineOpened( System.nanoTime() - startTime );
+		return output;
+	}
+
+	/**
+	 * Throws away all idle outputs if the output backend has been changed since they were opened
+	 */
+	private void checkBackend( OutputBackend current ) {
+		if( backend == current ) return;
+		backend = current;
+
+		for( ArrayList<AudioOutput> outputs : idle.values() ) {
+			for( AudioOutput output : outputs ) output.close();
+		}
+		idle.clear();
+		idleCount = 0;
+	}
+
+	private void add( AudioOutput output ) {
+		String key = getKey( output.getFormat() );
+		ArrayList<AudioOutput> outputs = idle.get( key );
+		if( outputs == null ) {
+			outputs = new ArrayList<AudioOutput>();
+			idle.put( key, outputs );
+		}
+
+		outputs.add( output );
+		idleCount++;
+	}
+
+	/**
+	 * Closes all idle outputs. Outputs that are lent are closed when they are given back if the pool is full.
+	 */
+	public void clear() {
+		ArrayList<AudioOutput> closing = new ArrayList<AudioOutput>();
+
+		synchronized( this ) {
+			Iterator<ArrayList<AudioOutput>> iterator = idle.values().iterator();
+			while( iterator.hasNext() ) closing.addAll( iterator.next() );
+			idle.clear();
+			idleCount = 0;
+		}
+
+		for( AudioOutput output : closing ) output.close();
+	}
+
+	/**
+	 * AudioFormat doesn't implement equals(), so outputs are pooled by a description of their format
+	 */
+	private static String getKey( AudioFormat format ) {
+		return format.getEncoding() + "/" + format.getSampleRate() + "/" + format.getSampleSizeInBits() + "/" + format.getChannels()
+			+ "/" + format.getFrameSize() + "/" + format.getFrameRate() + "/" + format.isBigEndian();
+	}
+
+	/**
+	 * Sets how many idle outputs the pool keeps open in total. Outputs that are given back to a full pool
+	 * are closed. The default is 32. Warming up the pool raises this limit if needed.
+	 * @param count The maximum number of idle outputs, 0 disables pooling
+	 * @throws IllegalArgumentException if count is negative
+	 */
+	public synchronized void setMaxIdle( int count ) {
+		if( count < 0 ) throw new IllegalArgumentException("Pool size cannot be negative.");
+		maxIdle = count;
+	}
+
+	/**
+	 * Returns how many idle outputs the pool keeps open in total
+	 */
+	public synchronized int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * Returns how many opened outputs are waiting in the pool
+	 */
+	public synchronized int getIdleCount() {
+		return idleCount;
+	}
+
+	/**
+	 * Returns how many opened outputs in the specified format are waiting in the pool
+	 */
+	public synchronized int getIdleCount( AudioFormat format ) {
+		ArrayList<AudioOutput> outputs = idle.get( getKey(format) );
+		return outputs == null ? 0 : outputs.size();
+	}
+
+	/**
+	 * Returns how many outputs are currently lent to sounds
+	 */
+	public synchronized int getLentCount() {
+		return lent.size();
+	}
+
+	/**
+	 * Returns how many times a sound asked for an output
+	 */
+	public synchronized long getAcquireCount() {
+		return acquireCount;
+	}
+
+	/**
+	 * Returns how many times a sound got an output from the pool without opening a new one
+	 */
+	public synchronized long getReuseCount() {
+		return reuseCount;
+	}
+
+	/**
+	 * Returns the average time in nanoseconds a sound had to wait for an output
+	 */
+	public synchronized long getAverageAcquireTime() {
+		return acquireCount == 0 ? 0 : totalAcquireTime / acquireCount;
+	}
+
+	/**
+	 * Returns the longest time in nanoseconds a sound had to wait for an output
+	 */
+	public synchronized long getMaxAcquireTime() {
+		return maxAcquireTime;
+	}
+}
@@ -0,0 +1,206 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A process wide cache of decoded sounds. Every sound file that is loaded into memory is decoded only
+ * once as long as it is in the cache, no matter how many JSound objects are created from it. Sounds are
+ * identified by their canonical path and modification time, so a file that is changed on disk will be
+ * decoded again.
+ * <p>
+ * Sounds that are in use are always kept. Once a sound has been disposed of, its data stays in
+ * the cache until the cache grows beyond its maximum size, at which point the least recently used
+ * sounds are removed first.
+ * @see JSoundSystem#getSampleCache()
+ */
+public final class SampleCache {
+
+	//Sorted from least recently used to most recently used
+	private final LinkedHashMap<String, SampleData> entries = new LinkedHashMap<String, SampleData>( 16, 0.75f, true );
+
+	private long maxSize = 64 * 1024 * 1024;
+	private long size;
+	private long hits, misses;
+
+	SampleCache(){
+	}
+
+	/**
+	 * Returns the decoded data of the specified file, decoding it if it isn't cached yet. The data
+	 * must be given back through release() once it is not used anymore.
+	 */
+	SampleData acquire( File file ) throws UnsupportedAudioFileException, IOException {
+		return acquire( file.getCanonicalPath() + "@" + file.lastModified(), new FileSource( file ) );
+	}
+
+	/**
+	 * Returns the decoded data of a sound identified by key, decoding it from source if it isn't cached yet
+	 */
+	SampleData acquire( String key, SoundSource source ) throws UnsupportedAudioFileException, IOException {
+		synchronized( this ) {
+			SampleData cached = entries.get( key );
+			if( cached != null ) {
+				hits++;
+				cached.references++;
+				return cached;
+			}
+			misses++;
+		}
+
+		//Decode outside of the lock so other sounds can be loaded at the same time
+		SoundSystemMetrics metrics = JSoundSystem.getMetricsCollector();
+		long startTime = System.nanoTime();
+		SampleData decoded;
+
+		try {
+			decoded = source.decode( key );
+		} catch( UnsupportedAudioFileException e ) {
+			metrics.decodeFailed();
+			throw e;
+		} catch( IOException e ) {
+			metrics.decodeFailed();
+			throw e;
+		}
+		metrics.soundDecoded( System.nanoTime() - startTime, decoded.size() );
+
+		synchronized( this ) {
+
+			//Someone else decoded the same file while we were busy, use theirs
+			SampleData cached = entries.get( key );
+			if( cached != null ) {
+				cached.references++;
+				return cached;
+			}
+
+			decoded.references++;
+			entries.put( key, decoded );
+			size += decoded.size();
+			evict();
+			return decoded;
+		}
+	}
+
+	/**
+	 * Adds another user to data that has already been acquired, for example by a cloned sound
+	 */
+	synchronized void retain( SampleData data ) {
+		data.references++;
+	}
+
+	/**
+	 * Gives back data acquired through acquire() or retain(). It may be removed from the cache once
+	 * there are no more users.
+	 */
+	synchronized void release( SampleData data ) {
+		if( data.references > 0 ) data.references--;
+		evict();
+	}
+
+	/**
+	 * Removes least recently used sounds that are not in use until the cache fits into its maximum size
+	 */
+	private void evict() {
+		Iterator<SampleData> iterator = entries.values().iterator();
+		while( size > maxSize && iterator.hasNext() ) {
+			SampleData data = iterator.next();
+			if( data.references > 0 ) continue;
+
+			iterator.remove();
+			size -= data.size();
+		}
+	}
+
+	/**
+	 * Sets how many bytes of decoded sound data the cache may hold. Sounds that are in use are never removed,
+	 * so the cache can grow beyond this size while they are playing. The default is 64 MB.
+	 * @param bytes The maximum size in bytes, 0 keeps only sounds that are in use
+	 * @throws IllegalArgumentException if bytes is negative
+	 */
+	public synchronized void setMaxSize( long bytes ) {
+		if( bytes < 0 ) throw new IllegalArgumentException("Cache size cannot be negative.");
+		maxSize = bytes;
+		evict();
+	}
+
+	/**
+	 * Returns how many bytes of decoded sound data the cache may hold
+	 */
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns how many bytes of decoded sound data are currently held by the cache
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns how many different sounds are currently held by the cache
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns how many times a sound was loaded without having to decode it
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns how many times a sound had to be decoded because it was not in the cache
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Removes all sounds that are not in use from the cache
+	 */
+	public synchronized void clear() {
+		Iterator<SampleData> iterator = entries.values().iterator();
+		while( iterator.hasNext() ) {
+			SampleData data = iterator.next();
+			if( data.references > 0 ) continue;
+
+			iterator.remove();
+			size -= data.size();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream that reads decoded sound data from a ByteBuffer. Every stream has its own position
+ * so any number of voices can read the same SampleData at the same time.
+ */
+class SampleInputStream extends InputStream {
+	private final ByteBuffer buffer;
+	private int mark;
+
+	SampleInputStream( ByteBuffer data ){
+		buffer = data.duplicate();
+		buffer.rewind();
+	}
+
+	public int read() {
+		if( !buffer.hasRemaining() ) return -1;
+		return buffer.get() & 0xFF;
+	}
+
+	public int read( byte[] bytes, int offset, int length ) {
+		if( length == 0 ) return 0;
+		if( !buffer.hasRemaining() ) return -1;
+
+		length = Math.min( length, buffer.remaining() );
+		buffer.get( bytes, offset, length );
+		return length;
+	}
+
+	public long skip( long n ) {
+		int skipped = (int) Math.max( 0, Math.min( n, buffer.remaining() ) );
+		buffer.position( buffer.position() + skipped );
+		return skipped;
+	}
+
+	/**
+	 * Returns how many bytes have been read since the beginning of the data
+	 */
+	int position() {
+		return buffer.position();
+	}
+
+	public int available() {
+		return buffer.remaining();
+	}
+
+	public boolean markSupported() {
+		return true;
+	}
+
+	public void mark( int readLimit ) {
+		mark = buffer.position();
+	}
+
+	public void reset() {
+		buffer.position( mark );
+	}
+}
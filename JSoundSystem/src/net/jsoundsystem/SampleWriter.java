@@ -0,0 +1,171 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import net.jsoundsystem.JSoundSystem.SampleStorage;
+
+/**
+ * Decodes a whole AudioInputStream straight into the ByteBuffer it will be played from. Depending on the
+ * SampleStorage the buffer lives on the heap, in direct memory outside the heap or in a memory mapped
+ * scratch file. Streams of unknown length are collected in blocks first and copied once when they end.
+ */
+class SampleWriter {
+
+	//Size of the blocks a stream is collected in when its length is not known in advance
+	private static final int BLOCK_SIZE = 256 * 1024;
+
+	private final SampleStorage storage;
+	private final byte[] chunk = new byte[16 * 1024];
+
+	SampleWriter( SampleStorage storage ){
+		this.storage = storage;
+	}
+
+	/**
+	 * Reads the stream until its end and returns a read only buffer with all decoded data
+	 */
+	ByteBuffer decode( AudioInputStream stream ) throws IOException {
+		if( storage == SampleStorage.MAPPED ) return decodeToFile( stream );
+
+		long frames = stream.getFrameLength();
+		if( frames == AudioSystem.NOT_SPECIFIED ) return decodeBlocks( stream );
+
+		//Allocate everything at once if we know how long the sound is
+		int frameSize = Math.max( 1, stream.getFormat().getFrameSize() );
+		long expected = frames * frameSize;
+		if( expected > Integer.MAX_VALUE ) throw new IOException("Sound is too large to be loaded into memory.");
+
+		ByteBuffer buffer = allocate( (int)expected );
+		while( buffer.remaining() >= frameSize ) {
+			if( read( stream, buffer ) == -1 ) break;
+		}
+		buffer.flip();
+
+		//The stream ended early, don't keep the unused space around
+		if( buffer.limit() < buffer.capacity() ) buffer = allocate( buffer.limit() ).put( buffer );
+		buffer.rewind();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Decodes a stream of unknown length, like OGG or MP3, into blocks on the heap. Once the length is known
+	 * the blocks are copied once into a buffer of the exact size.
+	 */
+	private ByteBuffer decodeBlocks( AudioInputStream stream ) throws IOException {
+
+		//Streams only return whole frames, so blocks hold whole frames as well
+		int frameSize = Math.max( 1, stream.getFormat().getFrameSize() );
+		int blockSize = BLOCK_SIZE / frameSize * frameSize;
+
+		ArrayList<byte[]> blocks = new ArrayList<byte[]>();
+		long length = 0;
+		int filled = blockSize;
+		while( true ) {
+			if( filled == blockSize ) {
+				blocks.add( new byte[blockSize] );
+				filled = 0;
+			}
+
+			int len = stream.read( blocks.get( blocks.size() - 1 ), filled, blockSize - filled );
+			if( len == -1 ) break;
+			filled += len;
+			length += len;
+			if( length > Integer.MAX_VALUE ) throw new IOException("Sound is too large to be loaded into memory.");
+		}
+
+		ByteBuffer buffer = allocate( (int)length );
+		for( int i = 0; i < blocks.size(); i++ ) {
+			buffer.put( blocks.get(i), 0, i == blocks.size() - 1 ? filled : blockSize );
+		}
+		buffer.flip();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Reads as much as possible into the remaining space of the buffer. Heap buffers are read into
+	 * directly, direct buffers through a small chunk.
+	 * @return The number of bytes read or -1 at the end of the stream
+	 */
+	private int read( InputStream stream, ByteBuffer buffer ) throws IOException {
+		if( buffer.hasArray() ) {
+			int len = stream.read( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+			if( len > 0 ) buffer.position( buffer.position() + len );
+			return len;
+		}
+
+		int len = stream.read( chunk, 0, Math.min( chunk.length, buffer.remaining() ) );
+		if( len > 0 ) buffer.put( chunk, 0, len );
+		return len;
+	}
+
+	private ByteBuffer allocate( int capacity ) {
+		if( storage == SampleStorage.DIRECT ) return ByteBuffer.allocateDirect( capacity );
+		return ByteBuffer.allocate( capacity );
+	}
+
+	/**
+	 * Writes the decoded stream into a scratch file and maps it into memory. The data never touches the heap.
+	 */
+	private ByteBuffer decodeToFile( AudioInputStream stream ) throws IOException {
+		File scratch = File.createTempFile( "jsoundsystem", ".pcm" );
+		scratch.deleteOnExit();
+
+		RandomAccessFile file = new RandomAccessFile( scratch, "rw" );
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer wrapped = ByteBuffer.wrap( chunk );
+
+			int len;
+			while( (len = stream.read( chunk, 0, chunk.length )) != -1 ) {
+				wrapped.clear().limit( len );
+				while( wrapped.hasRemaining() ) channel.write( wrapped );
+			}
+
+			return channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ).asReadOnlyBuffer();
+		}
+		finally {
+			file.close();
+
+			//The mapping stays valid after the file is closed. Some systems don't allow deleting
+			//mapped files, in that case it is deleted when the JVM exits.
+			scratch.delete();
+		}
+	}
+}
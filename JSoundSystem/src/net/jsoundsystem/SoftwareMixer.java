@@ -0,0 +1,301 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+import net.jsoundsystem.output.AudioOutput;
+
+/**
+ * A single thread that sums all active MixerVoices into one output line, block by block.
+ * No matter how many sounds are playing, the software mixer only uses one thread and one line.
+ * <p>
+ * Voices are first summed into the buffer of their bus. Once all voices are mixed, every bus is added to
+ * its parent with its own volume, starting with the buses that are nested deepest, until everything ends
+ * up in the master bus.
+ * @see MixerVoice
+ * @see SoundBus
+ */
+class SoftwareMixer extends Thread {
+
+	/**
+	 * The format every voice is resampled and mixed to
+	 */
+	static final AudioFormat OUTPUT_FORMAT = new AudioFormat( 44100, 16, 2, true, false );
+
+	//Mix 1024 frames at a time, the same buffer size AudioThreads use
+	static final int BLOCK_FRAMES = 1024;
+
+	//All voices that hold a channel in the mixer. Guarded by itself.
+	private final ArrayList<MixerVoice> voices = new ArrayList<MixerVoice>();
+	private MixerVoice[] mixList = new MixerVoice[0];
+
+	//Preallocated output buffer, bus buffers are allocated the first time a bus is used
+	private final byte[] outputBuffer = new byte[BLOCK_FRAMES * 4];
+	private final MixKernels kernels = MixKernels.get();
+
+	SoftwareMixer() {
+		super( "JSoundSystem Mixer" );
+		setPriority( Thread.MAX_PRIORITY );		//The only thread producing sound
+		setDaemon( true );
+	}
+
+	/**
+	 * Adds a voice to the mix and reserves a channel for it. Does nothing if the voice is already being mixed.
+	 * @return false if there was no free channel for the voice
+	 */
+	boolean addVoice( MixerVoice voice ) {
+		synchronized( voices ) {
+
+			//Voices that are still being mixed might have lost their channel
+			if( !JSoundSystem.reserveChannel( voice ) ) return false;
+
+			voice.start();
+			if( voice.active ) return true;
+
+			voice.active = true;
+			voices.add( voice );
+			voices.notifyAll();
+			return true;
+		}
+	}
+
+	/**
+	 * Releases the resources of a disposed voice. A voice that is still being mixed is
+	 * cleaned up by the mixer thread instead.
+	 */
+	void disposeVoice( MixerVoice voice ) {
+		synchronized( voices ) {
+			if( !voice.active ) voice.closeStream();
+		}
+	}
+
+	public void run() {
+		AudioOutput outputLine = null;
+		float outputRate = OUTPUT_FORMAT.getFrameRate();
+
+		while( true ) {
+			int count = collectVoices();
+
+			//Without an output line the voices are stopped so they give back their channels,
+			//the next sound that is played tries to open the line again
+			if( outputLine == null ) {
+				outputLine = openOutput();
+				if( outputLine == null ) {
+					failVoices( count );
+					continue;
+				}
+			}
+
+			//Compute all 3D effects for this block in one go
+			JSoundSystem.getSpatializer().update();
+
+			//Sum all voices into their buses
+			for( int i = 0; i < count; i++ ) {
+				MixerVoice voice = mixList[i];
+				mixList[i] = null;
+
+				try {
+					voice.mix( getBusBuffer( voice.getBus() ), BLOCK_FRAMES, outputRate );
+				} catch( Exception e ) {
+					JSoundSystem.getMetricsCollector().playbackFailed();
+					System.err.println("Error playing sound ("+ voice.getName() +"): " + e);
+					e.printStackTrace();
+					voice.stopPlaying();
+				}
+			}
+
+			float[] mixBuffer = mixBuses();
+
+			//Clip and convert to 16 bit little endian PCM
+			kernels.encodePcm16( mixBuffer, mixBuffer.length, outputBuffer );
+
+			outputLine.write( outputBuffer, 0, outputBuffer.length );
+		}
+	}
+
+	/**
+	 * Returns the buffer of a bus for this block, cleared the first time it is used in the block.
+	 * Must only be called from the mixer thread.
+	 */
+	static float[] getBusBuffer( SoundBus bus ) {
+		if( bus.mixBuffer == null ) bus.mixBuffer = new float[BLOCK_FRAMES * 2];
+		if( !bus.mixed ) {
+			Arrays.fill( bus.mixBuffer, 0 );
+			bus.mixed = true;
+		}
+		return bus.mixBuffer;
+	}
+
+	/**
+	 * Adds every bus that was used in this block to its parent, ramping from the volume of the last block to
+	 * avoid zipper noise. Buses that were not used are skipped, and start at their current volume once they are.
+	 * Buses with effects that have a tail, like a reverb, keep being processed until the tail has ended.
+	 * @return The buffer of the master bus
+	 */
+	private static float[] mixBuses() {
+		SoundBus[] buses = JSoundSystem.getBuses();
+
+		for( int i = buses.length - 1; i > 0; i-- ) {
+			SoundBus bus = buses[i];
+			float gain = bus.getGain();
+
+			if( bus.mixed ) bus.tailFrames = bus.getEffects().getTailFrames();
+			else if( bus.tailFrames > 0 ) bus.tailFrames -= BLOCK_FRAMES;
+			else {
+				bus.mixGain = gain;
+				continue;
+			}
+
+			float[] source = getBusBuffer( bus );
+			processEffects( bus, source );
+
+			float[] target = getBusBuffer( bus.getParent() );
+			float start = bus.mixGain;
+			float step = (gain - start) / BLOCK_FRAMES;
+
+			for( int frame = 0; frame < BLOCK_FRAMES; frame++ ) {
+				float frameGain = start + step * (frame + 1);
+				target[frame*2] += source[frame*2] * frameGain;
+				target[frame*2+1] += source[frame*2+1] * frameGain;
+			}
+			bus.mixed = false;
+			bus.mixGain = gain;
+		}
+
+		//The master bus is always played, even if it is silent
+		SoundBus master = buses[0];
+		float[] output = getBusBuffer( master );
+		processEffects( master, output );
+		float gain = master.getGain();
+		float step = (gain - master.mixGain) / BLOCK_FRAMES;
+		for( int frame = 0; frame < BLOCK_FRAMES; frame++ ) {
+			float frameGain = master.mixGain + step * (frame + 1);
+			output[frame*2] *= frameGain;
+			output[frame*2+1] *= frameGain;
+		}
+		master.mixed = false;
+		master.mixGain = gain;
+		return output;
+	}
+
+	/**
+	 * Runs the effects of a bus over its buffer. An effect that throws is removed from the bus and
+	 * the bus is silent for this block, so one broken effect does not stop the whole mixer.
+	 */
+	private static void processEffects( SoundBus bus, float[] buffer ) {
+		try {
+			bus.getEffects().process( buffer, BLOCK_FRAMES, OUTPUT_FORMAT.getSampleRate() );
+		} catch( Exception e ) {
+			JSoundSystem.getMetricsCollector().playbackFailed();
+			System.err.println("Error in effects of bus ("+ bus.getName() +"): " + e);
+			e.printStackTrace();
+			bus.getEffects().clear();
+			bus.tailFrames = 0;
+			Arrays.fill( buffer, 0 );
+		}
+	}
+
+	/**
+	 * Opens and starts the output line of the mixer
+	 * @return The line or null if it could not be opened
+	 */
+	private static AudioOutput openOutput() {
+		try {
+			AudioOutput outputLine = JSoundSystem.getOutputPool().acquire( OUTPUT_FORMAT );
+			outputLine.start();
+			return outputLine;
+		} catch( LineUnavailableException e ) {
+			System.err.println("Could not start software mixer: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stops all voices in the mix list because there is no line to play them on. They are removed and give back
+	 * their channel at the beginning of the next block. Bus tails are dropped as well, so the mixer goes back to sleep.
+	 */
+	private void failVoices( int count ) {
+		for( int i = 0; i < count; i++ ) {
+			JSoundSystem.getMetricsCollector().playbackFailed();
+			mixList[i].stopPlaying();
+			mixList[i] = null;
+		}
+		for( SoundBus bus : JSoundSystem.getBuses() ) {
+			bus.tailFrames = 0;
+		}
+	}
+
+	/**
+	 * Returns true if a bus is still playing the tail of its effects
+	 */
+	private static boolean hasTails() {
+		for( SoundBus bus : JSoundSystem.getBuses() ) {
+			if( bus.tailFrames > 0 ) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes finished voices and copies the remaining ones to the mix list. Sleeps until
+	 * there is something to play, which includes the tail of a bus effect.
+	 * @return The number of voices to mix in this block
+	 */
+	private int collectVoices() {
+		synchronized( voices ) {
+			for( int i = voices.size() - 1; i >= 0; i-- ) {
+				MixerVoice voice = voices.get(i);
+				if( !voice.isFinished() ) continue;
+
+				//Finished voices give back their channel
+				voices.remove(i);
+				voice.active = false;
+				JSoundSystem.freeChannel( voice );
+				if( voice.isKilled() ) voice.closeStream();
+			}
+
+			//Nothing to play, wait until a voice is added
+			while( voices.isEmpty() && !hasTails() ) {
+				try {
+					voices.wait();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+
+			if( mixList.length < voices.size() ) mixList = new MixerVoice[voices.size() * 2];
+			voices.toArray( mixList );
+			return voices.size();
+		}
+	}
+}
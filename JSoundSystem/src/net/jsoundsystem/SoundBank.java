@@ -0,0 +1,311 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A single file holding many sounds, created with SoundBankWriter. The whole bank is mapped into memory when it
+ * is opened, so sounds are created straight from the mapping without opening or probing any files. Sounds that
+ * were stored decoded are played from the mapping itself without being copied, sounds that were stored as they
+ * were (for example OGG or MP3 files) are decoded from it like a sound file would be.
+ * <p>
+ * Sounds are found by name through a hash table stored in the bank, so opening a bank and finding a sound take
+ * the same time no matter how many sounds it holds. A bank can be used from any thread. It stays mapped until
+ * the bank and every sound created from it are no longer used.
+ * @see JSoundSystem#openSoundBank(File)
+ * @see SoundBankWriter
+ */
+public final class SoundBank {
+
+	//"JSBK" followed by the version of the layout
+	static final int MAGIC = 0x4A53424B;
+	static final int VERSION = 1;
+
+	//The header is followed by the hash table, the entries, the names and finally the sounds
+	static final int HEADER_SIZE = 32;
+	static final int ENTRY_SIZE = 64;
+
+	//How a sound is stored
+	static final int DECODED = 0;
+	static final int ENCODED = 1;
+
+	static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+	//Encodings by the number they are stored as
+	static final AudioFormat.Encoding[] ENCODINGS = { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED,
+		AudioFormat.Encoding.PCM_FLOAT, AudioFormat.Encoding.ALAW, AudioFormat.Encoding.ULAW };
+
+	private final File file;
+	private final String key;
+	private final ByteBuffer bank;
+	private final int entryCount;
+	private final int slotCount;
+	private final int entriesOffset;
+
+	SoundBank( File file ) throws IOException {
+		this.file = file;
+		key = file.getCanonicalPath() + "@" + file.lastModified();
+
+		RandomAccessFile in = new RandomAccessFile( file, "r" );
+		try {
+			FileChannel channel = in.getChannel();
+			if( channel.size() > Integer.MAX_VALUE ) throw new IOException( "Sound bank is larger than 2 GB: " + file );
+			bank = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+		}
+		finally {
+			in.close();
+		}
+
+		if( bank.capacity() < HEADER_SIZE || bank.getInt( 0 ) != MAGIC ) throw new IOException( "Not a sound bank: " + file );
+		if( bank.getInt( 4 ) != VERSION ) throw new IOException( "Unsupported sound bank version " + bank.getInt( 4 ) + ": " + file );
+
+		entryCount = bank.getInt( 8 );
+		slotCount = bank.getInt( 12 );
+		entriesOffset = HEADER_SIZE + slotCount * 4;
+
+		if( entryCount < 0 || slotCount <= entryCount || Integer.bitCount( slotCount ) != 1
+				|| (long) entriesOffset + (long) entryCount * ENTRY_SIZE > bank.capacity() ) {
+			throw new IOException( "Damaged sound bank: " + file );
+		}
+	}
+
+	/**
+	 * Returns the file this bank was opened from
+	 */
+	public File getFile(){
+		return file;
+	}
+
+	/**
+	 * Returns how many sounds this bank holds
+	 */
+	public int size(){
+		return entryCount;
+	}
+
+	/**
+	 * Returns true if this bank holds a sound with the specified name
+	 */
+	public boolean contains( String name ){
+		return find( name ) >= 0;
+	}
+
+	/**
+	 * Returns the names of all sounds in this bank, in the order they were added
+	 */
+	public List<String> getNames(){
+		List<String> names = new ArrayList<String>( entryCount );
+		for( int i = 0; i < entryCount; i++ ) names.add( getName( i ) );
+		return names;
+	}
+
+	/**
+	 * Returns the format a sound is played in
+	 * @throws FileNotFoundException if there is no sound with this name
+	 */
+	public AudioFormat getFormat( String name ) throws IOException {
+		return getEntry( name ).format;
+	}
+
+	/**
+	 * Creates a sound from this bank, works like JSoundSystem.createSound( File soundFile )
+	 * @param name The name the sound was added to the bank with
+	 * @return A JSound object ready to be played
+	 * @throws UnsupportedAudioFileException If the sound was stored encoded and its format is not supported
+	 * @throws IOException If there is no sound with this name or it could not be read
+	 */
+	public JSound createSound( String name ) throws UnsupportedAudioFileException, IOException {
+		return new JSound( createVoice( getEntry( name ) ) );
+	}
+
+	/**
+	 * Creates a 3D sound from this bank, works like JSoundSystem.create3DSound( File soundFile )
+	 * @param name The name the sound was added to the bank with
+	 * @return A JSound3D object ready to be played
+	 * @throws UnsupportedAudioFileException If the sound was stored encoded and its format is not supported
+	 * @throws IOException If there is no sound with this name or it could not be read
+	 */
+	public JSound create3DSound( String name ) throws UnsupportedAudioFileException, IOException {
+		return new JSound3D( createVoice( getEntry( name ) ) );
+	}
+
+	/**
+	 * Creates music that is streamed from this bank, like a JMusic streams from its file
+	 * @param name The name the sound was added to the bank with
+	 * @return A JMusic object ready to be played
+	 * @throws IOException If there is no sound with this name
+	 */
+	public JMusic createMusic( String name ) throws UnsupportedAudioFileException, IOException {
+		Entry entry = getEntry( name );
+		return new JMusic( JSoundSystem.createVoice( entry, null, entry.format ) );
+	}
+
+	public String toString(){
+		return file.getPath();
+	}
+
+	/**
+	 * Decoded sounds are played from the mapping, encoded sounds are decoded once through the sample cache
+	 */
+	private Voice createVoice( Entry entry ) throws UnsupportedAudioFileException, IOException {
+		String sampleKey = key + "#" + entry.name;
+
+		SampleData samples;
+		if( entry.type == DECODED ) samples = entry.decode( sampleKey );
+		else samples = JSoundSystem.getSampleCache().acquire( sampleKey, entry );
+
+		return JSoundSystem.createVoice( entry, samples, samples.format );
+	}
+
+	private Entry getEntry( String name ) throws IOException {
+		int index = find( name );
+		if( index < 0 ) throw new FileNotFoundException( "No sound named " + name + " in " + file );
+
+		int entry = entriesOffset + index * ENTRY_SIZE;
+		int type = bank.get( entry + 12 );
+		int encoding = bank.get( entry + 13 );
+		boolean bigEndian = bank.get( entry + 14 ) != 0;
+		long offset = bank.getLong( entry + 16 );
+		long length = bank.getLong( entry + 24 );
+		long frames = bank.getLong( entry + 32 );
+
+		if( offset < 0 || length < 0 || offset + length > bank.capacity() || encoding < 0 || encoding >= ENCODINGS.length ) {
+			throw new IOException( "Damaged sound bank: " + file );
+		}
+
+		AudioFormat format = new AudioFormat( ENCODINGS[encoding], bank.getFloat( entry + 40 ), bank.getInt( entry + 44 ),
+				bank.getInt( entry + 48 ), bank.getInt( entry + 52 ), bank.getFloat( entry + 56 ), bigEndian );
+
+		ByteBuffer data = bank.duplicate();
+		data.limit( (int) (offset + length) ).position( (int) offset );
+		return new Entry( name, type, data.slice(), format, frames );
+	}
+
+	/**
+	 * Looks up the index of a sound in the hash table, -1 if there is no such sound
+	 */
+	private int find( String name ) {
+		if( name == null ) return -1;
+
+		int hash = name.hashCode();
+		byte[] bytes = null;
+
+		for( int slot = spread( hash ) & (slotCount - 1); ; slot = (slot + 1) & (slotCount - 1) ) {
+			int index = bank.getInt( HEADER_SIZE + slot * 4 ) - 1;
+			if( index < 0 || index >= entryCount ) return -1;
+
+			int entry = entriesOffset + index * ENTRY_SIZE;
+			if( bank.getInt( entry ) != hash ) continue;
+
+			if( bytes == null ) bytes = name.getBytes( UTF8 );
+			if( nameEquals( entry, bytes ) ) return index;
+		}
+	}
+
+	private boolean nameEquals( int entry, byte[] name ) {
+		int offset = bank.getInt( entry + 4 );
+		if( bank.getInt( entry + 8 ) != name.length ) return false;
+
+		for( int i = 0; i < name.length; i++ ) {
+			if( bank.get( offset + i ) != name[i] ) return false;
+		}
+		return true;
+	}
+
+	private String getName( int index ) {
+		int entry = entriesOffset + index * ENTRY_SIZE;
+		byte[] name = new byte[bank.getInt( entry + 8 )];
+
+		ByteBuffer names = bank.duplicate();
+		names.position( bank.getInt( entry + 4 ) );
+		names.get( name );
+		return new String( name, UTF8 );
+	}
+
+	/**
+	 * Spreads the bits of a hash code over the slots, SoundBankWriter must use the same
+	 */
+	static int spread( int hash ) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * A sound in the bank, its data is a slice of the mapped bank
+	 */
+	private static final class Entry implements SoundSource {
+		final String name;
+		final int type;
+		final ByteBuffer data;
+		final AudioFormat format;
+		final long frames;
+
+		Entry( String name, int type, ByteBuffer data, AudioFormat format, long frames ){
+			this.name = name;
+			this.type = type;
+			this.data = data;
+			this.format = format;
+			this.frames = frames;
+		}
+
+		public String getName(){
+			return name;
+		}
+
+		public AudioInputStream open() throws UnsupportedAudioFileException, IOException {
+			if( type == DECODED ) return new AudioInputStream( new SampleInputStream( data ), format, frames );
+			return JSoundSystem.getAudioInputStream( new SampleInputStream( data ), name );
+		}
+
+		public SampleData decode( String key ) throws UnsupportedAudioFileException, IOException {
+			if( type == DECODED ) return new SampleData( key, data.asReadOnlyBuffer(), format );
+
+			AudioInputStream audioStream = open();
+			try {
+				ByteBuffer decoded = new SampleWriter( JSoundSystem.getSampleStorage() ).decode( audioStream );
+				return new SampleData( key, decoded, audioStream.getFormat() );
+			}
+			finally {
+				audioStream.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,297 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Builds a SoundBank out of sound files. Sounds can be stored decoded, so they are played straight from the
+ * bank, or as they are, which keeps compressed files small but means they are decoded when loaded. Sounds
+ * are decoded the same way JSoundSystem decodes sound files, so a bank has to be built again when the
+ * installed audio libraries change.
+ * <p>
+ * This class can also be run from the command line:
+ * <pre>
+ * java -cp JSoundSystem.jar net.jsoundsystem.SoundBankWriter [-encoded] bank.jsb sounds...
+ * </pre>
+ * Every sound is added with its file name. Directories are added with all sounds inside them, named by their
+ * path inside the directory, for example "weapons/laser.ogg". With -encoded the sounds are stored as they are.
+ * @see SoundBank
+ */
+public final class SoundBankWriter {
+
+	//Sounds start at a multiple of this
+	private static final int ALIGNMENT = 16;
+
+	private final List<String> names = new ArrayList<String>();
+	private final List<File> files = new ArrayList<File>();
+	private final List<Boolean> encoded = new ArrayList<Boolean>();
+	private final Set<String> used = new HashSet<String>();
+
+	/**
+	 * Adds a sound that is stored decoded. It takes more space than a compressed file, but is played straight
+	 * from the bank without being copied or decoded.
+	 * @param name The name used to find the sound in the bank
+	 * @param soundFile The sound file, it is read when the bank is written
+	 * @throws IllegalArgumentException if a sound with this name was already added
+	 */
+	public void add( String name, File soundFile ){
+		add( name, soundFile, false );
+	}
+
+	/**
+	 * Adds a sound that is stored as it is, for example an OGG or MP3 file. It is decoded from the bank when
+	 * a sound is created from it, like a sound file would be.
+	 * @param name The name used to find the sound in the bank
+	 * @param soundFile The sound file, it is read when the bank is written
+	 * @throws IllegalArgumentException if a sound with this name was already added
+	 */
+	public void addEncoded( String name, File soundFile ){
+		add( name, soundFile, true );
+	}
+
+	private void add( String name, File soundFile, boolean keepEncoded ){
+		if( name == null || soundFile == null ) throw new IllegalArgumentException("Name and sound file cannot be null.");
+		if( !used.add( name ) ) throw new IllegalArgumentException("There already is a sound named " + name + ".");
+
+		names.add( name );
+		files.add( soundFile );
+		encoded.add( keepEncoded );
+	}
+
+	/**
+	 * Returns how many sounds have been added
+	 */
+	public int size(){
+		return names.size();
+	}
+
+	/**
+	 * Writes all sounds into a bank. The bank is written under a temporary name first, so a bank that is
+	 * in use is only replaced once the new one is complete.
+	 * @param bankFile Where to write the bank
+	 * @throws UnsupportedAudioFileException If one of the sounds is not supported
+	 * @throws IOException If a sound could not be read or the bank could not be written
+	 */
+	public void write( File bankFile ) throws UnsupportedAudioFileException, IOException {
+		int count = names.size();
+
+		//The hash table is kept at most half full, so lookups rarely need more than one step
+		int slotCount = Integer.highestOneBit( Math.max( 2, count * 2 ) - 1 ) << 1;
+
+		byte[][] nameBytes = new byte[count][];
+		int namesLength = 0;
+		for( int i = 0; i < count; i++ ) {
+			nameBytes[i] = names.get( i ).getBytes( SoundBank.UTF8 );
+			namesLength += nameBytes[i].length;
+		}
+
+		long entriesOffset = SoundBank.HEADER_SIZE + slotCount * 4L;
+		long namesOffset = entriesOffset + (long) count * SoundBank.ENTRY_SIZE;
+		long position = align( namesOffset + namesLength );
+
+		ByteBuffer index = ByteBuffer.allocate( (int) (namesOffset + namesLength) );
+		index.putInt( SoundBank.MAGIC ).putInt( SoundBank.VERSION ).putInt( count ).putInt( slotCount );
+
+		File directory = bankFile.getAbsoluteFile().getParentFile();
+		File temporary = File.createTempFile( bankFile.getName(), ".tmp", directory );
+		boolean done = false;
+
+		try {
+			RandomAccessFile out = new RandomAccessFile( temporary, "rw" );
+			try {
+				FileChannel channel = out.getChannel();
+				int nameOffset = (int) namesOffset;
+
+				for( int i = 0; i < count; i++ ) {
+					int hash = names.get( i ).hashCode();
+					File soundFile = files.get( i );
+
+					//Write the sound first, its entry needs to know where it ended up
+					AudioInputStream audioStream = JSoundSystem.getAudioInputStream( soundFile );
+					AudioFormat format = audioStream.getFormat();
+					long frames;
+
+					try {
+						channel.position( position );
+						if( encoded.get( i ) ) frames = copyFile( soundFile, channel, audioStream.getFrameLength() );
+						else frames = decode( audioStream, channel );
+					}
+					finally {
+						audioStream.close();
+					}
+
+					long length = channel.position() - position;
+					int encoding = Arrays.asList( SoundBank.ENCODINGS ).indexOf( format.getEncoding() );
+					if( encoding < 0 ) throw new UnsupportedAudioFileException( "Unsupported encoding " + format.getEncoding() + ": " + soundFile );
+
+					int slot = SoundBank.spread( hash ) & (slotCount - 1);
+					while( index.getInt( SoundBank.HEADER_SIZE + slot * 4 ) != 0 ) slot = (slot + 1) & (slotCount - 1);
+					index.putInt( SoundBank.HEADER_SIZE + slot * 4, i + 1 );
+
+					int entry = (int) entriesOffset + i * SoundBank.ENTRY_SIZE;
+					index.putInt( entry, hash );
+					index.putInt( entry + 4, nameOffset );
+					index.putInt( entry + 8, nameBytes[i].length );
+					index.put( entry + 12, (byte) (encoded.get( i ) ? SoundBank.ENCODED : SoundBank.DECODED) );
+					index.put( entry + 13, (byte) encoding );
+					index.put( entry + 14, (byte) (format.isBigEndian() ? 1 : 0) );
+					index.putLong( entry + 16, position );
+					index.putLong( entry + 24, length );
+					index.putLong( entry + 32, frames );
+					index.putFloat( entry + 40, format.getSampleRate() );
+					index.putInt( entry + 44, format.getSampleSizeInBits() );
+					index.putInt( entry + 48, format.getChannels() );
+					index.putInt( entry + 52, format.getFrameSize() );
+					index.putFloat( entry + 56, format.getFrameRate() );
+
+					index.position( nameOffset );
+					index.put( nameBytes[i] );
+					nameOffset += nameBytes[i].length;
+
+					position = align( channel.position() );
+					if( position > Integer.MAX_VALUE ) throw new IOException( "Sound banks cannot be larger than 2 GB." );
+				}
+
+				index.clear();
+				channel.position( 0 );
+				while( index.hasRemaining() ) channel.write( index );
+				out.setLength( Math.max( position, index.capacity() ) );
+			}
+			finally {
+				out.close();
+			}
+
+			try {
+				Files.move( temporary.toPath(), bankFile.toPath(), StandardCopyOption.ATOMIC_MOVE );
+			} catch( AtomicMoveNotSupportedException e ) {
+				Files.move( temporary.toPath(), bankFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+			}
+			done = true;
+		}
+		finally {
+			if( !done ) temporary.delete();
+		}
+	}
+
+	/**
+	 * Decodes a sound into the bank, returns how many frames it has
+	 */
+	private static long decode( AudioInputStream audioStream, FileChannel channel ) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		long bytes = 0;
+		int len;
+
+		while( (len = audioStream.read( buffer )) != -1 ) {
+			ByteBuffer chunk = ByteBuffer.wrap( buffer, 0, len );
+			while( chunk.hasRemaining() ) channel.write( chunk );
+			bytes += len;
+		}
+		return bytes / audioStream.getFormat().getFrameSize();
+	}
+
+	/**
+	 * Copies a sound file into the bank as it is
+	 * @param frames The length of the sound as far as it is known, it is returned
+	 */
+	private static long copyFile( File soundFile, FileChannel channel, long frames ) throws IOException {
+		RandomAccessFile in = new RandomAccessFile( soundFile, "r" );
+		try {
+			FileChannel source = in.getChannel();
+			long copied = 0, size = source.size();
+			while( copied < size ) copied += source.transferTo( copied, size - copied, channel );
+			channel.position( channel.position() + size );
+		}
+		finally {
+			in.close();
+		}
+
+		return frames;
+	}
+
+	private static long align( long position ) {
+		return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Adds a directory with all sounds inside it, names are the paths inside the top directory
+	 */
+	private void addDirectory( File directory, String prefix, boolean keepEncoded ) {
+		File[] children = directory.listFiles();
+		if( children == null ) return;
+		Arrays.sort( children );
+
+		for( File child : children ) {
+			String name = prefix + child.getName();
+			if( child.isDirectory() ) addDirectory( child, name + "/", keepEncoded );
+			else if( JSoundSystem.soundIsSupported( child ) ) add( name, child, keepEncoded );
+			else System.out.println( "Skipping " + child + ", it is not a supported sound" );
+		}
+	}
+
+	public static void main( String[] args ) throws Exception {
+		boolean keepEncoded = args.length > 0 && args[0].equals( "-encoded" );
+		int first = keepEncoded ? 1 : 0;
+
+		if( args.length < first + 2 ) {
+			System.out.println( "Usage: SoundBankWriter [-encoded] bank.jsb sounds..." );
+			System.out.println( "Sounds can be files or directories, -encoded stores them without decoding them." );
+			return;
+		}
+
+		SoundBankWriter writer = new SoundBankWriter();
+		for( int i = first + 1; i < args.length; i++ ) {
+			File sound = new File( args[i] );
+			if( sound.isDirectory() ) writer.addDirectory( sound, "", keepEncoded );
+			else writer.add( sound.getName(), sound, keepEncoded );
+		}
+
+		long start = System.currentTimeMillis();
+		File bankFile = new File( args[first] );
+		writer.write( bankFile );
+		System.out.println( "Wrote " + writer.size() + " sounds to " + bankFile + " (" + bankFile.length() / 1024 + " KB) in "
+				+ (System.currentTimeMillis() - start) + " ms" );
+	}
+}
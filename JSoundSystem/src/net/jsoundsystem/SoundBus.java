@@ -0,0 +1,244 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A group of sounds that share a volume, mute and pause switch, like "music", "sfx" or "ui". Every sound
+ * plays on a bus, the master bus by default, and buses can be nested. The volume of a bus is multiplied
+ * with the volumes of all buses above it, and muting or pausing a bus also mutes or pauses all buses below it.
+ * <p>
+ * Changing a bus costs the same no matter how many sounds it holds. In PlaybackMode.MIXER the sounds of a
+ * bus are mixed into a buffer of their own that is added to its parent once per block. In
+ * PlaybackMode.THREADED every sound applies the combined volume of its buses when it plays its next block,
+ * and sounds on a paused bus give back their thread until the bus is resumed.
+ * <pre>
+ *	SoundBus music = JSoundSystem.createBus( "music" );
+ *	myMusic.setBus( music );
+ *	music.setVolume( 0.50f );
+ * </pre>
+ * @see JSoundSystem#getMasterBus()
+ * @see Audio#setBus(SoundBus)
+ */
+public final class SoundBus {
+
+	//Guards the tree of buses and the combined settings
+	private static final Object treeLock = new Object();
+
+	private final String name;
+	private final SoundBus parent;
+	private SoundBus[] children = new SoundBus[0];
+
+	//Settings of this bus alone
+	private volatile float volume = 1.00f;
+	private volatile boolean muted, paused;
+	private final EffectChain effects = new EffectChain();
+
+	//Settings of this bus combined with all buses above it
+	private volatile float combinedGain = 1.00f;
+	private volatile boolean combinedPaused;
+
+	//Threaded sounds that stopped playing because this bus was paused. Guarded by treeLock.
+	private final ArrayList<AudioThread> held = new ArrayList<AudioThread>();
+
+	//Only used by the mixer thread
+	float[] mixBuffer;
+	boolean mixed;
+	float mixGain = 1.00f;
+	int tailFrames;
+
+	SoundBus( String name, SoundBus parent ) {
+		this.name = name;
+		this.parent = parent;
+
+		if( parent != null ) {
+			synchronized( treeLock ) {
+				parent.children = Arrays.copyOf( parent.children, parent.children.length + 1 );
+				parent.children[parent.children.length - 1] = this;
+				update( null );
+			}
+		}
+	}
+
+	/**
+	 * Creates a new bus inside this one
+	 * @param name A name that is not used by any other bus
+	 * @throws IllegalArgumentException if the name is null or already used
+	 * @see JSoundSystem#getBus(String)
+	 */
+	public SoundBus createBus( String name ) {
+		return JSoundSystem.createBus( name, this );
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the bus this bus is mixed into, or null for the master bus
+	 */
+	public SoundBus getParent() {
+		return parent;
+	}
+
+	/**
+	 * Changes the volume of all sounds on this bus and the buses inside it
+	 * @param volume A number between 0.00f and 5.00f where 1.00f is default
+	 */
+	public void setVolume( float volume ) {
+		this.volume = Math.max( 0, volume );
+		changed();
+	}
+
+	public float getVolume() {
+		return volume;
+	}
+
+	/**
+	 * Silences all sounds on this bus and the buses inside it. Muted sounds keep playing.
+	 */
+	public void setMuted( boolean muted ) {
+		this.muted = muted;
+		changed();
+	}
+
+	public boolean isMuted() {
+		return muted;
+	}
+
+	/**
+	 * Pauses all sounds on this bus and the buses inside it. The sounds keep their channels and continue where
+	 * they were once the bus is resumed. This does not change what isPlaying() returns for each sound.
+	 */
+	public void pause() {
+		paused = true;
+		changed();
+	}
+
+	/**
+	 * Continues the sounds of a paused bus
+	 */
+	public void resume() {
+		paused = false;
+		changed();
+	}
+
+	/**
+	 * Returns true if this bus was paused. Sounds are also held when a bus above this one is paused.
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Returns the effects applied to everything on this bus before its volume. Bus effects only work in
+	 * PlaybackMode.MIXER, since threaded sounds are never mixed together before they are played.
+	 */
+	public EffectChain getEffects() {
+		return effects;
+	}
+
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * Returns the gain of this bus alone, 0 when it is muted
+	 */
+	float getGain() {
+		return muted ? 0 : volume;
+	}
+
+	/**
+	 * Returns the volume of this bus multiplied with the volumes of all buses above it
+	 */
+	float getCombinedGain() {
+		return combinedGain;
+	}
+
+	/**
+	 * Returns true if this bus or any bus above it is paused
+	 */
+	boolean isCombinedPaused() {
+		return combinedPaused;
+	}
+
+	/**
+	 * Remembers a threaded sound that stops playing until this bus is resumed
+	 * @return false if the bus is not paused anymore and the sound should keep playing
+	 */
+	boolean hold( AudioThread voice ) {
+		synchronized( treeLock ) {
+			if( !combinedPaused ) return false;
+			held.add( voice );
+			return true;
+		}
+	}
+
+	/**
+	 * Forgets a held sound that was stopped, played again or moved to another bus
+	 */
+	void unhold( AudioThread voice ) {
+		synchronized( treeLock ) {
+			held.remove( voice );
+		}
+	}
+
+	private void changed() {
+		ArrayList<AudioThread> resumed;
+		synchronized( treeLock ) {
+			resumed = update( null );
+		}
+
+		//Sounds take their own lock when they start again, so they are started outside of ours
+		if( resumed == null ) return;
+		for( AudioThread voice : resumed ) voice.resumeFromBus();
+	}
+
+	/**
+	 * Recomputes the combined settings of this bus and all buses inside it
+	 * @param resumed The held sounds found so far that can play again, or null if there are none yet
+	 * @return The held sounds of this bus and the buses inside it that can play again, or null if there are none
+	 */
+	private ArrayList<AudioThread> update( ArrayList<AudioThread> resumed ) {
+		combinedGain = parent == null ? getGain() : parent.combinedGain * getGain();
+		combinedPaused = paused || (parent != null && parent.combinedPaused);
+
+		if( !combinedPaused && !held.isEmpty() ) {
+			if( resumed == null ) resumed = new ArrayList<AudioThread>();
+			resumed.addAll( held );
+			held.clear();
+		}
+
+		for( SoundBus child : children ) resumed = child.update( resumed );
+		return resumed;
+	}
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import net.jsoundsystem.utils.Vector3f;
+
+/**
+ * A handle to one playing instance of a JSound, returned by JSound.playInstance(). The instance plays with the
+ * settings the JSound had when it was started, which can then be changed through this handle without affecting
+ * the JSound or its other instances. Once the instance has finished, or was restarted for a newer instance
+ * because too many were playing, the handle does nothing anymore. Instances don't need to be disposed of.
+ * @see JSound#playInstance()
+ */
+public final class SoundInstance {
+	private final InstancePool pool;
+	private final int slot;
+	private final long generation;
+
+	SoundInstance( InstancePool pool, int slot, long generation ){
+		this.pool = pool;
+		this.slot = slot;
+		this.generation = generation;
+	}
+
+	/**
+	 * Returns true if this instance is still playing
+	 */
+	public boolean isPlaying(){
+		Voice voice = pool.getVoice( slot, generation );
+		return voice != null && voice.isPlaying();
+	}
+
+	/**
+	 * Stops this instance, its voice is reused for the next instance
+	 */
+	public void stop(){
+		Voice voice = pool.getVoice( slot, generation );
+		if( voice != null ) voice.stopPlaying();
+	}
+
+	/**
+	 * Changes the volume of this instance
+	 * @param volume A number between 0.00f and 5.00f where 1.00f is default
+	 * @see Audio#setVolume(float)
+	 */
+	public void setVolume( float volume ){
+		Voice voice = pool.getVoice( slot, generation );
+		if( voice != null ) voice.setVolume( volume );
+	}
+
+	/**
+	 * Changes the panning of this instance
+	 * @param panning A number between -1.00f (left) and 1.00f (right)
+	 * @see Audio#setPanning(float)
+	 */
+	public void setPanning( float panning ){
+		Voice voice = pool.getVoice( slot, generation );
+		if( voice != null ) voice.setPanning( panning );
+	}
+
+	/**
+	 * Changes how fast this instance is played
+	 * @param speed A non-negative float where 1.00f means 100% speed
+	 * @see Audio#setSpeed(float)
+	 */
+	public void setSpeed( float speed ){
+		Voice voice = pool.getVoice( slot, generation );
+		if( voice != null ) voice.setSpeed( speed );
+	}
+
+	/**
+	 * Moves this instance, only works for instances of a JSound3D
+	 */
+	public void setSourcePosition( float x, float y, float z ){
+		Voice voice = pool.getVoice( slot, generation );
+		if( voice != null ) voice.setSourcePosition( x, y, z );
+	}
+
+	/**
+	 * Moves this instance, only works for instances of a JSound3D. The position is copied.
+	 */
+	public void setSourcePosition( Vector3f position ){
+		setSourcePosition( position.x, position.y, position.z );
+	}
+}
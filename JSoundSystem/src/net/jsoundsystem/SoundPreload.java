@@ -0,0 +1,192 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of a group of sounds that are being loaded at the same time by JSoundSystem.preload().
+ * Sounds that fail to load are remembered together with the reason, the other sounds still load normally.
+ * All methods can be called from any thread while the sounds are loading.
+ * @see JSoundSystem#preload(java.util.Collection)
+ */
+public final class SoundPreload {
+
+	/**
+	 * Is told about every sound of a preload as soon as it is loaded or has failed. These methods are called
+	 * from the threads of the loader pool, so they should return quickly.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when a sound has been loaded
+		 */
+		void soundLoaded( File file, JSound sound );
+
+		/**
+		 * Called when a sound could not be loaded, usually with an UnsupportedAudioFileException or IOException
+		 */
+		void soundFailed( File file, Exception reason );
+	}
+
+	private final List<File> files;
+	private final Listener listener;
+	private final Map<File, JSound> sounds = new ConcurrentHashMap<File, JSound>();
+	private final Map<File, Exception> failures = new ConcurrentHashMap<File, Exception>();
+	private final AtomicInteger finished = new AtomicInteger();
+	private final CompletableFuture<SoundPreload> done = new CompletableFuture<SoundPreload>();
+
+	SoundPreload( List<File> files, Listener listener ){
+		this.files = Collections.unmodifiableList( files );
+		this.listener = listener;
+		if( files.isEmpty() ) done.complete( this );
+	}
+
+	/**
+	 * Called by the loader pool when a sound has been loaded
+	 */
+	void loaded( File file, JSound sound ) {
+		sounds.put( file, sound );
+		try {
+			if( listener != null ) listener.soundLoaded( file, sound );
+		}
+		finally {
+			finish();
+		}
+	}
+
+	/**
+	 * Called by the loader pool when a sound could not be loaded
+	 */
+	void failed( File file, Exception reason ) {
+		failures.put( file, reason );
+		try {
+			if( listener != null ) listener.soundFailed( file, reason );
+		}
+		finally {
+			finish();
+		}
+	}
+
+	private void finish() {
+		if( finished.incrementAndGet() == files.size() ) done.complete( this );
+	}
+
+	/**
+	 * Returns all files of this preload, in the order they were given
+	 */
+	public List<File> getFiles(){
+		return files;
+	}
+
+	/**
+	 * Returns the number of files that have been loaded or have failed so far
+	 */
+	public int getFinishedCount(){
+		return finished.get();
+	}
+
+	/**
+	 * Returns the number of files in this preload
+	 */
+	public int getTotalCount(){
+		return files.size();
+	}
+
+	/**
+	 * Returns how far along loading is, from 0.00f (nothing finished) to 1.00f (every file loaded or failed)
+	 */
+	public float getProgress(){
+		if( files.isEmpty() ) return 1.0f;
+		return finished.get() / (float) files.size();
+	}
+
+	/**
+	 * Returns true once every file has been loaded or has failed
+	 */
+	public boolean isDone(){
+		return done.isDone();
+	}
+
+	/**
+	 * Returns true if at least one file could not be loaded
+	 */
+	public boolean hasFailures(){
+		return !failures.isEmpty();
+	}
+
+	/**
+	 * Returns the sound loaded from the specified file, or null if it isn't loaded (yet) or has failed
+	 */
+	public JSound getSound( File file ){
+		return sounds.get( file );
+	}
+
+	/**
+	 * Returns the sounds that have been loaded so far, in the order their files were given
+	 */
+	public List<JSound> getSounds(){
+		List<JSound> loaded = new ArrayList<JSound>();
+		for( File file : files ) {
+			JSound sound = sounds.get( file );
+			if( sound != null ) loaded.add( sound );
+		}
+		return loaded;
+	}
+
+	/**
+	 * Returns every file that could not be loaded so far together with the reason why
+	 */
+	public Map<File, Exception> getFailures(){
+		return Collections.unmodifiableMap( failures );
+	}
+
+	/**
+	 * Returns a future that completes with this preload once every file has been loaded or has failed. It
+	 * never completes exceptionally, failed files are found through getFailures().
+	 */
+	public CompletableFuture<SoundPreload> whenDone(){
+		return done;
+	}
+
+	/**
+	 * Disposes of every sound that has been loaded by this preload
+	 */
+	public void dispose(){
+		for( JSound sound : sounds.values() ) sound.dispose();
+		sounds.clear();
+	}
+}
@@ -0,0 +1,163 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+/**
+ * What the sound system is doing, published through JMX by JSoundSystem.registerMBean(). It can also be read
+ * directly through JSoundSystem.getMetrics(). Counters start when the sound system is loaded and only go up.
+ * @see JSoundSystem#registerMBean()
+ */
+public interface SoundSystemMXBean {
+
+	/**
+	 * Returns how many channels are in use
+	 */
+	int getSoundsPlaying();
+
+	/**
+	 * Returns the highest number of channels that were in use at the same time
+	 */
+	int getPeakSoundsPlaying();
+
+	/**
+	 * Returns how many 3D sounds are playing virtually because they are out of range
+	 */
+	int getVirtualSoundsPlaying();
+
+	/**
+	 * Returns how many sounds can play at the same time
+	 */
+	int getMaxChannels();
+
+	/**
+	 * Returns how many times a sound could not be played because all channels were in use
+	 */
+	long getChannelRefusals();
+
+	/**
+	 * Returns how many times a sound was stopped to give its channel to a sound with a higher priority
+	 */
+	long getStolenVoices();
+
+	/**
+	 * Returns how many times a sound stopped because of an error, for example a sound device that failed
+	 */
+	long getPlaybackErrors();
+
+	/**
+	 * Returns how many audio lines have been opened. Lines reused from the output pool are not counted.
+	 */
+	long getLinesOpened();
+
+	/**
+	 * Returns how long opening an audio line took on average, in milliseconds
+	 */
+	double getAverageLineOpenMillis();
+
+	/**
+	 * Returns how many audio lines took up to each of getLineOpenHistogramBounds() to open. The last
+	 * number counts the lines that took longer than all bounds.
+	 */
+	long[] getLineOpenHistogram();
+
+	/**
+	 * Returns the upper bounds of getLineOpenHistogram() in microseconds
+	 */
+	long[] getLineOpenHistogramBounds();
+
+	/**
+	 * Returns how many sounds have been loaded into memory, not counting those taken from the sample cache
+	 */
+	long getSoundsDecoded();
+
+	/**
+	 * Returns how many sounds could not be loaded because of an error
+	 */
+	long getDecodeFailures();
+
+	/**
+	 * Returns the total size of all sounds that have been loaded into memory, in bytes
+	 */
+	long getDecodedBytes();
+
+	/**
+	 * Returns how long loading a sound took on average, in milliseconds
+	 */
+	double getAverageDecodeMillis();
+
+	/**
+	 * Returns the average size of a loaded sound, in bytes
+	 */
+	double getAverageDecodedBytes();
+
+	/**
+	 * Returns how many times a sound was taken from the sample cache
+	 */
+	long getSampleCacheHits();
+
+	/**
+	 * Returns how many times a sound was not in the sample cache and had to be loaded
+	 */
+	long getSampleCacheMisses();
+
+	/**
+	 * Returns which part of the sounds were taken from the sample cache, between 0 and 1
+	 */
+	double getSampleCacheHitRate();
+
+	/**
+	 * Returns how many times a sound was loaded from the disk cache instead of decoding it
+	 */
+	long getDiskCacheHits();
+
+	/**
+	 * Returns how many times a sound was not in the disk cache, or its cache file was out of date
+	 */
+	long getDiskCacheMisses();
+
+	/**
+	 * Returns which part of the sounds were loaded from the disk cache, between 0 and 1
+	 */
+	double getDiskCacheHitRate();
+
+	/**
+	 * Returns how often any streamed sound ran out of decoded audio while playing
+	 */
+	long getStreamUnderruns();
+
+	/**
+	 * Returns how many bytes of decoded sound data are kept in memory by the sample cache
+	 */
+	long getResidentSampleBytes();
+
+	/**
+	 * Returns how many different sounds are kept in memory by the sample cache
+	 */
+	int getCachedSounds();
+}
@@ -0,0 +1,207 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the numbers published by SoundSystemMXBean. Events are counted with LongAdders, which spread
+ * concurrent updates over several cells, so counting doesn't make threads wait for each other. Numbers that
+ * other parts of the sound system already keep, like the channels in use, are read from there.
+ */
+final class SoundSystemMetrics implements SoundSystemMXBean {
+
+	//Upper bounds of the line open histogram in microseconds
+	private static final long[] LINE_OPEN_BOUNDS = { 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000 };
+
+	private final LongAdder playbackErrors = new LongAdder();
+
+	private final LongAdder linesOpened = new LongAdder();
+	private final LongAdder lineOpenNanos = new LongAdder();
+	private final LongAdder[] lineOpenHistogram = new LongAdder[LINE_OPEN_BOUNDS.length + 1];
+
+	private final LongAdder decodes = new LongAdder();
+	private final LongAdder decodeFailures = new LongAdder();
+	private final LongAdder decodeNanos = new LongAdder();
+	private final LongAdder decodedBytes = new LongAdder();
+
+	private final LongAdder diskCacheHits = new LongAdder();
+	private final LongAdder diskCacheMisses = new LongAdder();
+
+	SoundSystemMetrics(){
+		for( int i = 0; i < lineOpenHistogram.length; i++ ) lineOpenHistogram[i] = new LongAdder();
+	}
+
+	void playbackFailed() {
+		playbackErrors.increment();
+	}
+
+	/**
+	 * Counts an audio line that took the specified time to open
+	 */
+	void lineOpened( long nanos ) {
+		long micros = TimeUnit.NANOSECONDS.toMicros( nanos );
+		int bucket = 0;
+		while( bucket < LINE_OPEN_BOUNDS.length && micros > LINE_OPEN_BOUNDS[bucket] ) bucket++;
+
+		linesOpened.increment();
+		lineOpenNanos.add( nanos );
+		lineOpenHistogram[bucket].increment();
+	}
+
+	/**
+	 * Counts a sound that has been loaded into memory
+	 */
+	void soundDecoded( long nanos, long bytes ) {
+		decodes.increment();
+		decodeNanos.add( nanos );
+		decodedBytes.add( bytes );
+	}
+
+	void decodeFailed() {
+		decodeFailures.increment();
+	}
+
+	void diskCacheHit() {
+		diskCacheHits.increment();
+	}
+
+	void diskCacheMiss() {
+		diskCacheMisses.increment();
+	}
+
+	public int getSoundsPlaying() {
+		return JSoundSystem.getSoundsPlaying();
+	}
+
+	public int getPeakSoundsPlaying() {
+		return JSoundSystem.getPeakSoundsPlaying();
+	}
+
+	public int getVirtualSoundsPlaying() {
+		return JSoundSystem.getVirtualSoundsPlaying();
+	}
+
+	public int getMaxChannels() {
+		return JSoundSystem.getMaxChannels();
+	}
+
+	public long getChannelRefusals() {
+		return JSoundSystem.getChannelRefusals();
+	}
+
+	public long getStolenVoices() {
+		return JSoundSystem.getStolenVoices();
+	}
+
+	public long getPlaybackErrors() {
+		return playbackErrors.sum();
+	}
+
+	public long getLinesOpened() {
+		return linesOpened.sum();
+	}
+
+	public double getAverageLineOpenMillis() {
+		return average( lineOpenNanos.sum(), linesOpened.sum() ) / 1000000.0;
+	}
+
+	public long[] getLineOpenHistogram() {
+		long[] counts = new long[lineOpenHistogram.length];
+		for( int i = 0; i < counts.length; i++ ) counts[i] = lineOpenHistogram[i].sum();
+		return counts;
+	}
+
+	public long[] getLineOpenHistogramBounds() {
+		return LINE_OPEN_BOUNDS.clone();
+	}
+
+	public long getSoundsDecoded() {
+		return decodes.sum();
+	}
+
+	public long getDecodeFailures() {
+		return decodeFailures.sum();
+	}
+
+	public long getDecodedBytes() {
+		return decodedBytes.sum();
+	}
+
+	public double getAverageDecodeMillis() {
+		return average( decodeNanos.sum(), decodes.sum() ) / 1000000.0;
+	}
+
+	public double getAverageDecodedBytes() {
+		return average( decodedBytes.sum(), decodes.sum() );
+	}
+
+	public long getSampleCacheHits() {
+		return JSoundSystem.getSampleCache().getHitCount();
+	}
+
+	public long getSampleCacheMisses() {
+		return JSoundSystem.getSampleCache().getMissCount();
+	}
+
+	public double getSampleCacheHitRate() {
+		long hits = getSampleCacheHits();
+		return average( hits, hits + getSampleCacheMisses() );
+	}
+
+	public long getDiskCacheHits() {
+		return diskCacheHits.sum();
+	}
+
+	public long getDiskCacheMisses() {
+		return diskCacheMisses.sum();
+	}
+
+	public double getDiskCacheHitRate() {
+		long hits = diskCacheHits.sum();
+		return average( hits, hits + diskCacheMisses.sum() );
+	}
+
+	public long getStreamUnderruns() {
+		return JSoundSystem.getStreamUnderruns();
+	}
+
+	public long getResidentSampleBytes() {
+		return JSoundSystem.getSampleCache().getSize();
+	}
+
+	public int getCachedSounds() {
+		return JSoundSystem.getSampleCache().getEntryCount();
+	}
+
+	private static double average( long total, long count ) {
+		return count == 0 ? 0 : (double) total / count;
+	}
+}
@@ -0,0 +1,161 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.Arrays;
+
+import net.jsoundsystem.utils.Vector3f;
+
+/**
+ * Computes the volume and panning of all 3D sounds in one pass. Source positions and results are kept
+ * in plain float arrays indexed by a slot number, so the pass is a tight loop over contiguous memory
+ * that the JIT can vectorize. The software mixer runs the pass once per block, voices that play in their
+ * own thread run it at most once per PASS_INTERVAL, whichever of them comes first.
+ */
+final class Spatializer {
+
+	//How often threaded voices update the 3D effects, about the length of one 1024 frame block
+	private static final long PASS_INTERVAL = 20000000L;
+
+	//Source positions
+	private float[] x = new float[16];
+	private float[] y = new float[16];
+	private float[] z = new float[16];
+
+	//Results of the last pass
+	private float[] volume = new float[16];
+	private float[] panning = new float[16];
+
+	//Slots in use are below size, freed slots are reused first
+	private int size;
+	private int[] freeSlots = new int[16];
+	private int freeCount;
+	private long lastPass;
+	private boolean newSlots;
+
+	/**
+	 * Gives a 3D sound its own slot, starting at position (0, 0, 0)
+	 * @return The slot number
+	 */
+	synchronized int allocate() {
+		int slot;
+		if( freeCount > 0 ) slot = freeSlots[--freeCount];
+		else {
+			if( size == x.length ) grow();
+			slot = size++;
+		}
+
+		//Make sure the new slot is computed before it is played
+		x[slot] = y[slot] = z[slot] = 0;
+		newSlots = true;
+		return slot;
+	}
+
+	/**
+	 * Gives back the slot of a disposed 3D sound
+	 */
+	synchronized void free( int slot ) {
+		if( freeCount == freeSlots.length ) freeSlots = Arrays.copyOf( freeSlots, freeCount * 2 );
+		freeSlots[freeCount++] = slot;
+	}
+
+	synchronized void setPosition( int slot, float x, float y, float z ) {
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.z[slot] = z;
+	}
+
+	synchronized void copyPosition( int from, int to ) {
+		x[to] = x[from];
+		y[to] = y[from];
+		z[to] = z[from];
+		newSlots = true;
+	}
+
+	synchronized float[] getPosition( int slot ) {
+		return new float[]{ x[slot], y[slot], z[slot] };
+	}
+
+	/**
+	 * Returns true if a slot is within hearing distance right now, without waiting for the next pass
+	 */
+	synchronized boolean isInRange( int slot ) {
+		Vector3f listener = JSoundSystem.getListenerPosition();
+		float dx = x[slot] - listener.x, dy = y[slot] - listener.y, dz = z[slot] - listener.z;
+		return dx*dx + dy*dy + dz*dz < JSoundSystem.maxDistance * JSoundSystem.maxDistance;
+	}
+
+	synchronized float getVolume( int slot ) {
+		return volume[slot];
+	}
+
+	synchronized float getPanning( int slot ) {
+		return panning[slot];
+	}
+
+	/**
+	 * Runs the pass unless it already ran within the last PASS_INTERVAL
+	 */
+	synchronized void updateIfDue() {
+		if( newSlots || System.nanoTime() - lastPass >= PASS_INTERVAL ) update();
+	}
+
+	/**
+	 * Computes the volume and panning of every slot relative to the listener
+	 */
+	synchronized void update() {
+		lastPass = System.nanoTime();
+		newSlots = false;
+
+		Vector3f listener = JSoundSystem.getListenerPosition();
+		float listenerX = listener.x, listenerY = listener.y, listenerZ = listener.z;
+		float inverseDistance = 1.0f / JSoundSystem.maxDistance;
+
+		//Freed slots are computed as well, that is cheaper than skipping them
+		for( int i = 0; i < size; i++ ) {
+			float dx = x[i] - listenerX;
+			float dy = y[i] - listenerY;
+			float dz = z[i] - listenerZ;
+			float distance = (float) Math.sqrt( dx*dx + dy*dy + dz*dz );
+
+			//Sounds get quieter further away and are panned by how far they are to the left or right
+			volume[i] = Math.max( 0, 1 - distance * inverseDistance );
+			panning[i] = 2 * inverseDistance * dx;
+		}
+	}
+
+	private void grow() {
+		int length = x.length * 2;
+		x = Arrays.copyOf( x, length );
+		y = Arrays.copyOf( y, length );
+		z = Arrays.copyOf( z, length );
+		volume = Arrays.copyOf( volume, length );
+		panning = Arrays.copyOf( panning, length );
+	}
+}
@@ -0,0 +1,549 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Decodes a streamed sound ahead of time into a ring buffer. The file is opened and decoded by a decoder
+ * thread, the playing sound only copies from the ring buffer, so a slow decode or a disk hiccup doesn't reach
+ * the output as long as there is audio left in the buffer.
+ * <p>
+ * There is exactly one reader, the voice that plays the sound, and one writer, the decoder. Both only move
+ * their own position forward, so no locks are needed. Unlike a normal InputStream a read doesn't wait for the
+ * decoder when the sound plays on a realtime output: the read is filled with silence and counted as an underrun.
+ * Only outputs that are not realtime, like a MemoryBackend, wait for the decoder to catch up.
+ * <p>
+ * Looping is done by the decoder, so the reader sees one endless stream and the seam is sample accurate.
+ * The beginning of the loop is kept in memory the first time it is decoded. While the buffer is full the
+ * decoder gets a second decoder ready that continues right after this loop head. At the end of the loop the
+ * head is copied into the buffer and playback continues on the second decoder, so the file never has to be
+ * opened and decoded up to the loop start while the seam is being played.
+ */
+final class StreamBuffer extends InputStream {
+
+	//Decoders start refilling once a quarter of the buffer is empty
+	private static final int REFILL_DIVISOR = 4;
+
+	//Most bytes decoded in one go, so a closed buffer stops decoding soon
+	private static final int MAX_CHUNK = 16 * 1024;
+
+	//How long a waiting reader sleeps before it checks the buffer again
+	private static final long WAIT_NANOS = 200 * 1000;
+
+	//Decoders only run while a buffer is being filled and end after they have been idle for a few seconds
+	private static final Executor decoders = new ThreadPoolExecutor( 0, Integer.MAX_VALUE, 5, TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>(), new DecoderThreadFactory() );
+
+	private static final LongAdder totalUnderruns = new LongAdder();
+
+	private final SoundSource sound;
+	private final AudioFormat format;
+	private final int milliseconds;
+	private final boolean waitForDecoder;
+	private final int frameSize;
+	private final byte[] ring;
+	private final AtomicLong underruns;
+
+	//Only the decoder moves the write position and only the reader moves the read position
+	private volatile long writePosition, readPosition;
+	private volatile boolean ended, closed;
+	private volatile Exception error;
+
+	//Set while a decoder is working on this buffer
+	private final AtomicBoolean filling = new AtomicBoolean();
+	private final Runnable fill = new Runnable() {
+		public void run() {
+			decode();
+		}
+	};
+
+	//Loop settings of the reader, in frames. A loop end below 0 loops at the end of the sound.
+	private volatile boolean looping;
+	private volatile long loopStart, loopEnd = -1;
+
+	//Decoder side, the source has been read up to sourcePosition bytes into the sound
+	private AudioInputStream source;
+	private long sourcePosition;
+	private final long startPosition;
+	private byte[] scratch;
+
+	//Decoded beginning of the loop, copied into the buffer instead of decoded again when wrapping around
+	private byte[] head;
+	private long headStart = -1;
+	private int headLength, headCopied = -1;
+
+	//Second decoder that continues right after the loop head
+	private AudioInputStream continuation;
+	private long continuationPosition;
+
+	//Reader side
+	private boolean started, starving;
+	private StreamBuffer next;
+
+	/**
+	 * Creates a buffer for the specified sound. Decoding starts with the first read, so the loop settings
+	 * can be set before anything is decoded.
+	 * @param format The format of the decoded sound
+	 * @param milliseconds How much audio the buffer holds
+	 * @param underruns Counts underruns of this buffer and of the buffers that continue it when looping
+	 * @param waitForDecoder True to wait for the decoder instead of playing silence
+	 */
+	StreamBuffer( SoundSource sound, AudioFormat format, int milliseconds, AtomicLong underruns, boolean waitForDecoder ) {
+		this( sound, format, milliseconds, underruns, waitForDecoder, false, 0, -1 );
+	}
+
+	/**
+	 * Creates a buffer that starts at the loop start if looping is enabled
+	 */
+	private StreamBuffer( SoundSource sound, AudioFormat format, int milliseconds, AtomicLong underruns, boolean waitForDecoder,
+			boolean looping, long loopStart, long loopEnd ) {
+		this.sound = sound;
+		this.format = format;
+		this.milliseconds = milliseconds;
+		this.waitForDecoder = waitForDecoder;
+		this.underruns = underruns;
+		this.looping = looping;
+		this.loopStart = loopStart;
+		this.loopEnd = loopEnd;
+		frameSize = Math.max( 1, format.getFrameSize() );
+		startPosition = looping ? loopStart * frameSize : 0;
+
+		//Whole frames only, the decoded stream is read one frame at a time
+		int frames = Math.max( 4096, (int)(format.getFrameRate() * milliseconds / 1000) );
+		ring = new byte[frames * frameSize];
+	}
+
+	/**
+	 * Returns how many underruns happened in all streamed sounds since the program started
+	 */
+	static long getTotalUnderruns() {
+		return totalUnderruns.sum();
+	}
+
+	/**
+	 * Copies decoded audio into the buffer. Only whole frames are returned. If nothing is decoded yet the
+	 * buffer is filled with silence, unless this buffer waits for its decoder.
+	 * @return The number of bytes read or -1 at the end of the sound
+	 * @throws IOException If the sound could not be decoded
+	 */
+	public int read( byte[] buffer, int offset, int length ) throws IOException {
+		if( length == 0 ) return 0;
+
+		boolean end;
+		long read;
+		int available, size;
+		while( true ) {
+
+			//Check for the end first, everything decoded before it is already in the buffer by then
+			end = ended;
+			read = readPosition;
+			available = (int)(writePosition - read);
+			size = Math.min( length, available ) / frameSize * frameSize;
+			if( size > 0 || end || !waitForDecoder ) break;
+
+			schedule();
+			LockSupport.parkNanos( WAIT_NANOS );
+		}
+
+		if( size == 0 ) {
+			if( end ) {
+				if( error != null ) throw new IOException( "Could not decode " + sound.getName(), error );
+				return -1;
+			}
+
+			//The decoder fell behind, only count it once we have played something
+			if( started && !starving ) {
+				underruns.incrementAndGet();
+				totalUnderruns.increment();
+			}
+			starving = true;
+			schedule();
+
+			Arrays.fill( buffer, offset, offset + length, (byte) 0 );
+			return length;
+		}
+
+		int index = (int)(read % ring.length);
+		int first = Math.min( size, ring.length - index );
+		System.arraycopy( ring, index, buffer, offset, first );
+		System.arraycopy( ring, 0, buffer, offset + first, size - first );
+		readPosition = read + size;
+
+		started = true;
+		starving = false;
+		if( ring.length - available + size >= ring.length / REFILL_DIVISOR ) schedule();
+		return size;
+	}
+
+	public int read() throws IOException {
+		byte[] single = new byte[1];
+		return read( single, 0, 1 ) == -1 ? -1 : single[0] & 0xFF;
+	}
+
+	/**
+	 * Skips decoded audio that is already in the buffer, never waits for more
+	 */
+	public long skip( long bytes ) {
+		long read = readPosition;
+		long size = Math.min( bytes, writePosition - read ) / frameSize * frameSize;
+		if( size <= 0 ) return 0;
+		readPosition = read + size;
+		schedule();
+		return size;
+	}
+
+	public int available() {
+		return (int)(writePosition - readPosition);
+	}
+
+	/**
+	 * Returns how full the buffer is, from 0.00f (empty) to 1.00f (full)
+	 */
+	float getFill() {
+		return (writePosition - readPosition) / (float) ring.length;
+	}
+
+	/**
+	 * Changes how the decoder loops. Audio that has already been decoded is not changed, so a change is
+	 * heard once the buffered audio has been played.
+	 * @param startFrame The frame the loop starts at
+	 * @param endFrame The frame the loop ends before, below 0 to loop at the end of the sound
+	 */
+	void setLoop( boolean looping, long startFrame, long endFrame ) {
+		this.looping = looping;
+		loopStart = startFrame;
+		loopEnd = endFrame;
+	}
+
+	/**
+	 * Starts decoding the loop start once the decoder has reached the end of the sound. This is only needed if
+	 * looping was enabled after the decoder had already finished. Must only be called by the reader.
+	 */
+	void prepareRestart() {
+		if( next == null && ended && error == null ) next = newRestart();
+	}
+
+	/**
+	 * Closes this buffer and returns a buffer that starts over from the loop start, or from the beginning if
+	 * the sound is not looping. Must only be called by the reader.
+	 */
+	StreamBuffer restart() {
+		StreamBuffer restarted = next != null ? next : newRestart();
+		next = null;
+		close();
+		return restarted;
+	}
+
+	private StreamBuffer newRestart() {
+		StreamBuffer restarted = new StreamBuffer( sound, format, milliseconds, underruns, waitForDecoder, looping, loopStart, loopEnd );
+		restarted.schedule();
+		return restarted;
+	}
+
+	/**
+	 * Stops decoding, the file is closed by the decoder thread
+	 */
+	public void close() {
+		closed = true;
+		if( next != null ) {
+			next.close();
+			next = null;
+		}
+		schedule();
+	}
+
+	/**
+	 * Hands the buffer to a decoder unless one is already working on it
+	 */
+	private void schedule() {
+		if( ended && !closed ) return;
+		if( !filling.compareAndSet( false, true ) ) return;
+
+		try {
+			decoders.execute( fill );
+		} catch( RuntimeException e ) {
+			filling.set( false );
+			throw e;
+		}
+	}
+
+	/**
+	 * Decodes until the buffer is full, the sound has ended or the buffer has been closed. Runs on a decoder thread.
+	 */
+	private void decode() {
+		do {
+			try {
+				if( !closed && !ended ) {
+					if( source == null ) openSource( startPosition );
+					fillRing();
+				}
+			} catch( Exception e ) {
+				error = e;
+				ended = true;
+			}
+			if( closed || ended ) {
+				closeSource();
+				closeContinuation();
+			}
+			filling.set( false );
+
+		//The reader may have made room or closed us after we stopped looking
+		} while( needsDecoder() && filling.compareAndSet( false, true ) );
+	}
+
+	private boolean needsDecoder() {
+		if( closed ) return source != null || continuation != null;
+		return !ended && ring.length - (writePosition - readPosition) >= ring.length / REFILL_DIVISOR;
+	}
+
+	private void fillRing() throws Exception {
+		while( !closed ) {
+			long write = writePosition;
+			int free = (int)(ring.length - (write - readPosition));
+			int index = (int)(write % ring.length);
+			int room = Math.min( Math.min( free, ring.length - index ), MAX_CHUNK ) / frameSize * frameSize;
+
+			//The buffer is full, use the time to get the next loop ready
+			if( room == 0 ) {
+				if( !prepareContinuation() ) return;
+				continue;
+			}
+
+			//Wrapping around, the loop head is copied instead of decoded
+			if( headCopied >= 0 ) {
+				int length = Math.min( room, headLength - headCopied );
+				System.arraycopy( head, headCopied, ring, index, length );
+				headCopied += length;
+				writePosition = write + length;
+				if( headCopied == headLength ) continueAfterHead();
+				continue;
+			}
+
+			long end = getLoopEndPosition();
+			if( sourcePosition >= end ) {
+				wrap();
+				continue;
+			}
+
+			int len = source.read( ring, index, (int) Math.min( room, end - sourcePosition ) );
+			if( len == -1 ) {
+
+				//Only loop if there is anything between the loop start and the end of the sound
+				if( looping && sourcePosition > loopStart * frameSize ) {
+					wrap();
+					continue;
+				}
+				ended = true;
+				return;
+			}
+
+			captureHead( index, len );
+			sourcePosition += len;
+			writePosition = write + len;
+		}
+	}
+
+	/**
+	 * Returns the position the decoder wraps around at, or Long.MAX_VALUE to play until the end of the sound
+	 */
+	private long getLoopEndPosition() {
+		long end = loopEnd;
+		if( !looping || end < 0 ) return Long.MAX_VALUE;
+		return end * frameSize;
+	}
+
+	/**
+	 * Keeps the part of the data just read from the source that belongs to the loop head
+	 * @param index Where in the ring buffer the data is
+	 */
+	private void captureHead( int index, int length ) {
+		long start = loopStart * frameSize;
+		if( headStart != start ) {
+			headStart = start;
+			headLength = 0;
+			closeContinuation();
+		}
+		if( head == null ) head = new byte[ring.length];
+
+		//Only continue a head that ends exactly where this data begins or that starts within it
+		long from = headStart + headLength;
+		if( headLength == head.length || from < sourcePosition || from >= sourcePosition + length ) return;
+
+		int size = (int) Math.min( sourcePosition + length - from, head.length - headLength );
+		System.arraycopy( ring, index + (int)(from - sourcePosition), head, headLength, size );
+		headLength += size;
+	}
+
+	/**
+	 * Goes back to the loop start. If the loop head is known it is copied into the buffer first, otherwise the
+	 * sound is decoded from the beginning again.
+	 */
+	private void wrap() throws Exception {
+		long start = loopStart * frameSize;
+
+		//The loop end was moved into the head, keep only the part that is still looped
+		if( headStart == start && start < sourcePosition && headStart + headLength > sourcePosition ) {
+			headLength = (int)(sourcePosition - start);
+			closeContinuation();
+		}
+		long headEnd = headStart + headLength;
+
+		//The head is usable if it is complete or if it covers the whole loop
+		if( headStart == start && headLength > 0 && headEnd <= sourcePosition
+				&& (headLength == head.length || headEnd == sourcePosition) ) {
+			headCopied = 0;
+			return;
+		}
+
+		closeSource();
+		openSource( start );
+	}
+
+	/**
+	 * Continues decoding right after the loop head that has just been copied into the buffer
+	 */
+	private void continueAfterHead() throws Exception {
+		headCopied = -1;
+		long headEnd = headStart + headLength;
+
+		//The whole loop fits into the head, so the source stays at the loop end
+		if( headEnd == sourcePosition ) return;
+
+		while( !closed && (continuation == null || continuationPosition < headEnd) ) advanceContinuation( headEnd );
+		closeSource();
+		source = continuation;
+		sourcePosition = continuationPosition;
+		continuation = null;
+	}
+
+	/**
+	 * Decodes a bit of the second decoder towards the end of the loop head
+	 * @return false if there is nothing to do
+	 */
+	private boolean prepareContinuation() throws Exception {
+		if( !looping || head == null || headLength < head.length || headStart != loopStart * frameSize ) return false;
+
+		long headEnd = headStart + headLength;
+		if( continuation != null && continuationPosition >= headEnd ) return false;
+
+		//Not needed if the whole loop fits into the head
+		if( getLoopEndPosition() <= headEnd ) return false;
+
+		advanceContinuation( headEnd );
+		return true;
+	}
+
+	private void advanceContinuation( long position ) throws Exception {
+		if( continuation == null ) {
+			continuation = sound.open();
+			continuationPosition = 0;
+		}
+
+		int len = skipChunk( continuation, position - continuationPosition );
+
+		//The file got shorter, the source will notice when it reads from it
+		if( len == -1 ) len = (int)(position - continuationPosition);
+		continuationPosition += len;
+	}
+
+	/**
+	 * Opens the sound and decodes it up to the specified position
+	 */
+	private void openSource( long position ) throws Exception {
+		source = sound.open();
+		sourcePosition = 0;
+
+		while( sourcePosition < position && !closed ) {
+			int len = skipChunk( source, position - sourcePosition );
+			if( len == -1 ) break;
+			sourcePosition += len;
+		}
+	}
+
+	/**
+	 * Decodes and throws away up to MAX_CHUNK bytes
+	 * @return The number of bytes skipped or -1 at the end of the sound
+	 */
+	private int skipChunk( AudioInputStream stream, long bytes ) throws IOException {
+		if( scratch == null ) scratch = new byte[MAX_CHUNK];
+		int length = (int) Math.min( bytes, MAX_CHUNK ) / frameSize * frameSize;
+		return stream.read( scratch, 0, Math.max( length, frameSize ) );
+	}
+
+	private void closeSource() {
+		if( source == null ) return;
+
+		try {
+			source.close();
+		} catch( IOException e ) {
+			e.printStackTrace();
+		}
+		source = null;
+	}
+
+	private void closeContinuation() {
+		if( continuation == null ) return;
+
+		try {
+			continuation.close();
+		} catch( IOException e ) {
+			e.printStackTrace();
+		}
+		continuation = null;
+	}
+
+	/**
+	 * Creates the daemon threads that decode streamed sounds
+	 */
+	private static class DecoderThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread( Runnable task ) {
+			Thread thread = new Thread( task, "JSoundSystem Stream " + count.getAndIncrement() );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import javax.sound.sampled.AudioFormat;
+
+
+/**
+ * The playback side of an Audio object. A Voice is either an AudioThread which plays the sound
+ * in its own thread on its own line, or a MixerVoice which is summed together with all other
+ * voices by the software mixer.
+ * @see AudioThread, MixerVoice
+ */
+interface Voice {
+
+	/**
+	 * Begins playing or resumes a paused voice. A voice that isn't holding a channel yet reserves one first.
+	 * @return false if the voice could not be played because there are no free channels
+	 */
+	boolean play();
+
+	void pause();
+
+	void stopPlaying();
+
+	void dispose();
+
+	void setLooped( boolean looping );
+
+	void setVolume( float volume );
+
+	void setPanning( float panning );
+
+	void setSpeed( float speed );
+
+	/**
+	 * Sets where a looping streamed sound loops, sounds loaded into memory always loop the whole sound
+	 * @param endFrame The frame the loop ends before, below 0 to loop at the end of the sound
+	 */
+	void setLoopPoints( long startFrame, long endFrame );
+
+	/**
+	 * Copies the effect settings and 3D position of another voice of the same sound, used to reuse a
+	 * voice for a new instance of its sound
+	 */
+	void takeSettings( Voice parent );
+
+	float getVolume();
+
+	/**
+	 * Returns the volume the voice was last played with, after 3D attenuation and the volume of its buses.
+	 * Used to find the quietest voice when a channel is stolen.
+	 */
+	float getPlayedVolume();
+
+	/**
+	 * Moves the voice to another bus, a playing voice changes bus at the start of its next block
+	 */
+	void setBus( SoundBus bus );
+
+	SoundBus getBus();
+
+	/**
+	 * Sends a copy of this voice to a bus as well, or stops sending when bus is null
+	 */
+	void setSend( SoundBus bus, float level );
+
+	SoundBus getSendBus();
+
+	float getSendLevel();
+
+	/**
+	 * Returns the effects applied to this voice before it is mixed into its bus
+	 */
+	EffectChain getEffects();
+
+	void setPriority( int priority );
+
+	int getPriority();
+
+	/**
+	 * Called when the channel of this voice is given to a sound with a higher priority. The voice must fade
+	 * out and stop without freeing its channel. This may be called while another voice holds its own lock,
+	 * so it must not block.
+	 */
+	void steal();
+
+	/**
+	 * Called by the VoiceVirtualizer when a virtual voice comes back into range. The voice continues playing
+	 * where it would have been by now.
+	 * @return false if the voice should stay virtual because there was no free channel
+	 */
+	boolean resumeFromVirtual();
+
+	boolean isPlaying();
+
+	boolean isPaused();
+
+	void enableSpatializedSound();
+
+	void setSourcePosition( float x, float y, float z );
+
+	AudioFormat getAudioFormat();
+
+	/**
+	 * Returns how full the read-ahead buffer of a streamed sound is, from 0.00f to 1.00f. Sounds loaded
+	 * into memory always return 1.00f.
+	 */
+	float getBufferFill();
+
+	/**
+	 * Returns how often a streamed sound ran out of decoded audio while playing
+	 */
+	long getUnderruns();
+
+	String getName();
+
+	/**
+	 * Makes an exact copy of this voice that shares the same sound data
+	 */
+	Voice clone();
+}
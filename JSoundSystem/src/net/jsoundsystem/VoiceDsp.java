@@ -0,0 +1,250 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The software signal path of a single voice. Reads 16 bit PCM from a source, resamples it with linear
+ * interpolation to change its speed and adds it to an interleaved stereo float buffer with volume and
+ * equal-power panning. Gain changes are ramped over a whole block to avoid zipper noise. All buffers are
+ * allocated up front, so mixing a block never allocates.
+ * <p>
+ * Since this does not depend on any line controls, volume, panning and speed work the same way on every
+ * output backend. Decoding and sounds played at their original speed go through MixKernels, which uses
+ * SIMD instructions when they are available.
+ */
+final class VoiceDsp {
+
+	/**
+	 * Where a voice reads its sample data from
+	 */
+	interface Source {
+
+		/**
+		 * Reads raw sample data, looping the sound if needed
+		 * @return The number of bytes read or -1 if there is no more data to be played
+		 */
+		int readSamples( byte[] buffer, int offset, int length ) throws Exception;
+	}
+
+	//Equal-power panning is scaled so a centered sound is played at its original volume
+	private static final float PAN_SCALE = (float) Math.sqrt( 2 );
+
+	private final MixKernels kernels = MixKernels.get();
+	private final Source source;
+	private final int frameSize, channels;
+	private final boolean bigEndian;
+
+	//Raw data read from the source, may end with a partial frame
+	private final byte[] readBuffer;
+	private int readLength;
+
+	//Decoded interleaved stereo frames. The resampler plays between the frame at position and the next one.
+	private final float[] samples;
+	private int position, count;
+	private double phase;
+	private boolean endOfSource;
+
+	//Frames the resampler stepped over before they were decoded, they are dropped from the next read
+	private int skipFrames;
+
+	//Gain at the end of the last block and the gain the next block ramps to
+	private float leftGain, rightGain;
+	private float targetLeft, targetRight;
+	private boolean snapGain = true;
+
+	/**
+	 * @param format The 16 bit PCM format of the source
+	 * @param blockFrames How many frames are read from the source at a time
+	 */
+	VoiceDsp( Source source, AudioFormat format, int blockFrames ) {
+		this.source = source;
+		frameSize = Math.max( 1, format.getFrameSize() );
+		channels = Math.max( 1, format.getChannels() );
+		bigEndian = format.isBigEndian();
+		readBuffer = new byte[blockFrames * frameSize];
+
+		//Room for one frame kept from the last block and the silent frame added at the end
+		samples = new float[(blockFrames + 2) * 2];
+	}
+
+	/**
+	 * Sets the volume and panning the next block ramps to
+	 * @param volume 1.00f is the original volume
+	 * @param panning Between -1.00f (left) and 1.00f (right)
+	 */
+	void setGain( float volume, float panning ) {
+		float gain = Math.max( 0, volume ) * PAN_SCALE;
+		double angle = (Math.max( -1, Math.min( panning, 1 ) ) + 1) * Math.PI / 4;
+		targetLeft = gain * (float) Math.cos( angle );
+		targetRight = gain * (float) Math.sin( angle );
+	}
+
+	/**
+	 * Makes the next block ramp down to silence
+	 */
+	void fadeOut() {
+		targetLeft = 0;
+		targetRight = 0;
+	}
+
+	/**
+	 * Forgets all buffered data, must be called when the source starts over from the beginning.
+	 * The next block starts at its target gain instead of ramping to it.
+	 */
+	void reset() {
+		readLength = 0;
+		position = 0;
+		count = 0;
+		phase = 0;
+		skipFrames = 0;
+		endOfSource = false;
+		snapGain = true;
+	}
+
+	/**
+	 * Returns how many bytes were read from the source but not played yet
+	 */
+	int getBufferedBytes() {
+		int frames = count - position - (endOfSource ? 1 : 0);
+		return Math.max( 0, frames ) * frameSize + readLength;
+	}
+
+	/**
+	 * Resamples the next block and adds it to the buffer
+	 * @param buffer Interleaved stereo buffer the voice is added to
+	 * @param frames How many frames to mix
+	 * @param step How many source frames to advance per output frame, 1.00 plays at the original speed
+	 * @return The number of frames mixed, less than requested if the source has no more data
+	 */
+	int mix( float[] buffer, int frames, double step ) throws Exception {
+		if( snapGain ) {
+			snapGain = false;
+			leftGain = targetLeft;
+			rightGain = targetRight;
+		}
+
+		//Ramp from the last gain to the new gain over the whole block
+		float leftStep = (targetLeft - leftGain) / frames;
+		float rightStep = (targetRight - rightGain) / frames;
+		step = Math.max( 0, step );
+
+		int done = 0;
+		while( done < frames ) {
+
+			//Make sure there are two frames to interpolate between
+			if( position + 1 >= count ) {
+				if( endOfSource ) break;
+				refill();
+				continue;
+			}
+
+			float left = leftGain + leftStep * done;
+			float right = rightGain + rightStep * done;
+
+			//Playing at the original speed is a plain copy with gain
+			if( step == 1 && phase == 0 ) {
+				int length = Math.min( frames - done, count - position - 1 );
+				kernels.mixRamp( samples, position, buffer, done, length, left, leftStep, right, rightStep );
+				position += length;
+				done += length;
+				continue;
+			}
+
+			//Linear interpolation between the two frames surrounding the current position
+			for( int i = 1; done < frames && position + 1 < count; i++ ) {
+				int current = position * 2;
+				float t = (float) phase;
+				buffer[done*2]   += (samples[current]   + (samples[current+2] - samples[current])   * t) * (left + leftStep * i);
+				buffer[done*2+1] += (samples[current+1] + (samples[current+3] - samples[current+1]) * t) * (right + rightStep * i);
+				done++;
+
+				phase += step;
+				int advance = (int) phase;
+				position += advance;
+				phase -= advance;
+			}
+		}
+
+		leftGain += leftStep * done;
+		rightGain += rightStep * done;
+		return done;
+	}
+
+	/**
+	 * Keeps the frames that are still needed and decodes more data from the source. At the end of the
+	 * source a silent frame is added, so the last frame can be interpolated and played as well.
+	 */
+	private void refill() throws Exception {
+
+		//At high speeds a single step can go past all decoded frames, the rest is skipped while reading
+		if( position >= count ) {
+			skipFrames += position - count;
+			position = 0;
+			count = 0;
+		}
+		else {
+			int kept = count - position;
+			System.arraycopy( samples, position * 2, samples, 0, kept * 2 );
+			position = 0;
+			count = kept;
+		}
+
+		int space = Math.min( samples.length / 2 - 1 - count, readBuffer.length / frameSize );
+		int len = source.readSamples( readBuffer, readLength, space * frameSize - readLength );
+		if( len == -1 ) {
+			samples[count*2] = 0;
+			samples[count*2+1] = 0;
+			count++;
+			readLength = 0;
+			endOfSource = true;
+			return;
+		}
+		readLength += len;
+
+		//Decode whole frames and keep any partial frame for the next time
+		int decoded = readLength / frameSize;
+		int skipped = Math.min( skipFrames, decoded );
+		skipFrames -= skipped;
+		kernels.decodePcm16( readBuffer, skipped * frameSize, decoded - skipped, frameSize, channels, bigEndian, samples, count );
+		count += decoded - skipped;
+
+		readLength -= decoded * frameSize;
+		System.arraycopy( readBuffer, decoded * frameSize, readBuffer, 0, readLength );
+	}
+
+	/**
+	 * Clips interleaved float samples and converts them to signed 16 bit little endian PCM
+	 * @param samples How many samples to convert, two per stereo frame
+	 */
+	static void toPcm16( float[] input, int samples, byte[] output ) {
+		MixKernels.get().encodePcm16( input, samples, output );
+	}
+}
@@ -0,0 +1,150 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors that run sounds played in PlaybackMode.THREADED. A sound only uses a thread of the
+ * executor while it is playing, paused and stopped sounds don't use any thread.
+ * @see JSoundSystem#setVoiceExecutor(Executor)
+ */
+public final class VoiceExecutors {
+
+	//How long an idle pool thread waits for a new sound before it ends
+	private static final long KEEP_ALIVE_SECONDS = 5;
+
+	private VoiceExecutors(){
+	}
+
+	/**
+	 * Returns true if the running Java version supports virtual threads (Java 21 and newer)
+	 */
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Thread.class.getMethod( "ofVirtual" );
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates an executor that plays every sound on its own virtual thread. Any number of sounds can play at
+	 * the same time without using an operating system thread for each of them.
+	 * @throws UnsupportedOperationException If virtual threads are not supported by this Java version
+	 */
+	public static Executor newVirtualThreadExecutor() {
+		try {
+			//Thread.ofVirtual().name("JSoundSystem Voice ", 0).factory(), through reflection so we still run on older Java versions
+			Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+			Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+			builder = builderClass.getMethod( "name", String.class, long.class ).invoke( builder, "JSoundSystem Voice ", 0L );
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod( "factory" ).invoke( builder );
+
+			Method newExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+			return (Executor) newExecutor.invoke( null, factory );
+		} catch (Exception e) {
+			throw new UnsupportedOperationException( "Virtual threads are not supported by this Java version.", e );
+		}
+	}
+
+	/**
+	 * Creates an executor with a limited number of low priority daemon threads. Threads are only created
+	 * while sounds are playing and end after they have been idle for a few seconds. Sounds that are played
+	 * while all threads are busy wait until another sound finishes, so the size should be at least the
+	 * maximum number of channels.
+	 * @param threads The maximum number of sounds that play at the same time
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public static Executor newPlatformThreadPool( int threads ) {
+		if( threads < 1 ) throw new IllegalArgumentException("A thread pool needs at least one thread.");
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor( threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new VoiceThreadFactory() );
+		pool.allowCoreThreadTimeOut( true );
+		return pool;
+	}
+
+	/**
+	 * Changes the number of threads of a pool created by newPlatformThreadPool(). Other executors are not changed.
+	 */
+	static void resizePlatformThreadPool( Executor executor, int threads ) {
+		if( !(executor instanceof ThreadPoolExecutor) ) return;
+		ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+		threads = Math.max( 1, threads );
+
+		//The core size can never be larger than the maximum size
+		if( threads > pool.getMaximumPoolSize() ) {
+			pool.setMaximumPoolSize( threads );
+			pool.setCorePoolSize( threads );
+		}
+		else {
+			pool.setCorePoolSize( threads );
+			pool.setMaximumPoolSize( threads );
+		}
+	}
+
+	/**
+	 * Creates the default executor. This uses virtual threads if they are supported, or a pool
+	 * of the specified size otherwise.
+	 */
+	static Executor newDefaultExecutor( int threads ) {
+		if( isVirtualThreadSupported() ) {
+			try {
+				return newVirtualThreadExecutor();
+			} catch (UnsupportedOperationException e) {
+				//Fall back to platform threads
+			}
+		}
+
+		return newPlatformThreadPool( threads );
+	}
+
+	/**
+	 * Creates threads the same way sounds used to: daemon threads with low priority
+	 */
+	private static class VoiceThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread( Runnable task ) {
+			Thread thread = new Thread( task, "JSoundSystem Voice " + count.getAndIncrement() );
+			thread.setPriority( Thread.MIN_PRIORITY );		//Sounds have low priority
+			thread.setDaemon( true );						//And run independently
+			return thread;
+		}
+	}
+}
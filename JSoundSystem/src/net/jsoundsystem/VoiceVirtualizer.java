@@ -0,0 +1,257 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import javax.sound.sampled.AudioFormat;
+
+import net.jsoundsystem.utils.Vector3f;
+
+/**
+ * Keeps track of virtual voices: 3D sounds that are playing but too far away to be heard. A virtual voice
+ * holds no channel, no line and no thread, it only remembers where it was and when, so it can continue at
+ * the right position once it comes back into range.
+ * <p>
+ * Virtual voices are kept in a uniform grid with cells as large as the max hearing distance. Every update
+ * only looks at the 27 cells around the listener, so thousands of far away sounds cost nothing.
+ */
+final class VoiceVirtualizer extends Thread {
+
+	//How often in milliseconds to check if virtual voices came back into range
+	private static final long UPDATE_INTERVAL = 50;
+
+	//Voices come back a little inside the max distance so they don't flip at the edge
+	private static final float RESUME_DISTANCE = 0.95f;
+
+	//When there are not enough channels the closest voices come back first
+	private static final Comparator<Entry> CLOSEST_FIRST = new Comparator<Entry>() {
+		public int compare( Entry a, Entry b ) {
+			return Float.compare( a.distance, b.distance );
+		}
+	};
+
+	//Virtual voices by grid cell. Guarded by this.
+	private final HashMap<Long, ArrayList<Entry>> grid = new HashMap<Long, ArrayList<Entry>>();
+	private final HashMap<Voice, Entry> entries = new HashMap<Voice, Entry>();
+	private float cellSize = JSoundSystem.maxDistance;
+
+	//Only used by the virtualizer thread
+	private final ArrayList<Entry> candidates = new ArrayList<Entry>();
+
+	VoiceVirtualizer() {
+		super( "JSoundSystem Virtualizer" );
+		setDaemon( true );
+	}
+
+	/**
+	 * Adds a voice that just became virtual
+	 */
+	synchronized void add( Voice voice, float x, float y, float z ) {
+		Entry old = entries.remove( voice );
+		if( old != null ) removeFromCell( old );
+
+		Entry entry = new Entry( voice, x, y, z );
+		entries.put( voice, entry );
+		addToCell( entry );
+		notifyAll();
+	}
+
+	/**
+	 * Removes a voice that is no longer virtual, does nothing if the voice isn't virtual
+	 */
+	synchronized void remove( Voice voice ) {
+		Entry entry = entries.remove( voice );
+		if( entry != null ) removeFromCell( entry );
+	}
+
+	/**
+	 * Updates the position of a virtual voice, does nothing if the voice isn't virtual
+	 */
+	synchronized void move( Voice voice, float x, float y, float z ) {
+		Entry entry = entries.get( voice );
+		if( entry == null ) return;
+
+		long cell = getCell( x, y, z );
+		if( cell != entry.cell ) {
+			removeFromCell( entry );
+			entry.setPosition( x, y, z );
+			addToCell( entry );
+		}
+		else entry.setPosition( x, y, z );
+	}
+
+	synchronized int getVirtualCount() {
+		return entries.size();
+	}
+
+	public void run() {
+		while( true ) {
+			collectCandidates();
+
+			//Voices might take their own lock, so this is done without holding ours
+			for( int i = 0; i < candidates.size(); i++ ) {
+				Entry entry = candidates.get(i);
+				if( entry.voice.resumeFromVirtual() ) removeEntry( entry );
+			}
+			candidates.clear();
+		}
+	}
+
+	/**
+	 * Waits for the next update and finds all virtual voices that are back in range
+	 */
+	private synchronized void collectCandidates() {
+		try {
+			while( entries.isEmpty() ) wait();
+			wait( UPDATE_INTERVAL );
+		} catch( InterruptedException e ) {
+			e.printStackTrace();
+		}
+
+		//Bring everything back when virtualization was switched off
+		if( !JSoundSystem.isVoiceVirtualization() ) {
+			candidates.addAll( entries.values() );
+			return;
+		}
+
+		//The max distance changed, so the grid has to be rebuilt
+		if( cellSize != JSoundSystem.maxDistance ) {
+			cellSize = JSoundSystem.maxDistance;
+			grid.clear();
+			for( Entry entry : entries.values() ) addToCell( entry );
+		}
+
+		Vector3f listener = JSoundSystem.getListenerPosition();
+		float listenerX = listener.x, listenerY = listener.y, listenerZ = listener.z;
+		int cellX = getCellIndex( listenerX ), cellY = getCellIndex( listenerY ), cellZ = getCellIndex( listenerZ );
+		float range = cellSize * RESUME_DISTANCE;
+
+		//Anything within the max distance lies in one of the cells next to the listener
+		for( int x = cellX - 1; x <= cellX + 1; x++ ) {
+			for( int y = cellY - 1; y <= cellY + 1; y++ ) {
+				for( int z = cellZ - 1; z <= cellZ + 1; z++ ) {
+					ArrayList<Entry> cell = grid.get( getCell( x, y, z ) );
+					if( cell == null ) continue;
+
+					for( Entry entry : cell ) {
+						float dx = entry.x - listenerX, dy = entry.y - listenerY, dz = entry.z - listenerZ;
+						entry.distance = dx*dx + dy*dy + dz*dz;
+						if( entry.distance < range*range ) candidates.add( entry );
+					}
+				}
+			}
+		}
+
+		Collections.sort( candidates, CLOSEST_FIRST );
+	}
+
+	/**
+	 * Removes an entry after its voice was resumed, unless the voice already became virtual again
+	 */
+	private synchronized void removeEntry( Entry entry ) {
+		if( entries.get( entry.voice ) != entry ) return;
+		entries.remove( entry.voice );
+		removeFromCell( entry );
+	}
+
+	private void addToCell( Entry entry ) {
+		entry.cell = getCell( entry.x, entry.y, entry.z );
+		ArrayList<Entry> cell = grid.get( entry.cell );
+		if( cell == null ) {
+			cell = new ArrayList<Entry>();
+			grid.put( entry.cell, cell );
+		}
+		cell.add( entry );
+	}
+
+	private void removeFromCell( Entry entry ) {
+		ArrayList<Entry> cell = grid.get( entry.cell );
+		if( cell == null ) return;
+		cell.remove( entry );
+		if( cell.isEmpty() ) grid.remove( entry.cell );
+	}
+
+	private int getCellIndex( float coordinate ) {
+		return (int) Math.floor( coordinate / cellSize );
+	}
+
+	private long getCell( float x, float y, float z ) {
+		return getCell( getCellIndex( x ), getCellIndex( y ), getCellIndex( z ) );
+	}
+
+	/**
+	 * Packs three cell indices into one key, 21 bits each
+	 */
+	private static long getCell( int x, int y, int z ) {
+		return ((long)(x & 0x1FFFFF) << 42) | ((long)(y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+	}
+
+	/**
+	 * Works out where a virtual voice would be playing by now
+	 * @param frame The frame the voice was at when it became virtual
+	 * @param since System.nanoTime() when the voice became virtual
+	 * @param totalFrames The length of the sound in frames
+	 * @return The current frame, or -1 if a sound that isn't looping has ended
+	 */
+	static long advance( long frame, long since, float speed, AudioFormat format, long totalFrames, boolean looping ) {
+		double elapsed = (System.nanoTime() - since) / 1000000000.0;
+		long position = frame + (long)(elapsed * Math.max( 0, speed ) * format.getFrameRate());
+
+		if( position < totalFrames ) return position;
+		if( !looping || totalFrames <= 0 ) return -1;
+		return position % totalFrames;
+	}
+
+	/**
+	 * A virtual voice and its position
+	 */
+	private static final class Entry {
+		final Voice voice;
+		float x, y, z;
+		long cell;
+
+		//Squared distance to the listener at the last update
+		float distance;
+
+		Entry( Voice voice, float x, float y, float z ) {
+			this.voice = voice;
+			setPosition( x, y, z );
+		}
+
+		void setPosition( float x, float y, float z ) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+	}
+}
@@ -0,0 +1,262 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.effects;
+
+/**
+ * A second order IIR filter for both channels, with the coefficients from Robert Bristow-Johnson's Audio EQ
+ * Cookbook. It runs in transposed direct form II and keeps only four floats of state, so it is cheap enough to
+ * put on every voice.
+ * <pre>
+ *	mySound.getEffects().add( new BiquadFilter( BiquadFilter.Type.LOW_PASS, 800 ) );
+ * </pre>
+ * Frequency, Q and gain can be changed while the sound plays, the new coefficients are used from the next block.
+ */
+public final class BiquadFilter implements SoundEffect {
+
+	/**
+	 * The shape of the filter
+	 */
+	public enum Type {
+
+		/**
+		 * Lets frequencies below the cutoff through, the gain is ignored
+		 */
+		LOW_PASS,
+
+		/**
+		 * Lets frequencies above the cutoff through, the gain is ignored
+		 */
+		HIGH_PASS,
+
+		/**
+		 * Lets frequencies around the center through, Q sets how narrow the band is. The gain is ignored.
+		 */
+		BAND_PASS,
+
+		/**
+		 * Removes frequencies around the center, Q sets how narrow the band is. The gain is ignored.
+		 */
+		NOTCH,
+
+		/**
+		 * Boosts or cuts frequencies around the center by the gain, an EQ band
+		 */
+		PEAKING,
+
+		/**
+		 * Boosts or cuts frequencies below the cutoff by the gain
+		 */
+		LOW_SHELF,
+
+		/**
+		 * Boosts or cuts frequencies above the cutoff by the gain
+		 */
+		HIGH_SHELF
+	}
+
+	//Values below this are flushed to zero, so a silent filter doesn't end up computing with denormals
+	private static final float DENORMAL = 1e-15f;
+
+	private final Type type;
+	private volatile float frequency, q, gain;
+	private volatile boolean changed = true;
+
+	//Normalized coefficients, only used by the playing thread
+	private float b0, b1, b2, a1, a2;
+	private float sampleRate;
+
+	//Filter state of the left and right channel
+	private float left1, left2, right1, right2;
+
+	/**
+	 * Creates a filter with a Q of 0.707, which has no resonance, and no gain
+	 * @param frequency The cutoff or center frequency in Hz
+	 */
+	public BiquadFilter( Type type, float frequency ) {
+		this( type, frequency, 0.7071f, 0 );
+	}
+
+	/**
+	 * @param frequency The cutoff or center frequency in Hz
+	 * @param q How sharp the filter is around the frequency, 0.707 has no resonance
+	 * @param gain How many decibels a peaking or shelf filter boosts, or cuts when negative
+	 * @throws IllegalArgumentException if type is null, or frequency or q is not positive
+	 */
+	public BiquadFilter( Type type, float frequency, float q, float gain ) {
+		if( type == null ) throw new IllegalArgumentException("Filter type cannot be null.");
+		this.type = type;
+		setFrequency( frequency );
+		setQ( q );
+		setGain( gain );
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @param frequency The cutoff or center frequency in Hz, limited to just below half the sample rate
+	 * @throws IllegalArgumentException if frequency is not positive
+	 */
+	public void setFrequency( float frequency ) {
+		if( !(frequency > 0) ) throw new IllegalArgumentException("Frequency must be positive.");
+		this.frequency = frequency;
+		changed = true;
+	}
+
+	public float getFrequency() {
+		return frequency;
+	}
+
+	/**
+	 * @param q How sharp the filter is around the frequency, 0.707 has no resonance
+	 * @throws IllegalArgumentException if q is not positive
+	 */
+	public void setQ( float q ) {
+		if( !(q > 0) ) throw new IllegalArgumentException("Q must be positive.");
+		this.q = q;
+		changed = true;
+	}
+
+	public float getQ() {
+		return q;
+	}
+
+	/**
+	 * @param gain How many decibels a peaking or shelf filter boosts, or cuts when negative
+	 */
+	public void setGain( float gain ) {
+		this.gain = gain;
+		changed = true;
+	}
+
+	public float getGain() {
+		return gain;
+	}
+
+	public void process( float[] buffer, int frames, float sampleRate ) {
+		if( changed || sampleRate != this.sampleRate ) updateCoefficients( sampleRate );
+
+		float b0 = this.b0, b1 = this.b1, b2 = this.b2, a1 = this.a1, a2 = this.a2;
+		float left1 = this.left1, left2 = this.left2, right1 = this.right1, right2 = this.right2;
+
+		for( int i = 0; i < frames * 2; i += 2 ) {
+			float left = buffer[i];
+			float out = b0 * left + left1;
+			left1 = b1 * left - a1 * out + left2;
+			left2 = b2 * left - a2 * out;
+			buffer[i] = out;
+
+			float right = buffer[i+1];
+			out = b0 * right + right1;
+			right1 = b1 * right - a1 * out + right2;
+			right2 = b2 * right - a2 * out;
+			buffer[i+1] = out;
+		}
+
+		this.left1 = flush( left1 );
+		this.left2 = flush( left2 );
+		this.right1 = flush( right1 );
+		this.right2 = flush( right2 );
+	}
+
+	public int getTailFrames() {
+		return 0;
+	}
+
+	public void reset() {
+		left1 = left2 = right1 = right2 = 0;
+	}
+
+	private static float flush( float value ) {
+		return Math.abs( value ) < DENORMAL ? 0 : value;
+	}
+
+	/**
+	 * Computes the coefficients for the current settings, called by the playing thread
+	 */
+	private void updateCoefficients( float sampleRate ) {
+
+		//Changes made while we compute are picked up by the next block
+		changed = false;
+		this.sampleRate = sampleRate;
+
+		double w0 = 2 * Math.PI * Math.min( frequency, sampleRate * 0.49f ) / sampleRate;
+		double cos = Math.cos( w0 );
+		double alpha = Math.sin( w0 ) / (2 * q);
+		double a = Math.pow( 10, gain / 40 );
+		double shelf = 2 * Math.sqrt( a ) * alpha;
+
+		double n0, n1, n2, d0, d1, d2;
+		switch( type ) {
+			case LOW_PASS:
+				n0 = (1 - cos) / 2;		n1 = 1 - cos;		n2 = (1 - cos) / 2;
+				d0 = 1 + alpha;			d1 = -2 * cos;		d2 = 1 - alpha;
+				break;
+			case HIGH_PASS:
+				n0 = (1 + cos) / 2;		n1 = -(1 + cos);	n2 = (1 + cos) / 2;
+				d0 = 1 + alpha;			d1 = -2 * cos;		d2 = 1 - alpha;
+				break;
+			case BAND_PASS:
+				n0 = alpha;				n1 = 0;				n2 = -alpha;
+				d0 = 1 + alpha;			d1 = -2 * cos;		d2 = 1 - alpha;
+				break;
+			case NOTCH:
+				n0 = 1;					n1 = -2 * cos;		n2 = 1;
+				d0 = 1 + alpha;			d1 = -2 * cos;		d2 = 1 - alpha;
+				break;
+			case PEAKING:
+				n0 = 1 + alpha * a;		n1 = -2 * cos;		n2 = 1 - alpha * a;
+				d0 = 1 + alpha / a;		d1 = -2 * cos;		d2 = 1 - alpha / a;
+				break;
+			case LOW_SHELF:
+				n0 = a * ((a + 1) - (a - 1) * cos + shelf);
+				n1 = 2 * a * ((a - 1) - (a + 1) * cos);
+				n2 = a * ((a + 1) - (a - 1) * cos - shelf);
+				d0 = (a + 1) + (a - 1) * cos + shelf;
+				d1 = -2 * ((a - 1) + (a + 1) * cos);
+				d2 = (a + 1) + (a - 1) * cos - shelf;
+				break;
+			default:
+				n0 = a * ((a + 1) + (a - 1) * cos + shelf);
+				n1 = -2 * a * ((a - 1) + (a + 1) * cos);
+				n2 = a * ((a + 1) + (a - 1) * cos - shelf);
+				d0 = (a + 1) - (a - 1) * cos + shelf;
+				d1 = 2 * ((a - 1) - (a + 1) * cos);
+				d2 = (a + 1) - (a - 1) * cos - shelf;
+				break;
+		}
+
+		b0 = (float) (n0 / d0);
+		b1 = (float) (n1 / d0);
+		b2 = (float) (n2 / d0);
+		a1 = (float) (d1 / d0);
+		a2 = (float) (d2 / d0);
+	}
+}
@@ -0,0 +1,215 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.effects;
+
+/**
+ * A feed-forward compressor that turns down everything above a threshold. Both channels are compressed by
+ * the same amount, so the stereo image doesn't move. The level follows the loudest channel with separate
+ * attack and release times.
+ * <p>
+ * The gain is computed every 32 frames and ramped in between, which sounds the same as computing it for
+ * every frame at a fraction of the cost.
+ */
+public final class Compressor implements SoundEffect {
+
+	//Frames between two gain computations
+	private static final int GAIN_INTERVAL = 32;
+
+	private volatile float threshold = -18, ratio = 4, attack = 10, release = 100, makeupGain = 0;
+	private volatile boolean changed = true;
+
+	//Derived settings, only used by the playing thread
+	private float sampleRate;
+	private float thresholdLevel, exponent, makeupLevel;
+	private float attackCoefficient, releaseCoefficient;
+
+	//Level follower and the gain at the end of the last interval
+	private float envelope;
+	private float currentGain = 1;
+	private volatile float gainReduction;
+
+	/**
+	 * Creates a compressor with a threshold of -18 dB, a ratio of 4:1, 10 ms attack and 100 ms release
+	 */
+	public Compressor() {
+	}
+
+	/**
+	 * @param threshold The level in decibels (0 is full scale) above which the sound is compressed
+	 * @param ratio How many decibels the input has to rise above the threshold for the output to rise 1 decibel
+	 */
+	public Compressor( float threshold, float ratio ) {
+		setThreshold( threshold );
+		setRatio( ratio );
+	}
+
+	/**
+	 * @param threshold The level in decibels (0 is full scale) above which the sound is compressed
+	 */
+	public void setThreshold( float threshold ) {
+		this.threshold = threshold;
+		changed = true;
+	}
+
+	public float getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @param ratio How many decibels the input has to rise above the threshold for the output to rise 1 decibel
+	 * @throws IllegalArgumentException if ratio is less than 1
+	 */
+	public void setRatio( float ratio ) {
+		if( !(ratio >= 1) ) throw new IllegalArgumentException("Ratio must be at least 1.");
+		this.ratio = ratio;
+		changed = true;
+	}
+
+	public float getRatio() {
+		return ratio;
+	}
+
+	/**
+	 * @param milliseconds How fast the compressor reacts to a sound getting louder
+	 * @throws IllegalArgumentException if milliseconds is negative
+	 */
+	public void setAttack( float milliseconds ) {
+		if( !(milliseconds >= 0) ) throw new IllegalArgumentException("Attack cannot be negative.");
+		attack = milliseconds;
+		changed = true;
+	}
+
+	public float getAttack() {
+		return attack;
+	}
+
+	/**
+	 * @param milliseconds How fast the compressor lets go once a sound gets quieter
+	 * @throws IllegalArgumentException if milliseconds is negative
+	 */
+	public void setRelease( float milliseconds ) {
+		if( !(milliseconds >= 0) ) throw new IllegalArgumentException("Release cannot be negative.");
+		release = milliseconds;
+		changed = true;
+	}
+
+	public float getRelease() {
+		return release;
+	}
+
+	/**
+	 * @param gain How many decibels the compressed sound is turned up again
+	 */
+	public void setMakeupGain( float gain ) {
+		makeupGain = gain;
+		changed = true;
+	}
+
+	public float getMakeupGain() {
+		return makeupGain;
+	}
+
+	/**
+	 * Returns by how many decibels the sound was turned down at the end of the last block, for meters
+	 */
+	public float getGainReduction() {
+		return gainReduction;
+	}
+
+	public void process( float[] buffer, int frames, float sampleRate ) {
+		if( changed || sampleRate != this.sampleRate ) updateSettings( sampleRate );
+
+		float envelope = this.envelope;
+		float gain = currentGain;
+
+		for( int start = 0; start < frames; start += GAIN_INTERVAL ) {
+			int end = Math.min( start + GAIN_INTERVAL, frames );
+
+			//Follow the level of the louder channel
+			for( int i = start * 2; i < end * 2; i += 2 ) {
+				float level = Math.max( Math.abs( buffer[i] ), Math.abs( buffer[i+1] ) );
+				float coefficient = level > envelope ? attackCoefficient : releaseCoefficient;
+				envelope = level + coefficient * (envelope - level);
+			}
+
+			//Above the threshold the output rises 1/ratio as fast as the input
+			float target = envelope > thresholdLevel ? (float) Math.pow( envelope / thresholdLevel, exponent ) : 1;
+			target *= makeupLevel;
+
+			//Ramp to the new gain over this interval
+			float step = (target - gain) / (end - start);
+			for( int i = start * 2; i < end * 2; i += 2 ) {
+				gain += step;
+				buffer[i] *= gain;
+				buffer[i+1] *= gain;
+			}
+			gain = target;
+		}
+
+		this.envelope = envelope < 1e-15f ? 0 : envelope;
+		currentGain = gain;
+		gainReduction = gain < makeupLevel ? (float) (-20 * Math.log10( gain / makeupLevel )) : 0;
+	}
+
+	public int getTailFrames() {
+		return 0;
+	}
+
+	public void reset() {
+		envelope = 0;
+		currentGain = makeupLevel > 0 ? makeupLevel : 1;
+		gainReduction = 0;
+	}
+
+	/**
+	 * Converts the settings to levels and coefficients, called by the playing thread
+	 */
+	private void updateSettings( float sampleRate ) {
+
+		//Changes made while we compute are picked up by the next block
+		changed = false;
+		boolean first = this.sampleRate == 0;
+		this.sampleRate = sampleRate;
+
+		thresholdLevel = (float) Math.pow( 10, threshold / 20 );
+		exponent = 1 / ratio - 1;
+		makeupLevel = (float) Math.pow( 10, makeupGain / 20 );
+		attackCoefficient = coefficient( attack, sampleRate );
+		releaseCoefficient = coefficient( release, sampleRate );
+		if( first ) currentGain = makeupLevel;
+	}
+
+	/**
+	 * Returns the one pole coefficient that reaches 63% of a change in the given time
+	 */
+	private static float coefficient( float milliseconds, float sampleRate ) {
+		if( milliseconds <= 0 ) return 0;
+		return (float) Math.exp( -1000 / (milliseconds * sampleRate) );
+	}
+}
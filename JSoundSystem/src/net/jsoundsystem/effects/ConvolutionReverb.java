@@ -0,0 +1,332 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.effects;
+
+import java.util.Arrays;
+
+/**
+ * A reverb that convolves the sound with a recorded impulse response, the sound of a room, hall or cave.
+ * Convolution is done with uniformly partitioned FFTs: the impulse response is cut into partitions of the same
+ * size that are transformed once, and every partition of input is transformed once and then multiplied with
+ * all of them in the frequency domain. This makes even impulse responses of several seconds cheap enough to
+ * run in realtime.
+ * <p>
+ * The partition size trades latency for CPU time. The reverb lags the input by one partition, so 256 frames
+ * are under 6 ms at 44100 Hz, while larger partitions need fewer transforms and multiplications per second.
+ * <p>
+ * A reverb is meant to be shared by many sounds. Add it to a bus and let sounds send to it:
+ * <pre>
+ *	SoundBus hall = JSoundSystem.createBus( "hall" );
+ *	hall.getEffects().add( JSoundSystem.createReverb( new File( "hall.wav" ), 512 ) );
+ *	mySound.setSend( hall, 0.30f );
+ * </pre>
+ * The impulse response is scaled so that the reverb is about as loud as its input. A mono impulse response is
+ * used for both channels, a stereo one convolves each channel with its own.
+ * @see net.jsoundsystem.JSoundSystem#createReverb(java.io.File, int)
+ */
+public final class ConvolutionReverb implements SoundEffect {
+
+	//The impulse response as it was given to us
+	private final float[][] impulse;
+	private final float impulseRate;
+
+	private final int partitionSize, fftSize, bins;
+	private final FFT fft;
+	private volatile float wet = 1.00f, dry = 0.00f;
+
+	//The impulse response partitions in the frequency domain, both channels share them for a mono impulse response
+	private float sampleRate;
+	private int partitions;
+	private float[] leftRe, leftIm, rightRe, rightIm;
+
+	//Spectra of the last inputs, one per partition, used as a ring
+	private float[] historyLeftRe, historyLeftIm, historyRightRe, historyRightIm;
+	private int historyPosition;
+
+	//The last two partitions of input, the output of the last partition and where we are in them
+	private final float[] windowLeft, windowRight;
+	private final float[] outputLeft, outputRight;
+	private int position;
+
+	//Work buffers for one partition
+	private final float[] re, im;
+	private final float[] sumLeftRe, sumLeftIm, sumRightRe, sumRightIm;
+
+	/**
+	 * @param impulseResponse The samples of each channel of the impulse response, one or two channels
+	 * @param impulseRate The sample rate of the impulse response
+	 * @param sampleRate The sample rate the reverb will be used at, the impulse response is resampled to it
+	 * @param partitionSize How many frames are convolved at a time, a power of two from 32 to 16384
+	 * @throws IllegalArgumentException if there are no channels or the partition size is not supported
+	 */
+	public ConvolutionReverb( float[][] impulseResponse, float impulseRate, float sampleRate, int partitionSize ) {
+		if( impulseResponse == null || impulseResponse.length == 0 ) throw new IllegalArgumentException("The impulse response has no channels.");
+		if( partitionSize < 32 || partitionSize > 16384 || Integer.bitCount( partitionSize ) != 1 ) {
+			throw new IllegalArgumentException("The partition size must be a power of two from 32 to 16384.");
+		}
+
+		impulse = impulseResponse.length > 2 ? Arrays.copyOf( impulseResponse, 2 ) : impulseResponse;
+		this.impulseRate = impulseRate;
+		this.partitionSize = partitionSize;
+		fftSize = partitionSize * 2;
+		bins = partitionSize + 1;
+		fft = new FFT( fftSize );
+
+		windowLeft = new float[fftSize];
+		windowRight = new float[fftSize];
+		outputLeft = new float[partitionSize];
+		outputRight = new float[partitionSize];
+		re = new float[fftSize];
+		im = new float[fftSize];
+		sumLeftRe = new float[bins];
+		sumLeftIm = new float[bins];
+		sumRightRe = new float[bins];
+		sumRightIm = new float[bins];
+
+		prepare( sampleRate );
+	}
+
+	/**
+	 * @param wet How loud the reverb is, 1.00f by default
+	 */
+	public void setWet( float wet ) {
+		this.wet = wet;
+	}
+
+	public float getWet() {
+		return wet;
+	}
+
+	/**
+	 * @param dry How loud the original sound is, 0.00f by default since a reverb on a send bus should only
+	 * add the reverb. Use 1.00f when the reverb is added to a single sound.
+	 */
+	public void setDry( float dry ) {
+		this.dry = dry;
+	}
+
+	public float getDry() {
+		return dry;
+	}
+
+	public int getPartitionSize() {
+		return partitionSize;
+	}
+
+	/**
+	 * Returns how many frames the impulse response lasts at the sample rate it is used at
+	 */
+	public int getLength() {
+		return partitions * partitionSize;
+	}
+
+	public void process( float[] buffer, int frames, float sampleRate ) {
+
+		//Only happens when the reverb is used at another rate than it was created for
+		if( sampleRate != this.sampleRate ) prepare( sampleRate );
+
+		float wet = this.wet, dry = this.dry;
+		int position = this.position;
+
+		for( int i = 0; i < frames * 2; i += 2 ) {
+			float left = buffer[i], right = buffer[i+1];
+			windowLeft[partitionSize + position] = left;
+			windowRight[partitionSize + position] = right;
+			buffer[i] = dry * left + wet * outputLeft[position];
+			buffer[i+1] = dry * right + wet * outputRight[position];
+
+			if( ++position == partitionSize ) {
+				convolvePartition();
+				position = 0;
+			}
+		}
+
+		this.position = position;
+	}
+
+	public int getTailFrames() {
+		return getLength() + partitionSize;
+	}
+
+	public void reset() {
+		Arrays.fill( windowLeft, 0 );
+		Arrays.fill( windowRight, 0 );
+		Arrays.fill( outputLeft, 0 );
+		Arrays.fill( outputRight, 0 );
+		Arrays.fill( historyLeftRe, 0 );
+		Arrays.fill( historyLeftIm, 0 );
+		Arrays.fill( historyRightRe, 0 );
+		Arrays.fill( historyRightIm, 0 );
+		position = 0;
+		historyPosition = 0;
+	}
+
+	/**
+	 * Convolves the last partition of input with the whole impulse response. Both channels are transformed
+	 * together as the real and imaginary part of one complex signal, and separated again afterwards.
+	 */
+	private void convolvePartition() {
+		System.arraycopy( windowLeft, 0, re, 0, fftSize );
+		System.arraycopy( windowRight, 0, im, 0, fftSize );
+		fft.transform( re, im, false );
+
+		//Split the spectrum of left + i * right into the spectra of left and right
+		int slot = historyPosition * bins;
+		for( int k = 0; k < bins; k++ ) {
+			int mirror = (fftSize - k) & (fftSize - 1);
+			historyLeftRe[slot + k] = (re[k] + re[mirror]) * 0.5f;
+			historyLeftIm[slot + k] = (im[k] - im[mirror]) * 0.5f;
+			historyRightRe[slot + k] = (im[k] + im[mirror]) * 0.5f;
+			historyRightIm[slot + k] = (re[mirror] - re[k]) * 0.5f;
+		}
+
+		//Multiply every partition of the impulse response with the input from as many partitions ago
+		Arrays.fill( sumLeftRe, 0 );
+		Arrays.fill( sumLeftIm, 0 );
+		Arrays.fill( sumRightRe, 0 );
+		Arrays.fill( sumRightIm, 0 );
+		for( int partition = 0; partition < partitions; partition++ ) {
+			int input = ((historyPosition - partition + partitions) % partitions) * bins;
+			int filter = partition * bins;
+			multiplyAdd( historyLeftRe, historyLeftIm, input, leftRe, leftIm, filter, sumLeftRe, sumLeftIm );
+			multiplyAdd( historyRightRe, historyRightIm, input, rightRe, rightIm, filter, sumRightRe, sumRightIm );
+		}
+
+		//Combine both spectra into left + i * right again, the upper half mirrors the lower half
+		for( int k = 0; k < bins; k++ ) {
+			re[k] = sumLeftRe[k] - sumRightIm[k];
+			im[k] = sumLeftIm[k] + sumRightRe[k];
+		}
+		for( int k = bins; k < fftSize; k++ ) {
+			int mirror = fftSize - k;
+			re[k] = sumLeftRe[mirror] + sumRightIm[mirror];
+			im[k] = sumRightRe[mirror] - sumLeftIm[mirror];
+		}
+		fft.transform( re, im, true );
+
+		//Only the second half is free of wrap-around (overlap-save)
+		float scale = 1.0f / fftSize;
+		for( int i = 0; i < partitionSize; i++ ) {
+			outputLeft[i] = re[partitionSize + i] * scale;
+			outputRight[i] = im[partitionSize + i] * scale;
+		}
+
+		System.arraycopy( windowLeft, partitionSize, windowLeft, 0, partitionSize );
+		System.arraycopy( windowRight, partitionSize, windowRight, 0, partitionSize );
+		historyPosition = (historyPosition + 1) % partitions;
+	}
+
+	/**
+	 * Adds the complex product of a block of input bins and a block of filter bins to the sums
+	 */
+	private void multiplyAdd( float[] inputRe, float[] inputIm, int input, float[] filterRe, float[] filterIm, int filter,
+			float[] sumRe, float[] sumIm ) {
+		for( int k = 0; k < bins; k++ ) {
+			float xr = inputRe[input + k], xi = inputIm[input + k];
+			float hr = filterRe[filter + k], hi = filterIm[filter + k];
+			sumRe[k] += xr * hr - xi * hi;
+			sumIm[k] += xr * hi + xi * hr;
+		}
+	}
+
+	/**
+	 * Resamples, scales and transforms the impulse response for a sample rate
+	 */
+	private void prepare( float sampleRate ) {
+		this.sampleRate = sampleRate;
+
+		float[][] channels = new float[impulse.length][];
+		double energy = 0;
+		for( int c = 0; c < impulse.length; c++ ) {
+			channels[c] = resample( impulse[c], impulseRate, sampleRate );
+			for( float sample : channels[c] ) energy += sample * sample;
+		}
+		float scale = energy > 0 ? (float) (1 / Math.sqrt( energy / channels.length )) : 0;
+
+		int length = 0;
+		for( float[] channel : channels ) length = Math.max( length, channel.length );
+		partitions = Math.max( 1, (length + partitionSize - 1) / partitionSize );
+
+		leftRe = new float[partitions * bins];
+		leftIm = new float[partitions * bins];
+		transformPartitions( channels[0], scale, leftRe, leftIm );
+		if( channels.length == 1 ) {
+			rightRe = leftRe;
+			rightIm = leftIm;
+		}
+		else {
+			rightRe = new float[partitions * bins];
+			rightIm = new float[partitions * bins];
+			transformPartitions( channels[1], scale, rightRe, rightIm );
+		}
+
+		historyLeftRe = new float[partitions * bins];
+		historyLeftIm = new float[partitions * bins];
+		historyRightRe = new float[partitions * bins];
+		historyRightIm = new float[partitions * bins];
+		reset();
+	}
+
+	/**
+	 * Cuts a channel into partitions and stores the lower half of the spectrum of each
+	 */
+	private void transformPartitions( float[] channel, float scale, float[] spectrumRe, float[] spectrumIm ) {
+		for( int partition = 0; partition < partitions; partition++ ) {
+			Arrays.fill( re, 0 );
+			Arrays.fill( im, 0 );
+			int start = partition * partitionSize;
+			for( int i = 0; i < partitionSize && start + i < channel.length; i++ ) {
+				re[i] = channel[start + i] * scale;
+			}
+
+			fft.transform( re, im, false );
+			System.arraycopy( re, 0, spectrumRe, partition * bins, bins );
+			System.arraycopy( im, 0, spectrumIm, partition * bins, bins );
+		}
+	}
+
+	/**
+	 * Changes the sample rate of a channel with linear interpolation
+	 */
+	private static float[] resample( float[] channel, float from, float to ) {
+		if( from == to || channel.length == 0 ) return channel;
+
+		int length = (int) ((long) channel.length * to / from);
+		float[] result = new float[length];
+		double step = from / (double) to;
+		for( int i = 0; i < length; i++ ) {
+			double source = i * step;
+			int index = (int) source;
+			float next = index + 1 < channel.length ? channel[index + 1] : 0;
+			float fraction = (float) (source - index);
+			result[i] = channel[index] + (next - channel[index]) * fraction;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,108 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.effects;
+
+/**
+ * An in-place radix-2 complex FFT of one fixed size. The twiddle factors and the bit reversal order are
+ * computed once, so a transform never allocates.
+ */
+final class FFT {
+	private final int size;
+	private final float[] cos, sin;
+	private final int[] reversed;
+
+	/**
+	 * @param size A power of two
+	 */
+	FFT( int size ) {
+		this.size = size;
+
+		cos = new float[size / 2];
+		sin = new float[size / 2];
+		for( int i = 0; i < size / 2; i++ ) {
+			double angle = -2 * Math.PI * i / size;
+			cos[i] = (float) Math.cos( angle );
+			sin[i] = (float) Math.sin( angle );
+		}
+
+		int bits = Integer.numberOfTrailingZeros( size );
+		reversed = new int[size];
+		for( int i = 0; i < size; i++ ) {
+			reversed[i] = Integer.reverse( i ) >>> (32 - bits);
+		}
+	}
+
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * Transforms the signal in place. The inverse transform is not scaled, so a forward and inverse
+	 * transform multiply the signal by the size.
+	 * @param re The real parts
+	 * @param im The imaginary parts
+	 * @param inverse True for the inverse transform
+	 */
+	void transform( float[] re, float[] im, boolean inverse ) {
+		for( int i = 0; i < size; i++ ) {
+			int j = reversed[i];
+			if( j <= i ) continue;
+
+			float swap = re[i];
+			re[i] = re[j];
+			re[j] = swap;
+			swap = im[i];
+			im[i] = im[j];
+			im[j] = swap;
+		}
+
+		float direction = inverse ? -1 : 1;
+		for( int length = 2; length <= size; length *= 2 ) {
+			int half = length / 2;
+			int stride = size / length;
+
+			for( int start = 0; start < size; start += length ) {
+				for( int k = 0; k < half; k++ ) {
+					float wr = cos[k * stride];
+					float wi = direction * sin[k * stride];
+
+					int even = start + k;
+					int odd = even + half;
+					float tr = re[odd] * wr - im[odd] * wi;
+					float ti = re[odd] * wi + im[odd] * wr;
+
+					re[odd] = re[even] - tr;
+					im[odd] = im[even] - ti;
+					re[even] += tr;
+					im[even] += ti;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.effects;
+
+/**
+ * Processing that is inserted into the signal path of a sound or a bus, like a filter or a compressor.
+ * Effects work on blocks of interleaved stereo float samples in place, where 1.00f is full scale.
+ * <p>
+ * process() is called by the thread that plays the sound, once for every block. It must not allocate
+ * memory, block or take locks that other threads hold for long, otherwise the sound stutters. Any buffers
+ * an effect needs should be allocated when it is created. Parameters that are changed from another thread
+ * should be picked up at the start of the next block.
+ * <p>
+ * An effect keeps state between blocks, so one effect object must only be added to one EffectChain.
+ * @see net.jsoundsystem.EffectChain
+ */
+public interface SoundEffect {
+
+	/**
+	 * Processes a block of samples in place
+	 * @param buffer Interleaved stereo samples, left first
+	 * @param frames How many frames of the buffer to process
+	 * @param sampleRate The sample rate of the block, which stays the same for as long as the sound plays
+	 */
+	void process( float[] buffer, int frames, float sampleRate );
+
+	/**
+	 * Returns for how many frames the effect keeps making sound after its input went silent, like the tail of
+	 * a reverb. A bus keeps processing its effects for this long after the last sound on it has stopped.
+	 */
+	int getTailFrames();
+
+	/**
+	 * Forgets everything from earlier blocks, called when a sound starts over from the beginning
+	 */
+	void reset();
+}
@@ -0,0 +1,86 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.FloatControl;
+
+/**
+ * An opened output created by an OutputBackend. It behaves like a SourceDataLine: written data
+ * is buffered and consumed while the output is started.
+ * @see OutputBackend
+ */
+public interface AudioOutput {
+
+	/**
+	 * Starts or resumes consuming written data
+	 */
+	void start();
+
+	/**
+	 * Pauses consuming data, anything that is buffered is kept
+	 */
+	void stop();
+
+	/**
+	 * Writes PCM data to this output. This may block until there is room for the data.
+	 * @return The number of bytes written
+	 */
+	int write( byte[] data, int offset, int length );
+
+	/**
+	 * Returns how many bytes can be written right now without blocking
+	 */
+	int available();
+
+	/**
+	 * Blocks until all buffered data has been consumed
+	 */
+	void drain();
+
+	/**
+	 * Throws away any data that is buffered but not consumed yet
+	 */
+	void flush();
+
+	/**
+	 * Closes this output and releases its resources. It cannot be used anymore afterwards.
+	 */
+	void close();
+
+	/**
+	 * Returns the format this output was opened with
+	 */
+	AudioFormat getFormat();
+
+	/**
+	 * Returns a control of the specified type, or null if this output doesn't support it
+	 */
+	FloatControl getControl( FloatControl.Type type );
+}
@@ -0,0 +1,98 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * The default backend which plays sound through the sound device using a javax.sound SourceDataLine
+ * for every output.
+ */
+public class LineBackend implements OutputBackend {
+
+	public AudioOutput openOutput( AudioFormat format ) throws LineUnavailableException {
+		DataLine.Info info = new DataLine.Info( SourceDataLine.class, format );
+		SourceDataLine line = (SourceDataLine) AudioSystem.getLine( info );
+		line.open( format );
+		return new LineOutput( line );
+	}
+
+	/**
+	 * An output that simply forwards everything to a SourceDataLine
+	 */
+	private static class LineOutput implements AudioOutput {
+		private final SourceDataLine line;
+
+		LineOutput( SourceDataLine line ){
+			this.line = line;
+		}
+
+		public void start() {
+			line.start();
+		}
+
+		public void stop() {
+			line.stop();
+		}
+
+		public int write( byte[] data, int offset, int length ) {
+			return line.write( data, offset, length );
+		}
+
+		public int available() {
+			return line.available();
+		}
+
+		public void drain() {
+			line.drain();
+		}
+
+		public void flush() {
+			line.flush();
+		}
+
+		public void close() {
+			line.close();
+		}
+
+		public AudioFormat getFormat() {
+			return line.getFormat();
+		}
+
+		public FloatControl getControl( FloatControl.Type type ) {
+			if( !line.isControlSupported(type) ) return null;
+			return (FloatControl) line.getControl( type );
+		}
+	}
+}
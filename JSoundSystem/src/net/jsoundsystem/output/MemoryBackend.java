@@ -0,0 +1,161 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.output;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.FloatControl;
+
+/**
+ * A backend that records everything into memory instead of playing it. Data is consumed as soon as
+ * it is written so sounds are rendered faster than realtime. The recordings can be saved as WAV files.
+ */
+public class MemoryBackend implements OutputBackend {
+	private final List<MemoryOutput> outputs = new ArrayList<MemoryOutput>();
+
+	public AudioOutput openOutput( AudioFormat format ) {
+		MemoryOutput output = new MemoryOutput( format );
+
+		synchronized( outputs ) {
+			outputs.add( output );
+		}
+
+		return output;
+	}
+
+	/**
+	 * Data is consumed as soon as it is written, so this is not a realtime backend
+	 */
+	public boolean isRealtime() {
+		return false;
+	}
+
+	/**
+	 * Returns every output that was opened by this backend, in the order they were opened
+	 */
+	public List<MemoryOutput> getOutputs() {
+		synchronized( outputs ) {
+			return new ArrayList<MemoryOutput>( outputs );
+		}
+	}
+
+	/**
+	 * Forgets all outputs opened so far
+	 */
+	public void clear() {
+		synchronized( outputs ) {
+			outputs.clear();
+		}
+	}
+
+	/**
+	 * An output that keeps a copy of all the data written to it
+	 */
+	public static class MemoryOutput implements AudioOutput {
+		private final AudioFormat format;
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		private boolean closed;
+
+		MemoryOutput( AudioFormat format ){
+			this.format = format;
+		}
+
+		public void start() {
+		}
+
+		public void stop() {
+		}
+
+		public synchronized int write( byte[] bytes, int offset, int length ) {
+			if( closed ) return 0;
+			data.write( bytes, offset, length );
+			return length;
+		}
+
+		public int available() {
+			return Integer.MAX_VALUE;
+		}
+
+		public void drain() {
+		}
+
+		public void flush() {
+		}
+
+		public synchronized void close() {
+			closed = true;
+		}
+
+		public synchronized boolean isClosed() {
+			return closed;
+		}
+
+		public AudioFormat getFormat() {
+			return format;
+		}
+
+		public FloatControl getControl( FloatControl.Type type ) {
+			return null;
+		}
+
+		/**
+		 * Returns a copy of all PCM data written to this output so far
+		 */
+		public synchronized byte[] getData() {
+			return data.toByteArray();
+		}
+
+		/**
+		 * Returns how many frames have been written to this output so far
+		 */
+		public synchronized long getFrameLength() {
+			return data.size() / Math.max( 1, format.getFrameSize() );
+		}
+
+		/**
+		 * Saves everything written so far as a WAV file
+		 * @param file Where to save the recording
+		 * @throws IOException If the file could not be written
+		 */
+		public void writeWave( File file ) throws IOException {
+			byte[] bytes = getData();
+			AudioInputStream stream = new AudioInputStream( new ByteArrayInputStream(bytes), format, bytes.length / Math.max( 1, format.getFrameSize() ) );
+			AudioSystem.write( stream, AudioFileFormat.Type.WAVE, file );
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.FloatControl;
+
+/**
+ * A backend that throws all sound away. Outputs consume data at the speed a real sound device would,
+ * so sounds take as long to play as they normally do. Useful to run the JSoundSystem on machines
+ * without a sound device.
+ */
+public class NullBackend implements OutputBackend {
+
+	//How much data an output buffers ahead, similar to the buffer of a SourceDataLine
+	private static final float BUFFER_SECONDS = 0.1f;
+
+	public AudioOutput openOutput( AudioFormat format ) {
+		return new NullOutput( format );
+	}
+
+	/**
+	 * An output that uses the system clock to simulate data being played
+	 */
+	private static class NullOutput implements AudioOutput {
+		private final AudioFormat format;
+		private final double bytesPerNano;
+		private final long bufferSize;
+
+		private long bytesWritten;		//Total bytes received
+		private long bytesPlayed;		//Bytes consumed before the last start()
+		private long startTime = -1;	//When the output was started, -1 if stopped
+		private boolean closed;
+
+		NullOutput( AudioFormat format ){
+			this.format = format;
+			int frameSize = Math.max( 1, format.getFrameSize() );
+			bytesPerNano = format.getFrameRate() * frameSize / 1000000000.0;
+			bufferSize = Math.max( frameSize, (long)(format.getFrameRate() * BUFFER_SECONDS) * frameSize );
+		}
+
+		/**
+		 * Returns how many bytes have been consumed according to the simulated clock
+		 */
+		private long getPosition() {
+			long played = bytesPlayed;
+			if( startTime != -1 ) played += (long)((System.nanoTime() - startTime) * bytesPerNano);
+			return Math.min( played, bytesWritten );
+		}
+
+		/**
+		 * Waits until the simulated clock reaches the specified position
+		 */
+		private void waitFor( long position ) {
+			while( !closed && getPosition() < position ) {
+				long nanos = startTime == -1 ? 10000000 : (long)((position - getPosition()) / bytesPerNano);
+				try {
+					wait( Math.max( 1, nanos / 1000000 ) );
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+
+		public synchronized void start() {
+			if( startTime != -1 || closed ) return;
+			bytesPlayed = getPosition();
+			startTime = System.nanoTime();
+			notifyAll();
+		}
+
+		public synchronized void stop() {
+			if( startTime == -1 ) return;
+			bytesPlayed = getPosition();
+			startTime = -1;
+		}
+
+		public synchronized int write( byte[] data, int offset, int length ) {
+			if( closed ) return 0;
+			bytesWritten += length;
+
+			//Block while the simulated buffer is full
+			waitFor( bytesWritten - bufferSize );
+			return length;
+		}
+
+		public synchronized int available() {
+			if( closed ) return 0;
+			return (int) Math.max( 0, bufferSize - (bytesWritten - getPosition()) );
+		}
+
+		public synchronized void drain() {
+			waitFor( bytesWritten );
+		}
+
+		public synchronized void flush() {
+			bytesWritten = getPosition();
+		}
+
+		public synchronized void close() {
+			closed = true;
+			notifyAll();
+		}
+
+		public AudioFormat getFormat() {
+			return format;
+		}
+
+		public FloatControl getControl( FloatControl.Type type ) {
+			return null;
+		}
+	}
+}
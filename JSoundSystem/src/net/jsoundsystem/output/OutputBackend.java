@@ -0,0 +1,58 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.output;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Creates the outputs that the JSoundSystem writes decoded sound to. The default backend plays through
+ * javax.sound lines, but sounds can also be discarded or recorded, for example on machines that
+ * have no sound device.
+ * @see LineBackend, NullBackend, MemoryBackend
+ */
+public interface OutputBackend {
+
+	/**
+	 * Opens a new output ready to receive PCM data in the specified format
+	 * @param format The format of the data that will be written
+	 * @return An opened output that has not been started yet
+	 * @throws LineUnavailableException If the backend cannot open another output
+	 */
+	AudioOutput openOutput( AudioFormat format ) throws LineUnavailableException;
+
+	/**
+	 * Returns true if outputs consume data at normal playback speed. Streamed sounds never wait for their
+	 * decoder on realtime outputs, they play silence instead. On other outputs waiting can't be heard, so
+	 * they wait until the audio is decoded. The default is true.
+	 */
+	default boolean isRealtime() {
+		return true;
+	}
+}
@@ -74,6 +74,17 @@ public class Vector3f {
     }
     
     
+    /**
+     * <p>Returns a hash code that is the same for equal vectors. Adding
+     * 0 turns -0 into 0, because equals() treats them as the same.</p>
+     */
+    public int hashCode() {
+        int hash = Float.floatToIntBits(x + 0.0f);
+        hash = 31 * hash + Float.floatToIntBits(y + 0.0f);
+        return 31 * hash + Float.floatToIntBits(z + 0.0f);
+    }
+    
+    
     /**
      * <p>Checks if this Vector3D is equal to the specified
      * x, y, and z coordinates.</p>
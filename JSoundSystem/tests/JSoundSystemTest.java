@@ -25,6 +25,10 @@ class JSoundSystemTest {
         testSound("testSound.flac");
         testSound("testSound.mp3");
         testSound("testSound.aiff");
+
+        JSoundSystem.setPlaybackMode(JSoundSystem.PlaybackMode.MIXER);
+        testSound("testSound.ogg");
+        testSound("testSound.aiff");
     }
 
 }
\ No newline at end of file
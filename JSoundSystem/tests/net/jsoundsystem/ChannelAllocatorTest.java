@@ -0,0 +1,234 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.Test;
+
+/**
+ * Which voice loses its channel when all channels are in use
+ */
+public class ChannelAllocatorTest {
+
+	/**
+	 * A voice that only has a priority and a played volume
+	 */
+	private static final class TestVoice implements Voice {
+		private int priority;
+		private float playedVolume;
+		private boolean stolen;
+
+		TestVoice( int priority, float playedVolume ) {
+			this.priority = priority;
+			this.playedVolume = playedVolume;
+		}
+
+		public float getPlayedVolume() { return playedVolume; }
+		public int getPriority() { return priority; }
+		public void setPriority( int priority ) { this.priority = priority; }
+		public void steal() { stolen = true; }
+
+		public boolean play() { return true; }
+		public void pause() {}
+		public void stopPlaying() {}
+		public void dispose() {}
+		public void setLooped( boolean looping ) {}
+		public void setVolume( float volume ) {}
+		public void setPanning( float panning ) {}
+		public void setSpeed( float speed ) {}
+		public void setLoopPoints( long startFrame, long endFrame ) {}
+		public void takeSettings( Voice parent ) {}
+		public float getVolume() { return playedVolume; }
+		public void setBus( SoundBus bus ) {}
+		public SoundBus getBus() { return null; }
+		public void setSend( SoundBus bus, float level ) {}
+		public SoundBus getSendBus() { return null; }
+		public float getSendLevel() { return 0; }
+		public EffectChain getEffects() { return null; }
+		public boolean resumeFromVirtual() { return true; }
+		public boolean isPlaying() { return true; }
+		public boolean isPaused() { return false; }
+		public void enableSpatializedSound() {}
+		public void setSourcePosition( float x, float y, float z ) {}
+		public AudioFormat getAudioFormat() { return null; }
+		public float getBufferFill() { return 1.00f; }
+		public long getUnderruns() { return 0; }
+		public String getName() { return "test"; }
+		public Voice clone() { return new TestVoice( priority, playedVolume ); }
+	}
+
+	private static ChannelAllocator allocator( int maxChannels ) {
+		ChannelAllocator allocator = new ChannelAllocator();
+		allocator.setMaxChannels( maxChannels );
+		return allocator;
+	}
+
+	@Test
+	public void lowestPriorityIsStolenFirst() {
+		ChannelAllocator channels = allocator( 2 );
+		TestVoice important = new TestVoice( 1, 0.01f );
+		TestVoice loud = new TestVoice( 0, 1.00f );
+		assertTrue( channels.reserve( important ) );
+		assertTrue( channels.reserve( loud ) );
+
+		//The quieter voice has a higher priority, so the loud one loses its channel
+		assertTrue( channels.reserve( new TestVoice( 2, 1.00f ) ) );
+		assertTrue( loud.stolen );
+		assertFalse( important.stolen );
+		assertEquals( 2, channels.getChannelsInUse() );
+		assertEquals( 1, channels.getSteals() );
+	}
+
+	@Test
+	public void quietestIsStolenAmongEqualPriority() {
+		ChannelAllocator channels = allocator( 3 );
+		TestVoice first = new TestVoice( 0, 1.00f );
+		TestVoice quiet = new TestVoice( 0, 0.20f );
+		TestVoice third = new TestVoice( 0, 0.50f );
+		channels.reserve( first );
+		channels.reserve( quiet );
+		channels.reserve( third );
+
+		assertTrue( channels.reserve( new TestVoice( 1, 1.00f ) ) );
+		assertTrue( quiet.stolen );
+		assertFalse( first.stolen );
+		assertFalse( third.stolen );
+	}
+
+	@Test
+	public void oldestIsStolenWhenEquallyLoud() {
+		ChannelAllocator channels = allocator( 2 );
+		TestVoice oldest = new TestVoice( 0, 0.50f );
+		TestVoice newest = new TestVoice( 0, 0.50f );
+		channels.reserve( oldest );
+		channels.reserve( newest );
+
+		assertTrue( channels.reserve( new TestVoice( 1, 1.00f ) ) );
+		assertTrue( oldest.stolen );
+		assertFalse( newest.stolen );
+	}
+
+	@Test
+	public void volumeChangesAfterReserveAreUsed() {
+		ChannelAllocator channels = allocator( 2 );
+		TestVoice fading = new TestVoice( 0, 1.00f );
+		TestVoice loud = new TestVoice( 0, 0.80f );
+		channels.reserve( fading );
+		channels.reserve( loud );
+
+		//A 3D sound moving away, its volume is reported after the next block
+		fading.playedVolume = 0.05f;
+		channels.update( fading );
+
+		assertTrue( channels.reserve( new TestVoice( 1, 1.00f ) ) );
+		assertTrue( fading.stolen );
+		assertFalse( loud.stolen );
+	}
+
+	@Test
+	public void priorityChangesAfterReserveAreUsed() {
+		ChannelAllocator channels = allocator( 2 );
+		TestVoice raised = new TestVoice( 0, 0.10f );
+		TestVoice other = new TestVoice( 1, 1.00f );
+		channels.reserve( raised );
+		channels.reserve( other );
+
+		raised.priority = 2;
+		channels.update( raised );
+
+		assertTrue( channels.reserve( new TestVoice( 3, 1.00f ) ) );
+		assertTrue( other.stolen );
+		assertFalse( raised.stolen );
+	}
+
+	@Test
+	public void equalPriorityNeverSteals() {
+		ChannelAllocator channels = allocator( 2 );
+		TestVoice first = new TestVoice( 1, 0.01f );
+		TestVoice second = new TestVoice( 1, 0.01f );
+		channels.reserve( first );
+		channels.reserve( second );
+
+		assertFalse( channels.reserve( new TestVoice( 1, 1.00f ) ) );
+		assertFalse( channels.reserve( new TestVoice( 0, 1.00f ) ) );
+		assertFalse( first.stolen );
+		assertFalse( second.stolen );
+		assertEquals( 0, channels.getSteals() );
+		assertEquals( 2, channels.getRefusals() );
+	}
+
+	@Test
+	public void disabledStealingRefuses() {
+		ChannelAllocator channels = allocator( 1 );
+		TestVoice voice = new TestVoice( 0, 0.01f );
+		channels.reserve( voice );
+		channels.setStealingEnabled( false );
+
+		assertFalse( channels.reserve( new TestVoice( 5, 1.00f ) ) );
+		assertFalse( voice.stolen );
+	}
+
+	@Test
+	public void stolenVoiceDoesNotFreeTheChannel() {
+		ChannelAllocator channels = allocator( 1 );
+		TestVoice victim = new TestVoice( 0, 1.00f );
+		TestVoice thief = new TestVoice( 1, 1.00f );
+		channels.reserve( victim );
+		channels.reserve( thief );
+		assertTrue( victim.stolen );
+
+		//The victim plays its last block and stops, the channel belongs to the thief now
+		victim.playedVolume = 0.00f;
+		channels.update( victim );
+		channels.free( victim );
+		assertEquals( 1, channels.getChannelsInUse() );
+
+		channels.free( thief );
+		assertEquals( 0, channels.getChannelsInUse() );
+		assertEquals( 1, channels.getPeakChannels() );
+	}
+
+	@Test
+	public void volumeStepsKeepTheOrder() {
+		float previous = 0.00f;
+		for( float volume = 0.001f; volume < 4.00f; volume *= 1.01f ) {
+			assertTrue( ChannelAllocator.volumeStep( previous ) <= ChannelAllocator.volumeStep( volume ) );
+			previous = volume;
+		}
+		assertEquals( ChannelAllocator.volumeStep( 0.00f ), ChannelAllocator.volumeStep( -1.00f ) );
+
+		//A step is at most a factor of 1.25 wide
+		assertTrue( ChannelAllocator.volumeStep( 0.50f ) < ChannelAllocator.volumeStep( 0.63f ) );
+	}
+}
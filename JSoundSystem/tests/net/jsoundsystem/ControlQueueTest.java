@@ -0,0 +1,194 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Control changes passed from the caller to the thread that plays a voice
+ */
+public class ControlQueueTest {
+
+	/**
+	 * Applies commands the way voices do once per block: check for overflow, drain, then reload the latest
+	 * values if anything was dropped
+	 */
+	private static final class Consumer {
+		private final ControlQueue controls;
+		volatile float volume, speed;
+		float mixVolume, mixSpeed;
+		int applied;
+
+		Consumer( ControlQueue controls ) {
+			this.controls = controls;
+		}
+
+		void setVolume( float volume ) {
+			this.volume = volume;
+			controls.offer( ControlQueue.VOLUME, volume );
+		}
+
+		void setSpeed( float speed ) {
+			this.speed = speed;
+			controls.offer( ControlQueue.SPEED, speed );
+		}
+
+		boolean drain() {
+			boolean overflowed = controls.checkOverflow();
+
+			for( int command; (command = controls.poll()) != ControlQueue.NONE; ) {
+				switch( command ) {
+					case ControlQueue.VOLUME:	mixVolume = controls.value(); break;
+					case ControlQueue.SPEED:	mixSpeed = controls.value(); break;
+				}
+				applied++;
+			}
+
+			if( overflowed ) {
+				mixVolume = volume;
+				mixSpeed = speed;
+			}
+			return overflowed;
+		}
+	}
+
+	@Test
+	public void commandsArriveInOrder() {
+		ControlQueue controls = new ControlQueue( 8 );
+		assertEquals( ControlQueue.NONE, controls.poll() );
+
+		assertTrue( controls.offer( ControlQueue.VOLUME, 0.50f ) );
+		assertTrue( controls.offer( ControlQueue.PANNING, -1.00f ) );
+		assertTrue( controls.offer( ControlQueue.LOOP, 1 ) );
+
+		assertEquals( ControlQueue.VOLUME, controls.poll() );
+		assertEquals( 0.50f, controls.value(), 0 );
+		assertEquals( ControlQueue.PANNING, controls.poll() );
+		assertEquals( -1.00f, controls.value(), 0 );
+		assertEquals( ControlQueue.LOOP, controls.poll() );
+		assertEquals( 1, controls.value(), 0 );
+		assertEquals( ControlQueue.NONE, controls.poll() );
+		assertFalse( controls.checkOverflow() );
+	}
+
+	@Test
+	public void capacityIsRoundedUpToAPowerOfTwo() {
+		ControlQueue controls = new ControlQueue( 5 );
+		for( int i = 0; i < 8; i++ ) {
+			assertTrue( controls.offer( ControlQueue.SPEED, i ) );
+		}
+		assertFalse( controls.offer( ControlQueue.SPEED, 8 ) );
+	}
+
+	@Test
+	public void fullQueueDropsAndReportsOverflowOnce() {
+		ControlQueue controls = new ControlQueue( 4 );
+		for( int i = 0; i < 4; i++ ) {
+			assertTrue( controls.offer( ControlQueue.VOLUME, i ) );
+		}
+		assertFalse( controls.offer( ControlQueue.VOLUME, 4 ) );
+		assertTrue( controls.checkOverflow() );
+		assertFalse( controls.checkOverflow() );
+
+		//The commands that fit are kept, the dropped one is gone
+		for( int i = 0; i < 4; i++ ) {
+			assertEquals( ControlQueue.VOLUME, controls.poll() );
+			assertEquals( i, controls.value(), 0 );
+		}
+		assertEquals( ControlQueue.NONE, controls.poll() );
+
+		//Slots that were read can be used again
+		assertTrue( controls.offer( ControlQueue.SPEED, 2.00f ) );
+		assertEquals( ControlQueue.SPEED, controls.poll() );
+		assertEquals( 2.00f, controls.value(), 0 );
+	}
+
+	@Test
+	public void overflowReloadsTheLatestValues() {
+		Consumer voice = new Consumer( new ControlQueue( 4 ) );
+
+		//Far more changes than fit between two blocks, the last ones are dropped
+		for( int i = 1; i <= 100; i++ ) {
+			voice.setVolume( i / 100.0f );
+			voice.setSpeed( i );
+		}
+		assertTrue( voice.drain() );
+		assertEquals( 1.00f, voice.mixVolume, 0 );
+		assertEquals( 100, voice.mixSpeed, 0 );
+
+		//The next block sees no overflow and applies changes normally
+		voice.setVolume( 0.25f );
+		assertFalse( voice.drain() );
+		assertEquals( 0.25f, voice.mixVolume, 0 );
+		assertEquals( 100, voice.mixSpeed, 0 );
+	}
+
+	@Test
+	public void manyProducersLoseNothingThatWasAccepted() throws Exception {
+		final ControlQueue controls = new ControlQueue( 64 );
+		final int producers = 4, offers = 100000;
+		final AtomicInteger accepted = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch( producers );
+		final float[] lastValue = new float[producers];
+
+		for( int p = 0; p < producers; p++ ) {
+			final int producer = p;
+			new Thread() {
+				public void run() {
+					for( int i = 0; i < offers; i++ ) {
+						if( controls.offer( producer, i ) ) accepted.incrementAndGet();
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+
+		//Each producer uses its own command, its values must arrive in increasing order
+		int received = 0;
+		for( int p = 0; p < producers; p++ ) lastValue[p] = -1;
+		while( true ) {
+			boolean finished = done.getCount() == 0;
+			for( int command; (command = controls.poll()) != ControlQueue.NONE; ) {
+				assertTrue( controls.value() > lastValue[command] );
+				lastValue[command] = controls.value();
+				received++;
+			}
+			if( finished ) break;
+		}
+
+		assertEquals( accepted.get(), received );
+	}
+}
@@ -0,0 +1,79 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+
+/**
+ * Decoding sound files into the format used for playback
+ */
+public class DecodeTest {
+
+	private static AudioInputStream decodeWave( AudioFormat format, int frames ) throws Exception {
+		byte[] pcm = new byte[frames * format.getFrameSize()];
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		AudioSystem.write( new AudioInputStream( new ByteArrayInputStream( pcm ), format, frames ), AudioFileFormat.Type.WAVE, file );
+		return JSoundSystem.getAudioInputStream( new BufferedInputStream( new ByteArrayInputStream( file.toByteArray() ) ), "test.wav" );
+	}
+
+	private static void assertPlaybackFormat( AudioInputStream stream, float sampleRate, int frames ) {
+		AudioFormat format = stream.getFormat();
+		assertEquals( AudioFormat.Encoding.PCM_SIGNED, format.getEncoding() );
+		assertEquals( 16, format.getSampleSizeInBits() );
+		assertEquals( 2, format.getChannels() );
+		assertEquals( 4, format.getFrameSize() );
+		assertEquals( sampleRate, format.getSampleRate(), 0 );
+		assertEquals( frames, stream.getFrameLength() );
+	}
+
+	@Test
+	public void monoIsDecodedToStereo() throws Exception {
+		AudioInputStream stream = decodeWave( new AudioFormat( 22050, 16, 1, true, false ), 22050 );
+		assertPlaybackFormat( stream, 22050, 22050 );
+		stream.close();
+	}
+
+	@Test
+	public void stereoIsDecodedUnchanged() throws Exception {
+		AudioInputStream stream = decodeWave( new AudioFormat( 44100, 16, 2, true, false ), 44100 );
+		assertPlaybackFormat( stream, 44100, 44100 );
+		stream.close();
+	}
+}
@@ -0,0 +1,227 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.Test;
+
+/**
+ * Looping of streamed sounds the way they are read when the output is not realtime, like a MemoryBackend
+ */
+public class StreamBufferTest {
+
+	private static final AudioFormat FORMAT = new AudioFormat( 8000, 16, 2, true, false );
+	private static final int FRAMES = 10000;
+
+	//Reads are not a multiple of the ring buffer or the loop length
+	private static final int READ_BYTES = 777 * 4;
+
+	/**
+	 * A sound whose frames contain their own index, the left sample has the low and the right the high bits
+	 */
+	private static final class CountingSource implements SoundSource {
+		final AtomicInteger opens = new AtomicInteger();
+
+		public String getName() {
+			return "counting";
+		}
+
+		public AudioInputStream open() {
+			opens.incrementAndGet();
+			InputStream frames = new InputStream() {
+				private int position;
+
+				public int read() {
+					if( position == FRAMES * 4 ) return -1;
+					int frame = position / 4, shift = (position % 4) * 8;
+					position++;
+					return (frame >> shift) & 0xFF;
+				}
+
+				//Decoders return less than asked for now and then
+				public int read( byte[] buffer, int offset, int length ) {
+					int size = Math.min( length, 1000 * 4 + position % 5 );
+					if( position == FRAMES * 4 ) return -1;
+					int i = 0;
+					for( ; i < size && position < FRAMES * 4; i++ ) buffer[offset + i] = (byte) read();
+					return i;
+				}
+			};
+			return new AudioInputStream( frames, FORMAT, FRAMES );
+		}
+
+		public SampleData decode( String key ) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Reads frames and checks that each one is the expected frame of the sound
+	 */
+	private static final class Reader {
+		private final StreamBuffer stream;
+		private final byte[] buffer = new byte[READ_BYTES];
+		private int offset, length;
+		long frames;
+
+		Reader( StreamBuffer stream ) {
+			this.stream = stream;
+		}
+
+		/**
+		 * @return The index stored in the next frame or -1 at the end of the sound
+		 */
+		int next() throws IOException {
+			if( offset == length ) {
+				length = stream.read( buffer, 0, buffer.length );
+				if( length == -1 ) return -1;
+				assertEquals( 0, length % 4 );
+				offset = 0;
+			}
+			int frame = (buffer[offset] & 0xFF) | (buffer[offset+1] & 0xFF) << 8 | (buffer[offset+2] & 0xFF) << 16 | (buffer[offset+3] & 0xFF) << 24;
+			offset += 4;
+			frames++;
+			return frame;
+		}
+	}
+
+	/**
+	 * Plays the sound once and then the loop a number of times, checking every frame
+	 */
+	private static void checkLoop( StreamBuffer stream, long loopStart, long loopEnd, int loops ) throws IOException {
+		Reader reader = new Reader( stream );
+		long end = loopEnd < 0 ? FRAMES : loopEnd;
+
+		for( int frame = 0; frame < end; frame++ ) {
+			assertEquals( "first pass", frame, reader.next() );
+		}
+		for( int loop = 0; loop < loops; loop++ ) {
+			for( long frame = loopStart; frame < end; frame++ ) {
+				assertEquals( "loop " + loop, frame, reader.next() );
+			}
+		}
+	}
+
+	private static StreamBuffer waitingBuffer( SoundSource sound, AtomicLong underruns ) {
+		return new StreamBuffer( sound, FORMAT, 100, underruns, true );
+	}
+
+	@Test(timeout = 20000)
+	public void wholeSoundLoopsWithoutGaps() throws Exception {
+		AtomicLong underruns = new AtomicLong();
+		StreamBuffer stream = waitingBuffer( new CountingSource(), underruns );
+		stream.setLoop( true, 0, -1 );
+
+		checkLoop( stream, 0, -1, 5 );
+		assertEquals( 0, underruns.get() );
+		stream.close();
+	}
+
+	@Test(timeout = 20000)
+	public void loopPointsLoopWithoutGaps() throws Exception {
+		CountingSource sound = new CountingSource();
+		AtomicLong underruns = new AtomicLong();
+		StreamBuffer stream = waitingBuffer( sound, underruns );
+		stream.setLoop( true, 2500, 9000 );
+
+		checkLoop( stream, 2500, 9000, 8 );
+		assertEquals( 0, underruns.get() );
+
+		//The loop head is kept in memory and a second decoder continues after it, so the sound is opened
+		//about once per loop and never decoded from the beginning while the seam plays
+		assertTrue( "opened " + sound.opens.get() + " times", sound.opens.get() <= 8 + 2 );
+		stream.close();
+	}
+
+	@Test(timeout = 20000)
+	public void shortLoopIsPlayedFromMemory() throws Exception {
+		CountingSource sound = new CountingSource();
+		StreamBuffer stream = waitingBuffer( sound, new AtomicLong() );
+		stream.setLoop( true, 100, 300 );
+
+		checkLoop( stream, 100, 300, 200 );
+
+		//The whole loop fits into the loop head, so the sound is only decoded once
+		assertEquals( 1, sound.opens.get() );
+		stream.close();
+	}
+
+	@Test(timeout = 20000)
+	public void stoppingTheLoopPlaysToTheEnd() throws Exception {
+		StreamBuffer stream = waitingBuffer( new CountingSource(), new AtomicLong() );
+		stream.setLoop( true, 0, -1 );
+		Reader reader = new Reader( stream );
+		for( int frame = 0; frame < FRAMES * 2 + 1234; frame++ ) {
+			assertEquals( frame % FRAMES, reader.next() );
+		}
+
+		//Audio that is already decoded still loops, after that the sound continues to its end
+		stream.setLoop( false, 0, -1 );
+		long expected = reader.frames;
+		int frame;
+		while( (frame = reader.next()) != -1 ) {
+			assertEquals( expected % FRAMES, frame );
+			expected++;
+		}
+		assertEquals( 0, expected % FRAMES );
+		stream.close();
+	}
+
+	@Test(timeout = 20000)
+	public void restartContinuesAtTheLoopStart() throws Exception {
+		StreamBuffer stream = waitingBuffer( new CountingSource(), new AtomicLong() );
+		Reader reader = new Reader( stream );
+		for( int frame = 0; frame < FRAMES; frame++ ) {
+			assertEquals( frame, reader.next() );
+		}
+		assertEquals( -1, reader.next() );
+
+		//Looping switched on after the decoder reached the end, the voice restarts the buffer
+		stream.setLoop( true, 4000, -1 );
+		stream.prepareRestart();
+		StreamBuffer restarted = stream.restart();
+		reader = new Reader( restarted );
+		for( int loop = 0; loop < 3; loop++ ) {
+			for( int frame = 4000; frame < FRAMES; frame++ ) {
+				assertEquals( "loop " + loop, frame, reader.next() );
+			}
+		}
+		restarted.close();
+	}
+}
@@ -0,0 +1,182 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+import net.jsoundsystem.output.MemoryBackend;
+
+import org.junit.Test;
+
+/**
+ * Resampling, gain and the end of the source in the software signal path of a voice
+ */
+public class VoiceDspTest {
+
+	private static final AudioFormat FORMAT = new AudioFormat( 44100, 16, 2, true, false );
+	private static final int BLOCK_FRAMES = 1024;
+
+	/**
+	 * A stereo source whose left side counts up and right side counts down, repeating every 4000 frames
+	 */
+	private static final class RampSource implements VoiceDsp.Source {
+		private final int frames;
+		private int position;
+
+		RampSource( int frames ) {
+			this.frames = frames;
+		}
+
+		static float left( int frame ) {
+			return ((frame % 4000) - 2000) * 8 / 32768.0f;
+		}
+
+		public int readSamples( byte[] buffer, int offset, int length ) {
+			int total = frames * 4;
+			if( position >= total ) return -1;
+
+			//Odd sized reads, so frames are split between reads
+			int len = Math.min( Math.min( length, 4099 ), total - position );
+			for( int i = 0; i < len; i++ ) {
+				int frame = (position + i) / 4;
+				short left = (short)(((frame % 4000) - 2000) * 8);
+				short value = (position + i) % 4 < 2 ? left : (short) -left;
+				buffer[offset + i] = (byte)( (position + i) % 2 == 0 ? value : value >> 8 );
+			}
+			position += len;
+			return len;
+		}
+	}
+
+	/**
+	 * Plays a whole source at a step and checks every output frame against the source position it should play
+	 */
+	private static void checkStep( double step ) throws Exception {
+		int sourceFrames = 20000;
+		VoiceDsp dsp = new VoiceDsp( new RampSource( sourceFrames ), FORMAT, BLOCK_FRAMES );
+		dsp.setGain( 1, 0 );
+
+		float[] block = new float[BLOCK_FRAMES * 2];
+		double position = 0;
+		int played = 0;
+		while( true ) {
+			Arrays.fill( block, 0 );
+			int frames = dsp.mix( block, BLOCK_FRAMES, step );
+
+			for( int i = 0; i < frames; i++ ) {
+				int frame = (int) position;
+				float t = (float)(position - frame);
+
+				//Only compare where the ramp does not wrap around or end
+				if( frame % 4000 != 3999 && frame + 1 < sourceFrames ) {
+					float expected = RampSource.left( frame ) + (RampSource.left( frame + 1 ) - RampSource.left( frame )) * t;
+					assertEquals( "left at step " + step + ", frame " + played, expected, block[i*2], 1e-4f );
+					assertEquals( "right at step " + step + ", frame " + played, -expected, block[i*2+1], 1e-4f );
+				}
+				position += step;
+				played++;
+			}
+			if( frames < BLOCK_FRAMES ) break;
+		}
+
+		//Every source frame is played once, the last one is interpolated towards silence
+		int expected = (int) Math.ceil( sourceFrames / step );
+		assertTrue( "played " + played + " frames at step " + step + ", expected " + expected, Math.abs( played - expected ) <= 1 );
+	}
+
+	@Test
+	public void originalSpeed() throws Exception {
+		checkStep( 1.0 );
+	}
+
+	@Test
+	public void nonIntegerSteps() throws Exception {
+		checkStep( 0.5 );
+		checkStep( 0.75 );
+		checkStep( 1.5 );
+		checkStep( 48000.0 / 44100.0 );
+		checkStep( 22050.0 / 44100.0 * 1.3 );
+	}
+
+	@Test
+	public void largeSteps() throws Exception {
+		checkStep( 2 );
+		checkStep( 8.7 );
+		checkStep( 33 );
+		checkStep( 100 );
+		checkStep( 1500 );
+		checkStep( 30000 );
+	}
+
+	@Test
+	public void gainRampsOverOneBlock() throws Exception {
+		VoiceDsp dsp = new VoiceDsp( new RampSource( 20000 ), FORMAT, BLOCK_FRAMES );
+		dsp.setGain( 1, 0 );
+		float[] block = new float[BLOCK_FRAMES * 2];
+		dsp.mix( block, BLOCK_FRAMES, 1 );
+
+		//Fading out ends in silence at the last frame of the next block
+		dsp.fadeOut();
+		Arrays.fill( block, 0 );
+		dsp.mix( block, BLOCK_FRAMES, 1 );
+		assertEquals( RampSource.left( BLOCK_FRAMES ) * (1 - 1.0f / BLOCK_FRAMES), block[0], 1e-4f );
+		assertEquals( 0, block[(BLOCK_FRAMES - 1) * 2], 1e-6f );
+	}
+
+	/**
+	 * Threaded voices use the speed as the step, the mixer scales it by the sample rate. Both used to fail
+	 * once a step went past all frames that were decoded.
+	 */
+	@Test
+	public void fastSoundPlaysToTheEnd() throws Exception {
+		JSoundSystem.setOutputBackend( new MemoryBackend() );
+		File file = new File( System.getProperty( "basedir", "." ), "../Test Audio/testSound.aiff" );
+
+		for( JSoundSystem.PlaybackMode mode : JSoundSystem.PlaybackMode.values() ) {
+			JSoundSystem.setPlaybackMode( mode );
+			long errors = JSoundSystem.getMetrics().getPlaybackErrors();
+
+			JSound sound = JSoundSystem.createSound( file );
+			sound.setSpeed( 40 );
+			sound.play();
+			for( int i = 0; i < 500 && sound.isPlaying(); i++ ) Thread.sleep( 10 );
+
+			assertFalse( mode + " sound did not finish", sound.isPlaying() );
+			assertEquals( mode + " playback failed", errors, JSoundSystem.getMetrics().getPlaybackErrors() );
+			sound.dispose();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/******************************************************************************
+JSoundSystem is a simple and easy sound API to use sound in your Java applications.
+Copyright (c) 2014, Johan Jansen
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification, 
+are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this list 
+of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice, this 
+list of conditions and the following disclaimer in the documentation and/or other materials 
+provided with the distribution.
+
+3. Neither the name of the copyright holder nor the names of its contributors may be used 
+to endorse or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND 
+FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL 
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, 
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF 
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+************************************************************************/
+
+package net.jsoundsystem.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Test;
+
+/**
+ * The outputs used when there is no sound device
+ */
+public class OutputBackendTest {
+
+	private static final AudioFormat FORMAT = new AudioFormat( 44100, 16, 2, true, false );
+
+	@Test
+	public void nullBackendConsumesAtPlaybackSpeed() throws Exception {
+		NullBackend backend = new NullBackend();
+		assertTrue( backend.isRealtime() );
+
+		AudioOutput output = backend.openOutput( FORMAT );
+		assertSame( FORMAT, output.getFormat() );
+		assertTrue( output.available() > 0 );
+		output.start();
+
+		//Half a second of audio, the output buffers a tenth of a second of it
+		byte[] block = new byte[4096];
+		long start = System.nanoTime();
+		for( int written = 0; written < 44100 * 4 / 2; written += block.length ) {
+			assertEquals( block.length, output.write( block, 0, block.length ) );
+		}
+		double writing = (System.nanoTime() - start) / 1e9;
+		output.drain();
+		double playing = (System.nanoTime() - start) / 1e9;
+		output.close();
+
+		assertTrue( "writing took " + writing + " s", writing > 0.3 );
+		assertTrue( "playing took " + playing + " s", playing > 0.45 && playing < 5 );
+		assertEquals( 0, output.write( block, 0, block.length ) );
+	}
+
+	@Test
+	public void memoryBackendRecordsEverything() throws Exception {
+		MemoryBackend backend = new MemoryBackend();
+		assertFalse( backend.isRealtime() );
+
+		AudioOutput first = backend.openOutput( FORMAT );
+		AudioOutput second = backend.openOutput( FORMAT );
+		assertEquals( 2, backend.getOutputs().size() );
+		assertSame( first, backend.getOutputs().get( 0 ) );
+
+		//Any amount is taken at once, no matter how much was written before
+		byte[] data = new byte[44100 * 4 * 3];
+		for( int i = 0; i < data.length; i++ ) data[i] = (byte) i;
+		first.start();
+		assertEquals( data.length, first.write( data, 0, data.length ) );
+		assertEquals( 8, first.write( data, 0, 8 ) );
+		first.close();
+		assertEquals( 0, first.write( data, 0, 8 ) );
+
+		MemoryBackend.MemoryOutput recording = backend.getOutputs().get( 0 );
+		assertEquals( 44100 * 3 + 2, recording.getFrameLength() );
+		assertArrayEquals( data, Arrays.copyOf( recording.getData(), data.length ) );
+		assertEquals( 0, ((MemoryBackend.MemoryOutput) second).getFrameLength() );
+
+		backend.clear();
+		assertTrue( backend.getOutputs().isEmpty() );
+		second.close();
+	}
+
+	@Test
+	public void memoryRecordingIsSavedAsWave() throws Exception {
+		MemoryBackend.MemoryOutput output = (MemoryBackend.MemoryOutput) new MemoryBackend().openOutput( FORMAT );
+		byte[] data = new byte[1000 * 4];
+		for( int i = 0; i < data.length; i++ ) data[i] = (byte) (i * 7);
+		output.write( data, 0, data.length );
+
+		File file = File.createTempFile( "recording", ".wav" );
+		try {
+			output.writeWave( file );
+			AudioInputStream wave = AudioSystem.getAudioInputStream( file );
+			assertEquals( 1000, wave.getFrameLength() );
+			byte[] read = new byte[data.length];
+			int length = 0;
+			for( int len; length < read.length && (len = wave.read( read, length, read.length - length )) != -1; ) length += len;
+			wave.close();
+			assertArrayEquals( data, read );
+		} finally {
+			file.delete();
+		}
+	}
+}